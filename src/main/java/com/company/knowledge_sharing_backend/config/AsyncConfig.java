@@ -6,6 +6,7 @@ import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
@@ -21,5 +22,51 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
 
+    /**
+     * Dedicated pool for AI-backed work (Gemini response handling, semantic ranking)
+     * so upstream latency never consumes servlet worker threads
+     */
+    @Bean(name = "aiExecutor")
+    public Executor aiExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("ai-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Bounded pool for page-parallel PDF text extraction. When saturated the caller
+     * strips the range itself, which naturally throttles submissions.
+     */
+    @Bean(name = "pdfPageExecutor")
+    public Executor pdfPageExecutor() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 4);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("pdf-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Isolated pool for document text extraction. Bounded queue with abort policy:
+     * when saturated, new extractions are rejected instead of piling up on request threads.
+     */
+    @Bean(name = "extractionExecutor")
+    public ThreadPoolTaskExecutor extractionExecutor(ExtractionProperties extractionProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(extractionProperties.getPoolSize());
+        executor.setMaxPoolSize(extractionProperties.getPoolSize());
+        executor.setQueueCapacity(extractionProperties.getQueueCapacity());
+        executor.setThreadNamePrefix("extract-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,36 @@
+package com.company.knowledge_sharing_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "blob-store")
+@Data
+public class BlobStoreProperties {
+
+    // "local" (file.upload-dir) or "s3" (any S3-compatible endpoint)
+    private String type = "local";
+
+    // S3 connection; leave the endpoint empty for AWS, set it (with path-style access) for MinIO and the like
+    private String s3Endpoint;
+    private String s3Region = "us-east-1";
+    private String s3Bucket;
+    private String s3AccessKey;
+    private String s3SecretKey;
+    private boolean s3PathStyleAccess = false;
+
+    // Objects larger than the threshold are uploaded in parts (S3 minimum 5 MB), several at a time
+    private long multipartThresholdBytes = 16L * 1024 * 1024;
+    private int partSizeBytes = 8 * 1024 * 1024;
+    private int uploadConcurrency = 4;
+
+    // Content-defined chunking: files are split into chunks (rolling hash, ~64 KB) stored once
+    // each, and every file becomes a manifest of chunk hashes, so a revised document only adds
+    // the chunks around its edits. Chunks no manifest references are swept after the grace period.
+    private boolean chunkingEnabled = false;
+    private int chunkMinBytes = 16 * 1024;
+    private int chunkAverageBytes = 64 * 1024;
+    private int chunkMaxBytes = 256 * 1024;
+    private long chunkGcGraceHours = 24;
+}
@@ -1,23 +0,0 @@
-package com.company.knowledge_sharing_backend.config;
-
-import org.springframework.boot.web.servlet.FilterRegistrationBean;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-import org.springframework.web.filter.ShallowEtagHeaderFilter;
-
-@Configuration
-public class CompressionConfig {
-
-    /**
-     * Enable ETag for conditional requests
-     */
-    @Bean
-    public FilterRegistrationBean<ShallowEtagHeaderFilter> shallowEtagHeaderFilter() {
-        FilterRegistrationBean<ShallowEtagHeaderFilter> filterRegistrationBean = new FilterRegistrationBean<>(
-                new ShallowEtagHeaderFilter());
-        filterRegistrationBean.addUrlPatterns("/api/*");
-        filterRegistrationBean.setName("etagFilter");
-        return filterRegistrationBean;
-    }
-}
-
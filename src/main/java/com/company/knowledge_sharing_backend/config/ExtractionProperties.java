@@ -0,0 +1,31 @@
+package com.company.knowledge_sharing_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "extraction")
+@Data
+public class ExtractionProperties {
+
+    // Concurrency limit: extractions running at once, and how many may wait
+    private int poolSize = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    private int queueCapacity = 16;
+
+    // Wall-clock limit per extraction task
+    private long timeoutSeconds = 30;
+
+    // CPU-time limit per extraction thread (page workers get their own), 0 = none
+    private long cpuTimeLimitSeconds = 20;
+
+    // POI zip limits (zip bombs, huge embedded parts)
+    private long maxEntryBytes = 100L * 1024 * 1024;
+    private double minInflateRatio = 0.01;
+    private long maxTextChars = 10L * 1024 * 1024;
+    private int maxByteArrayBytes = 100 * 1024 * 1024;
+
+    // PDFBox memory: heap first, then scratch file, then fail
+    private long pdfMaxMainMemoryBytes = 64L * 1024 * 1024;
+    private long pdfMaxStorageBytes = 256L * 1024 * 1024;
+}
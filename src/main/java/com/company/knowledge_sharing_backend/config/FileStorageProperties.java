@@ -9,5 +9,36 @@ import org.springframework.stereotype.Component;
 @Data
 public class FileStorageProperties {
     private String uploadDir;
+
+    // Files left flat in the upload directory are moved into the ab/cd/ layout, this many per minute
+    private boolean layoutMigrationEnabled = true;
+    private int layoutMigrationBatchSize = 500;
+
+    // Chunked uploads (initiate, PUT chunks, complete) for files above the multipart limit.
+    // Chunks are staged on local disk; sessions not attached to a document expire.
+    private long chunkedUploadMaxBytes = 1024L * 1024 * 1024;
+    private int chunkedUploadChunkBytes = 8 * 1024 * 1024;
+    private long chunkedUploadExpiryHours = 24;
+
+    // Compressible formats (PDF, DOC) are stored gzip-encoded if that saves at least this share;
+    // already-compressed formats (images, DOCX) and small files are stored as uploaded
+    private boolean compressionEnabled = true;
+    private long compressionMinBytes = 4096;
+    private int compressionMinSavingsPercent = 10;
+
+    // Unreferenced blobs are deleted only after this long (covers in-flight uploads and restores)
+    private long blobGcGraceMinutes = 60;
+
+    // Mark-and-sweep of files no document version references (leaked references, legacy files).
+    // Only files older than the grace period are candidates; deletes are rate limited per run.
+    private boolean orphanGcEnabled = true;
+    private boolean orphanGcDryRun = false;
+    private long orphanGcGraceHours = 24;
+    private int orphanGcMaxDeletesPerRun = 1000;
+    private int orphanGcDeletesPerSecond = 20;
+
+    // Cache of extracted document text (gzip files keyed by content hash)
+    private String extractionCacheDir = "extraction-cache";
+    private long extractionCacheMaxBytes = 512L * 1024 * 1024;
 }
 
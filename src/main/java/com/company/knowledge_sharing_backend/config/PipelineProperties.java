@@ -0,0 +1,25 @@
+package com.company.knowledge_sharing_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "pipeline")
+@Data
+public class PipelineProperties {
+
+    // Workers and queued tasks per stage executor
+    private int threadsPerStage = 2;
+    private int queueCapacity = 100;
+
+    // Attempts per stage before it is marked FAILED; delay grows linearly with attempts
+    private int maxAttempts = 3;
+    private long retryDelaySeconds = 60;
+
+    // Delay before a stage rejected by a full queue, or waiting for the Gemini quota, is tried again
+    private long deferSeconds = 30;
+
+    // A RUNNING stage not finished after this long is assumed lost (crash) and resumed
+    private long staleAfterMinutes = 15;
+}
@@ -0,0 +1,35 @@
+package com.company.knowledge_sharing_backend.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "api.rate.limit")
+@Data
+public class RateLimitProperties {
+
+    // Share buckets across replicas through Redis (falls back to local buckets if Redis is down)
+    private boolean distributed = false;
+
+    // Buckets untouched for this long are full again and can be dropped
+    private long idleEvictionMinutes = 10;
+
+    // Per-user quotas
+    private Quota summary = new Quota(10, 10);
+    private Quota semanticSearch = new Quota(30, 10);
+    private Quota upload = new Quota(20, 5);
+
+    // Global quota protecting the upstream Gemini API (shared by all users)
+    private Quota gemini = new Quota(300, 50);
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Quota {
+        private int requestsPerMinute;
+        private int burst;
+    }
+}
@@ -85,6 +85,7 @@ public class RedisConfig {
         // Custom configurations for specific caches (only cache stable data)
         RedisCacheConfiguration tagsConfig = defaultConfig.entryTtl(Duration.ofHours(2));
         RedisCacheConfiguration statisticsConfig = defaultConfig.entryTtl(Duration.ofMinutes(10));
+        RedisCacheConfiguration geminiConfig = defaultConfig.entryTtl(Duration.ofDays(1));
 
         return RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(defaultConfig)
@@ -92,6 +93,9 @@ public class RedisConfig {
                 .withCacheConfiguration("tags", tagsConfig)
                 .withCacheConfiguration("popularTags", tagsConfig)
                 .withCacheConfiguration("statistics", statisticsConfig)
+                // Gemini results keyed by content hash (plain strings, safe to cache)
+                .withCacheConfiguration("geminiSummaries", geminiConfig)
+                .withCacheConfiguration("geminiEmbeddings", geminiConfig)
                 // Removed: documents, documentDetails, searchResults (cause ClassCastException and change frequently)
                 .build();
     }
@@ -0,0 +1,178 @@
+package com.company.knowledge_sharing_backend.config;
+
+import com.company.knowledge_sharing_backend.dto.request.DocumentRequest;
+import com.company.knowledge_sharing_backend.exception.BadRequestException;
+import com.company.knowledge_sharing_backend.util.LimitedInputStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Reads document uploads (POST /api/documents, PUT /api/documents/{id}) straight from the
+ * request body. The multipart resolver skips these requests (see WebConfig), so the container
+ * never stages the file in a temp copy: the "data" part is parsed first, then the "file" part
+ * is handed to the service as a one-shot stream that is hashed while it is stored.
+ */
+@Component
+public class StreamingUploadReader {
+
+    private static final Pattern UPDATE_PATH = Pattern.compile("^/api/documents/\\d+/?$");
+
+    // The JSON metadata part is small; anything larger is not a DocumentRequest
+    private static final long MAX_DATA_BYTES = 256 * 1024;
+
+    private static final String DATA_PART = "data";
+    private static final String FILE_PART = "file";
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    /**
+     * Whether the request is a document upload read by this class (and not by the multipart resolver)
+     */
+    public static boolean isStreamedUpload(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return ("POST".equals(request.getMethod()) && ("/api/documents".equals(uri) || "/api/documents/".equals(uri)))
+                || ("PUT".equals(request.getMethod()) && UPDATE_PATH.matcher(uri).matches());
+    }
+
+    /**
+     * Parse the parts in order and call the handler with the metadata and the file, which is
+     * null when the request has no file part (e.g. data.uploadId names a chunked upload). The
+     * data part must come before the file part.
+     */
+    public <T> T read(HttpServletRequest request, BiFunction<DocumentRequest, MultipartFile, T> handler) {
+        JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> upload = new JakartaServletFileUpload<>();
+
+        DocumentRequest data = null;
+        try {
+            FileItemInputIterator parts = upload.getItemIterator(request);
+            while (parts.hasNext()) {
+                FileItemInput part = parts.next();
+                if (DATA_PART.equals(part.getFieldName())) {
+                    data = readData(part);
+                } else if (FILE_PART.equals(part.getFieldName()) && part.getName() != null && !part.getName().isEmpty()) {
+                    if (data == null) {
+                        throw new BadRequestException("Part 'data' must be sent before part 'file'");
+                    }
+                    // Remaining parts are not read
+                    return handler.apply(data, new StreamedFile(part));
+                }
+            }
+        } catch (IOException e) {
+            throw new BadRequestException("Could not read multipart request: " + e.getMessage());
+        }
+
+        if (data == null) {
+            throw new BadRequestException("Required part 'data' is not present");
+        }
+        return handler.apply(data, null);
+    }
+
+    private DocumentRequest readData(FileItemInput part) throws IOException {
+        DocumentRequest data;
+        try (InputStream in = new LimitedInputStream(part.getInputStream(), MAX_DATA_BYTES)) {
+            data = objectMapper.readValue(in, DocumentRequest.class);
+        } catch (IOException e) {
+            throw new BadRequestException("Invalid document data: " + e.getMessage());
+        }
+
+        // @Valid does not apply to parts read here
+        Set<ConstraintViolation<DocumentRequest>> violations = validator.validate(data);
+        if (!violations.isEmpty()) {
+            ConstraintViolation<DocumentRequest> violation = violations.iterator().next();
+            throw new BadRequestException(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        return data;
+    }
+
+    /**
+     * A file part that is still on the wire: it can be read once, and its size is only known
+     * after that (FileStorageService enforces the limit while copying)
+     */
+    static class StreamedFile implements MultipartFile {
+
+        private final FileItemInput part;
+        private boolean consumed;
+
+        StreamedFile(FileItemInput part) {
+            this.part = part;
+        }
+
+        @Override
+        public String getName() {
+            return part.getFieldName();
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return part.getName();
+        }
+
+        @Override
+        public String getContentType() {
+            return part.getContentType();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            // Unknown until read; an empty stream is rejected when it is stored
+            return false;
+        }
+
+        @Override
+        public long getSize() {
+            return -1;
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            try (InputStream in = getInputStream()) {
+                return in.readAllBytes();
+            }
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (consumed) {
+                throw new IllegalStateException("Streamed upload " + part.getName() + " has already been read");
+            }
+            consumed = true;
+            return part.getInputStream();
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            transferTo(dest.toPath());
+        }
+
+        @Override
+        public void transferTo(Path dest) throws IOException {
+            try (InputStream in = getInputStream()) {
+                Files.copy(in, dest, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
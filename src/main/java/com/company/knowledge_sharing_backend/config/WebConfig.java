@@ -1,23 +1,82 @@
 package com.company.knowledge_sharing_backend.config;
 
+import com.company.knowledge_sharing_backend.service.FileStorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.PathResourceResolver;
 
 import java.nio.file.Paths;
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    @Autowired
+    private VersionETagInterceptor versionETagInterceptor;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Version-based ETags for document reads (processing state is not versioned)
+        registry.addInterceptor(versionETagInterceptor)
+                .addPathPatterns("/api/documents/**", "/api/search/**")
+                .excludePathPatterns("/api/documents/*/processing/**");
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         // Serve files from uploads folder at project root level
         String uploadPath = Paths.get("uploads").toAbsolutePath().toString();
 
-        // Map /*.jpg, /*.png, /*.pdf, etc. to uploads folder
+        // Map /*.jpg, /*.png, /*.pdf, etc. to uploads folder, resolving the sharded layout
         registry.addResourceHandler("/*.jpg", "/*.jpeg", "/*.png", "/*.gif", "/*.pdf", "/*.docx", "/*.doc")
                 .addResourceLocations("file:///" + uploadPath + "/")
-                .setCachePeriod(3600); // Cache for 1 hour
+                .setCachePeriod(3600) // Cache for 1 hour
+                .resourceChain(false)
+                .addResolver(new PathResourceResolver() {
+                    @Override
+                    protected Resource getResource(String resourcePath, Resource location) {
+                        try {
+                            // Local blob store only; with object storage use /api/files/{fileName}.
+                            // Compressed files are decoded here; /api/files can send them as stored.
+                            return fileStorageService.findLocalResource(resourcePath)
+                                    .filter(Resource::isReadable)
+                                    .orElse(null);
+                        } catch (IllegalArgumentException e) {
+                            return null;
+                        }
+                    }
+                });
     }
-}
 
+    /**
+     * Standard multipart handling, except for document uploads: those are read as a stream by
+     * StreamingUploadReader, so the container must not parse (and stage) their parts first
+     */
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public MultipartResolver multipartResolver() {
+        return new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                return super.isMultipart(request) && !StreamingUploadReader.isStreamedUpload(request);
+            }
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Upper bound for CompletableFuture endpoints (AI calls) before the request times out
+        configurer.setDefaultTimeout(60000);
+    }
+}
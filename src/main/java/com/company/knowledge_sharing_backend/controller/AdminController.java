@@ -2,9 +2,11 @@ package com.company.knowledge_sharing_backend.controller;
 
 import com.company.knowledge_sharing_backend.dto.request.UpdateUserRoleRequest;
 import com.company.knowledge_sharing_backend.dto.response.MessageResponse;
+import com.company.knowledge_sharing_backend.dto.response.OrphanSweepReport;
 import com.company.knowledge_sharing_backend.dto.response.SystemStatistics;
 import com.company.knowledge_sharing_backend.dto.response.UserManagementResponse;
 import com.company.knowledge_sharing_backend.service.AdminService;
+import com.company.knowledge_sharing_backend.service.OrphanFileCollector;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -28,6 +30,9 @@ public class AdminController {
     @Autowired
     private AdminService adminService;
 
+    @Autowired
+    private OrphanFileCollector orphanFileCollector;
+
     /**
      * Get all users
      * GET /api/admin/users
@@ -128,5 +133,24 @@ public class AdminController {
         adminService.deleteNotification(notificationId);
         return ResponseEntity.ok(new MessageResponse("Notification deleted successfully"));
     }
-}
 
+    /**
+     * Sweep orphaned files
+     * POST /api/admin/storage/orphans/sweep?dryRun=true
+     */
+    @Operation(
+        summary = "Sweep orphaned files",
+        description = "Find stored files no document version references and delete those past the grace period. "
+                + "Dry run (default) only reports them (Admin only)"
+    )
+    @ApiResponse(responseCode = "200", description = "Sweep finished")
+    @ApiResponse(responseCode = "400", description = "A sweep is already running")
+    @ApiResponse(responseCode = "403", description = "Access denied - Admin role required")
+    @PostMapping("/storage/orphans/sweep")
+    public ResponseEntity<OrphanSweepReport> sweepOrphanFiles(
+            @Parameter(description = "Only report, do not delete")
+            @RequestParam(defaultValue = "true") boolean dryRun) {
+        OrphanSweepReport report = orphanFileCollector.sweep(dryRun);
+        return ResponseEntity.ok(report);
+    }
+}
@@ -1,13 +1,17 @@
 package com.company.knowledge_sharing_backend.controller;
 
-import com.company.knowledge_sharing_backend.dto.request.DocumentRequest;
 import com.company.knowledge_sharing_backend.dto.request.DocumentSearchRequest;
 import com.company.knowledge_sharing_backend.dto.response.DocumentDetailResponse;
 import com.company.knowledge_sharing_backend.dto.response.DocumentResponse;
 import com.company.knowledge_sharing_backend.dto.response.DocumentVersionResponse;
 import com.company.knowledge_sharing_backend.dto.response.MessageResponse;
+import com.company.knowledge_sharing_backend.dto.response.ProcessingStageResponse;
+import com.company.knowledge_sharing_backend.config.StreamingUploadReader;
+import com.company.knowledge_sharing_backend.entity.ProcessingStage;
 import com.company.knowledge_sharing_backend.entity.User;
 import com.company.knowledge_sharing_backend.service.AuthService;
+import com.company.knowledge_sharing_backend.service.DocumentPipelineService;
+import com.company.knowledge_sharing_backend.service.DocumentPreviewService;
 import com.company.knowledge_sharing_backend.service.DocumentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -17,13 +21,19 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import jakarta.validation.Valid;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("/api/documents")
@@ -31,19 +41,34 @@ import java.util.List;
 @SecurityRequirement(name = "bearerAuth")
 public class DocumentController {
 
+    // Preview pages are escaped text only; forbid scripts and remote loads as a second line of defence
+    private static final String PREVIEW_CONTENT_SECURITY_POLICY = "default-src 'none'; style-src 'unsafe-inline'; sandbox";
+
     @Autowired
     private DocumentService documentService;
 
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private DocumentPipelineService documentPipelineService;
+
+    @Autowired
+    private DocumentPreviewService documentPreviewService;
+
+    @Autowired
+    private StreamingUploadReader streamingUploadReader;
+
     /**
      * Create new document
      * POST /api/documents
      */
     @Operation(
         summary = "Upload new document",
-        description = "Upload a new document with metadata and file"
+        description = "Upload a new document as multipart/form-data: part \"data\" (DocumentRequest JSON) "
+                + "followed by part \"file\" (PDF, DOC, or Image). The file is streamed into storage, so "
+                + "\"data\" must come first. Files above the multipart limit are uploaded in chunks via "
+                + "/api/uploads first and referenced by data.uploadId, with no file part."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Document uploaded successfully",
@@ -53,15 +78,12 @@ public class DocumentController {
         @ApiResponse(responseCode = "401", description = "Unauthorized",
                 content = @Content)
     })
-    @PostMapping
-    public ResponseEntity<DocumentResponse> createDocument(
-            @Parameter(description = "Document metadata")
-            @RequestPart("data") @Valid DocumentRequest request,
-            @Parameter(description = "Document file (PDF, DOC, or Image)")
-            @RequestPart("file") MultipartFile file) {
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<DocumentResponse> createDocument(HttpServletRequest servletRequest) {
 
         User currentUser = authService.getCurrentUser();
-        DocumentResponse response = documentService.createDocument(request, file, currentUser.getId());
+        DocumentResponse response = streamingUploadReader.read(servletRequest,
+                (request, file) -> documentService.createDocument(request, file, currentUser.getId()));
 
         return ResponseEntity.ok(response);
     }
@@ -72,7 +94,8 @@ public class DocumentController {
      */
     @Operation(
         summary = "Update document",
-        description = "Update document metadata and optionally upload new file version"
+        description = "Update document metadata and optionally upload new file version. Same parts as "
+                + "upload: \"data\" first, then the optional \"file\"."
     )
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Document updated successfully"),
@@ -80,16 +103,15 @@ public class DocumentController {
         @ApiResponse(responseCode = "403", description = "Not document owner"),
         @ApiResponse(responseCode = "404", description = "Document not found")
     })
-    @PutMapping("/{id}")
+    @PutMapping(value = "/{id}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<DocumentResponse> updateDocument(
             @Parameter(description = "Document ID")
             @PathVariable Long id,
-            @RequestPart("data") @Valid DocumentRequest request,
-            @Parameter(description = "New file version (optional)")
-            @RequestPart(value = "file", required = false) MultipartFile file) {
+            HttpServletRequest servletRequest) {
 
         User currentUser = authService.getCurrentUser();
-        DocumentResponse response = documentService.updateDocument(id, request, file, currentUser.getId());
+        DocumentResponse response = streamingUploadReader.read(servletRequest,
+                (request, file) -> documentService.updateDocument(id, request, file, currentUser.getId()));
 
         return ResponseEntity.ok(response);
     }
@@ -232,5 +254,99 @@ public class DocumentController {
 
         return ResponseEntity.ok(relatedDocuments);
     }
-}
 
+    /**
+     * Get HTML preview page
+     * GET /api/documents/{id}/preview?page=1
+     */
+    @Operation(
+        summary = "Get document preview",
+        description = "Get one page of the pre-rendered HTML preview of a DOC/DOCX file. "
+                + "Sent gzip-encoded as stored when the client accepts gzip."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Preview page retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Not a Word document or page out of range"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "403", description = "Access denied"),
+        @ApiResponse(responseCode = "404", description = "Document not found or preview not ready yet")
+    })
+    @GetMapping("/{id}/preview")
+    public ResponseEntity<Resource> getDocumentPreview(
+            @Parameter(description = "Document ID")
+            @PathVariable Long id,
+            @Parameter(description = "Page number, starting at 1")
+            @RequestParam(defaultValue = "1") int page,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
+            throws IOException {
+
+        User currentUser = authService.getCurrentUser();
+        DocumentPreviewService.PreviewPage preview = documentPreviewService.getPreviewPage(id, page, currentUser.getId());
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .header("Content-Security-Policy", PREVIEW_CONTENT_SECURITY_POLICY)
+                .header("X-Content-Type-Options", "nosniff")
+                .header("X-Preview-Page", String.valueOf(preview.page()))
+                .header("X-Preview-Total-Pages", String.valueOf(preview.totalPages()));
+
+        // Stored compressed: pass the bytes through, decompress only for clients that cannot take gzip
+        if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            return builder
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(preview.gzipContent());
+        }
+        return builder.body(new InputStreamResource(new GZIPInputStream(preview.gzipContent().getInputStream())));
+    }
+
+    /**
+     * Get processing pipeline state
+     * GET /api/documents/{id}/processing
+     */
+    @Operation(
+        summary = "Get processing status",
+        description = "Get the state of each post-upload processing stage (owner only)"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Processing status retrieved successfully"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "403", description = "Not document owner"),
+        @ApiResponse(responseCode = "404", description = "Document not found")
+    })
+    @GetMapping("/{id}/processing")
+    public ResponseEntity<List<ProcessingStageResponse>> getProcessingStatus(@PathVariable Long id) {
+        User currentUser = authService.getCurrentUser();
+        List<ProcessingStageResponse> stages = documentPipelineService.getStages(id, currentUser.getId());
+
+        return ResponseEntity.ok(stages);
+    }
+
+    /**
+     * Retry a processing stage
+     * POST /api/documents/{id}/processing/{stage}/retry
+     */
+    @Operation(
+        summary = "Retry processing stage",
+        description = "Run a finished or failed processing stage again, followed by the stages after it (owner only)"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stage scheduled"),
+        @ApiResponse(responseCode = "400", description = "Stage not reached yet or already in progress"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "403", description = "Not document owner"),
+        @ApiResponse(responseCode = "404", description = "Document not found")
+    })
+    @PostMapping("/{id}/processing/{stage}/retry")
+    public ResponseEntity<ProcessingStageResponse> retryProcessingStage(
+            @Parameter(description = "Document ID")
+            @PathVariable Long id,
+            @Parameter(description = "Stage name, e.g. EXTRACT_TEXT, SUMMARIZE, EMBED, AUTO_TAG, NOTIFY")
+            @PathVariable ProcessingStage stage) {
+
+        User currentUser = authService.getCurrentUser();
+        ProcessingStageResponse response = documentPipelineService.retryStage(id, stage, currentUser.getId());
+
+        return ResponseEntity.ok(response);
+    }
+}
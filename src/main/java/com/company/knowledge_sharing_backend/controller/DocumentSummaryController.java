@@ -14,6 +14,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/documents")
 @Tag(name = "Document Summary", description = "AI-powered document summary generation (preview)")
@@ -44,17 +46,16 @@ public class DocumentSummaryController {
         @ApiResponse(responseCode = "500", description = "Text extraction or GPT API failed")
     })
     @PostMapping("/preview-summary")
-    public ResponseEntity<SummaryResponse> generateSummary(
+    public CompletableFuture<ResponseEntity<SummaryResponse>> generateSummary(
             @Parameter(description = "File to analyze (PDF, DOC, DOCX, XLS, XLSX, PPT, PPTX, TXT)")
             @RequestParam("file") MultipartFile file) {
 
         // Get current authenticated user
         User currentUser = authService.getCurrentUser();
 
-        // Generate summary (rate limiting applied)
-        SummaryResponse response = documentSummaryService.generateSummary(file, currentUser.getId());
-
-        return ResponseEntity.ok(response);
+        // Generate summary (rate limiting applied); the worker thread is released while Gemini responds
+        return documentSummaryService.generateSummaryAsync(file, currentUser.getId())
+                .thenApply(ResponseEntity::ok);
     }
 }
 
@@ -1,60 +1,280 @@
 package com.company.knowledge_sharing_backend.controller;
 
+import com.company.knowledge_sharing_backend.exception.ResourceNotFoundException;
 import com.company.knowledge_sharing_backend.service.FileStorageService;
+import com.company.knowledge_sharing_backend.service.ThumbnailService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/files")
 @Tag(name = "Files", description = "File download endpoints (public access)")
 public class FileController {
 
+    // Tomcat serves these request attributes with sendfile(2) once the servlet returns
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Content-addressed files never change under the same name
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private ThumbnailService thumbnailService;
+
     /**
      * Download file
      * GET /api/files/{fileName}
      */
     @Operation(
         summary = "Download file",
-        description = "Download document file by filename (public access)"
+        description = "Download document file by filename (public access). Supports single byte ranges "
+                + "(206), If-Range, If-None-Match and If-Modified-Since. Files stored compressed are sent "
+                + "with Content-Encoding: gzip to clients that accept it, decompressed otherwise."
     )
     @GetMapping("/{fileName:.+}")
-    public ResponseEntity<Resource> downloadFile(
+    public void downloadFile(
             @Parameter(description = "File name to download")
             @PathVariable String fileName,
-            HttpServletRequest request) {
-        // Load file as Resource
-        Resource resource = fileStorageService.loadFileAsResource(fileName);
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        FileStorageService.FileInfo file = fileStorageService.getFileInfo(fileName);
+        long lastModified = file.lastModified().truncatedTo(ChronoUnit.SECONDS).toEpochMilli();
 
-        // Try to determine file's content type
-        String contentType = null;
-        try {
-            contentType = request.getServletContext().getMimeType(resource.getFile().getAbsolutePath());
-        } catch (IOException ex) {
-            // Ignore
+        // Stored bytes go out as-is when the client takes the encoding. Ranges always address
+        // the original bytes: clients resuming or seeking in a PDF expect offsets into those.
+        boolean sendEncoded = file.encoded()
+                && request.getHeader(HttpHeaders.RANGE) == null
+                && acceptsEncoding(request, file.contentEncoding());
+        String etag = sendEncoded ? encodedETag(file) : file.etag();
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        if (file.immutable()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL);
+        }
+        if (file.encoded()) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
         }
 
-        // Fallback to default content type
-        if (contentType == null) {
-            contentType = "application/octet-stream";
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = (sendEncoded ? file.storedSize() : file.size()) - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && isRangeApplicable(request, file.etag(), lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+
+            // Multiple ranges are answered with the whole file, which HTTP allows
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                try {
+                    start = range.getRangeStart(file.size());
+                    end = range.getRangeEnd(file.size());
+                } catch (IllegalArgumentException e) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.size());
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + file.size());
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentType(file.contentType());
+        response.setContentLengthLong(length);
+        if (sendEncoded) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, file.contentEncoding());
+        }
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+
+        if ("HEAD".equals(request.getMethod()) || length <= 0) {
+            return;
+        }
+
+        if (file.encoded() && !sendEncoded) {
+            // Client without gzip support, or a range: decompress on the fly
+            try (InputStream in = fileStorageService.openRange(file, start, end)) {
+                OutputStream out = response.getOutputStream();
+                in.transferTo(out);
+                out.flush();
+            }
+            return;
+        }
+
+        if (file.path() == null) {
+            // Remote store: relay a ranged read of just the requested bytes
+            try (InputStream in = fileStorageService.openStoredRange(file, start, end)) {
+                OutputStream out = response.getOutputStream();
+                in.transferTo(out);
+                out.flush();
+            }
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        // No sendfile: FileChannel.transferTo still avoids copying through a user-space buffer where the OS allows
+        try (FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Download thumbnail
+     * GET /api/files/{fileName}/thumbnail
+     */
+    @Operation(
+        summary = "Download thumbnail",
+        description = "JPEG thumbnail of an image or PDF first page (public access). "
+                + "Available once background processing has run; immutable, cache for a year."
+    )
+    @GetMapping("/{fileName:.+}/thumbnail")
+    public ResponseEntity<Resource> downloadThumbnail(
+            @Parameter(description = "File name of the original")
+            @PathVariable String fileName,
+            @Parameter(description = "Thumbnail size: SMALL (160px) or MEDIUM (480px)")
+            @RequestParam(defaultValue = "SMALL") ThumbnailService.ThumbnailSize size,
+            WebRequest webRequest) throws IOException {
+        // Derived from the original's name, which for stored blobs is its content hash
+        String etag = "\"" + fileName + "-" + size.name().toLowerCase() + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null;
         }
 
+        Resource thumbnail = thumbnailService.getThumbnail(fileName, size)
+                .orElseThrow(() -> new ResourceNotFoundException("Thumbnail not found for " + fileName));
+
         return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getFilename() + "\"")
-                .body(resource);
+                .contentType(MediaType.parseMediaType(ThumbnailService.CONTENT_TYPE))
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .eTag(etag)
+                .body(thumbnail);
     }
-}
 
+    /**
+     * Whether Accept-Encoding lists the coding (or *) without q=0
+     */
+    private boolean acceptsEncoding(HttpServletRequest request, String encoding) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.trim().split(";");
+            String coding = parts[0].trim();
+            if (!coding.equalsIgnoreCase(encoding) && !coding.equals("*")) {
+                continue;
+            }
+            boolean refused = Arrays.stream(parts).skip(1)
+                    .map(String::trim)
+                    .anyMatch(parameter -> parameter.matches("[qQ]=0(\\.0{0,3})?"));
+            if (!refused) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The encoded representation has different bytes, so it gets its own validator
+     */
+    private String encodedETag(FileStorageService.FileInfo file) {
+        String etag = file.etag();
+        return etag.substring(0, etag.length() - 1) + "-" + file.contentEncoding() + "\"";
+    }
+
+    /**
+     * If-None-Match wins over If-Modified-Since (RFC 9110 13.2.2)
+     */
+    private boolean isNotModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return Arrays.stream(ifNoneMatch.split(","))
+                    .map(String::trim)
+                    .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                    .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+        }
+
+        long ifModifiedSince = parseDateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * A Range request with If-Range is honored only if the validator still matches
+     */
+    private boolean isRangeApplicable(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        long ifRangeDate = parseDateHeader(request, HttpHeaders.IF_RANGE);
+        return ifRangeDate != -1 && lastModified == ifRangeDate;
+    }
+
+    private long parseDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
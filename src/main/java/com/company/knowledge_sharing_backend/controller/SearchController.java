@@ -19,6 +19,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/search")
@@ -188,7 +189,7 @@ public class SearchController {
         @ApiResponse(responseCode = "500", description = "AI service error")
     })
     @GetMapping("/semantic")
-    public ResponseEntity<List<DocumentResponse>> semanticSearch(
+    public CompletableFuture<ResponseEntity<List<DocumentResponse>>> semanticSearch(
             @Parameter(description = "Search query (natural language)", example = "machine learning best practices")
             @RequestParam("q") String query,
             @Parameter(description = "Maximum number of results (max: 50)", example = "10")
@@ -201,8 +202,9 @@ public class SearchController {
             limit = 10;
         }
 
-        List<DocumentResponse> results = semanticSearchService.semanticSearch(query, currentUser.getId(), limit);
-        return ResponseEntity.ok(results);
+        // Completes on the AI executor; no servlet thread waits on Gemini
+        return semanticSearchService.semanticSearchAsync(query, currentUser.getId(), limit)
+                .thenApply(ResponseEntity::ok);
     }
 }
 
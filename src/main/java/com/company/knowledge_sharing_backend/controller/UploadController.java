@@ -0,0 +1,148 @@
+package com.company.knowledge_sharing_backend.controller;
+
+import com.company.knowledge_sharing_backend.dto.request.InitiateUploadRequest;
+import com.company.knowledge_sharing_backend.dto.response.MessageResponse;
+import com.company.knowledge_sharing_backend.dto.response.UploadSessionResponse;
+import com.company.knowledge_sharing_backend.entity.User;
+import com.company.knowledge_sharing_backend.service.AuthService;
+import com.company.knowledge_sharing_backend.service.ChunkedUploadService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/uploads")
+@Tag(name = "Uploads", description = "Resumable chunked uploads for large files")
+@SecurityRequirement(name = "bearerAuth")
+public class UploadController {
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private AuthService authService;
+
+    /**
+     * Start a chunked upload
+     * POST /api/uploads
+     */
+    @Operation(
+        summary = "Start chunked upload",
+        description = "Register a file upload; the response gives the chunk size and count. Send the chunks, "
+                + "complete the upload, then create or update a document with data.uploadId."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Upload started"),
+        @ApiResponse(responseCode = "400", description = "File type not allowed or file too large"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @PostMapping
+    public ResponseEntity<UploadSessionResponse> initiateUpload(@Valid @RequestBody InitiateUploadRequest request) {
+        User currentUser = authService.getCurrentUser();
+        UploadSessionResponse response = chunkedUploadService.initiate(request, currentUser.getId());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Get upload state (to resume)
+     * GET /api/uploads/{uploadId}
+     */
+    @Operation(
+        summary = "Get chunked upload state",
+        description = "Received and missing chunks; resume by sending the missing ones"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Upload state retrieved"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "404", description = "Upload not found or expired")
+    })
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadSessionResponse> getUpload(@PathVariable String uploadId) {
+        User currentUser = authService.getCurrentUser();
+        UploadSessionResponse response = chunkedUploadService.getSession(uploadId, currentUser.getId());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Upload one chunk
+     * PUT /api/uploads/{uploadId}/chunks/{index}
+     */
+    @Operation(
+        summary = "Upload chunk",
+        description = "Raw chunk bytes at offset index * chunkSize. Every chunk is chunkSize bytes except the last. "
+                + "Chunks may be sent in any order and in parallel; re-sending one replaces it."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Chunk stored"),
+        @ApiResponse(responseCode = "400", description = "Wrong length, checksum mismatch or upload already complete"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "404", description = "Upload not found or expired")
+    })
+    @PutMapping(value = "/{uploadId}/chunks/{index}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSessionResponse> uploadChunk(
+            @PathVariable String uploadId,
+            @Parameter(description = "Chunk index, from 0")
+            @PathVariable int index,
+            @Parameter(description = "SHA-256 of the chunk bytes (hex)")
+            @RequestHeader("X-Chunk-Sha256") String sha256,
+            HttpServletRequest request) throws IOException {
+
+        User currentUser = authService.getCurrentUser();
+        UploadSessionResponse response = chunkedUploadService.writeChunk(
+                uploadId, index, sha256, request.getInputStream(), currentUser.getId());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Complete an upload
+     * POST /api/uploads/{uploadId}/complete
+     */
+    @Operation(
+        summary = "Complete chunked upload",
+        description = "Check that every chunk arrived and, if a SHA-256 was given, that the file matches it; "
+            + "the upload can then be attached to a document. On a mismatch every chunk must be sent again"
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Upload complete"),
+        @ApiResponse(responseCode = "400", description = "Chunks missing or file does not match its SHA-256"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "404", description = "Upload not found or expired")
+    })
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<UploadSessionResponse> completeUpload(@PathVariable String uploadId) {
+        User currentUser = authService.getCurrentUser();
+        UploadSessionResponse response = chunkedUploadService.complete(uploadId, currentUser.getId());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Abort an upload
+     * DELETE /api/uploads/{uploadId}
+     */
+    @Operation(
+        summary = "Abort chunked upload",
+        description = "Discard the upload and the chunks received so far"
+    )
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<MessageResponse> abortUpload(@PathVariable String uploadId) {
+        User currentUser = authService.getCurrentUser();
+        chunkedUploadService.abort(uploadId, currentUser.getId());
+
+        return ResponseEntity.ok(new MessageResponse("Upload aborted"));
+    }
+}
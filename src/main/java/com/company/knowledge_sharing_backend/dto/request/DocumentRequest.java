@@ -30,5 +30,7 @@ public class DocumentRequest {
     private List<Long> groupIds; // Required if sharingLevel is GROUP
 
     private String changeNotes; // For versioning on update
+
+    private String uploadId; // Completed chunked upload to use instead of the file part
 }
 
@@ -31,6 +31,10 @@ public class DocumentResponse {
     @Schema(description = "File path on server", example = "abc123.pdf")
     private String filePath;
 
+    @Schema(description = "Thumbnail URL for images and PDFs (null for other types)",
+            example = "/api/files/abc123.pdf/thumbnail")
+    private String thumbnailUrl;
+
     @Schema(description = "File type", example = "PDF", allowableValues = {"PDF", "DOC", "IMAGE"})
     private String fileType;
 
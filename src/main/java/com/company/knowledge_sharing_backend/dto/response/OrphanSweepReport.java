@@ -0,0 +1,27 @@
+package com.company.knowledge_sharing_backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrphanSweepReport {
+    private boolean dryRun;
+    private LocalDateTime startedAt;
+    private long durationMillis;
+    private long referencedPaths;
+    private long scannedFiles;
+    private long orphanFiles;
+    private long orphanBytes;
+    private long deletedFiles;
+    private long deletedBytes;
+    private boolean limitReached;
+    private List<String> sampleOrphans;
+}
@@ -0,0 +1,26 @@
+package com.company.knowledge_sharing_backend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSessionResponse {
+    private String uploadId;
+    private String fileName;
+    private Long totalSize;
+    private Integer chunkSize;
+    private Integer chunkCount;
+    private List<Integer> receivedChunks;
+    private List<Integer> missingChunks;
+    private Long receivedBytes;
+    private String status;
+    private LocalDateTime expiresAt;
+}
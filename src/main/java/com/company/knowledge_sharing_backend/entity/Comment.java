@@ -20,6 +20,7 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(DocumentChangeListener.class)
 public class Comment extends BaseEntity {
 
     @Id
@@ -15,6 +15,7 @@ import lombok.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(DocumentChangeListener.class)
 public class CommentLike extends BaseEntity {
 
     @Id
@@ -14,13 +14,15 @@ import java.util.Set;
     @Index(name = "idx_document_title", columnList = "title"),
     @Index(name = "idx_document_owner", columnList = "owner_id"),
     @Index(name = "idx_document_sharing", columnList = "sharing_level"),
-    @Index(name = "idx_document_created", columnList = "created_at")
+    @Index(name = "idx_document_created", columnList = "created_at"),
+    @Index(name = "idx_document_rating", columnList = "rating_avg, rating_count")
 })
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(DocumentChangeListener.class)
 public class Document extends BaseEntity {
 
     @Id
@@ -52,6 +54,10 @@ public class Document extends BaseEntity {
     @Column(name = "file_size")
     private Long fileSize;
 
+    // SHA-256 of the stored file, computed while it was written (null for legacy uploads)
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @NotNull(message = "Sharing level is required")
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 20, name = "sharing_level")
@@ -66,6 +72,21 @@ public class Document extends BaseEntity {
     @Builder.Default
     private Boolean isArchived = false;
 
+    // Rating aggregates. Only changed by SQL increments (DocumentRepository.adjustRatingAggregates),
+    // never written back from the entity, so a document save cannot undo a concurrent rating.
+    @Column(name = "rating_sum", nullable = false, updatable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    @Builder.Default
+    private Long ratingSum = 0L;
+
+    @Column(name = "rating_count", nullable = false, updatable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    @Builder.Default
+    private Integer ratingCount = 0;
+
+    // Maintained by MySQL from the two columns above; indexed for rating sorts
+    @Column(name = "rating_avg", insertable = false, updatable = false,
+            columnDefinition = "DOUBLE GENERATED ALWAYS AS (IF(rating_count > 0, rating_sum / rating_count, 0)) STORED")
+    private Double ratingAverage;
+
     // AI Semantic Search - Store embedding as JSON string
     @Lob
     @Column(name = "content_embedding", columnDefinition = "TEXT")
@@ -116,18 +137,10 @@ public class Document extends BaseEntity {
 
     @Transient
     public Double getAverageRating() {
-        if (ratings == null || ratings.isEmpty()) {
+        if (ratingCount == null || ratingCount == 0) {
             return 0.0;
         }
-        return ratings.stream()
-                .mapToInt(Rating::getRatingValue)
-                .average()
-                .orElse(0.0);
-    }
-
-    @Transient
-    public Integer getRatingCount() {
-        return ratings != null ? ratings.size() : 0;
+        return (double) ratingSum / ratingCount;
     }
 
     // Helper methods
@@ -0,0 +1,41 @@
+package com.company.knowledge_sharing_backend.entity;
+
+import com.company.knowledge_sharing_backend.service.ContentVersionService;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bumps document ETag watermarks whenever an entity shown in document responses changes
+ */
+@Component
+public class DocumentChangeListener {
+
+    @Autowired
+    @Lazy
+    private ContentVersionService contentVersionService;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof Document document) {
+            contentVersionService.documentChanged(document.getId());
+        } else if (entity instanceof DocumentVersion version) {
+            contentVersionService.documentChanged(version.getDocument().getId());
+        } else if (entity instanceof Rating rating) {
+            contentVersionService.documentChanged(rating.getDocument().getId());
+        } else if (entity instanceof Favorite favorite) {
+            contentVersionService.documentChanged(favorite.getDocument().getId());
+        } else if (entity instanceof Comment comment) {
+            contentVersionService.documentChanged(comment.getDocument().getId());
+        } else if (entity instanceof CommentLike like) {
+            contentVersionService.documentChanged(like.getComment().getDocument().getId());
+        } else {
+            contentVersionService.documentsChanged();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.company.knowledge_sharing_backend.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Normalized full text extracted from the file of one document version. Stored once, as plain
+ * text, because keyword search matches it through a MySQL FULLTEXT index.
+ */
+@Entity
+@Table(name = "document_texts", indexes = {
+    @Index(name = "idx_text_content_hash", columnList = "content_hash")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentText extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // SHA-256 of the stored file; unchanged files are never extracted twice
+    @NotNull
+    @Column(nullable = false, name = "content_hash", length = 64)
+    private String contentHash;
+
+    @NotNull
+    @Column(nullable = false, name = "extractor_version")
+    private Integer extractorVersion;
+
+    // FULLTEXT index ft_document_text is created at startup (JPA cannot declare one)
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(nullable = false, name = "search_text", columnDefinition = "MEDIUMTEXT")
+    private String text;
+
+    @Column(nullable = false, name = "char_count")
+    private Integer charCount;
+
+    // Relationships
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "version_id", nullable = false, unique = true)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private DocumentVersion version;
+}
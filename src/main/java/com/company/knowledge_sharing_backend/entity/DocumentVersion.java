@@ -16,6 +16,7 @@ import lombok.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(DocumentChangeListener.class)
 public class DocumentVersion extends BaseEntity {
 
     @Id
@@ -38,6 +39,10 @@ public class DocumentVersion extends BaseEntity {
     @Column(nullable = false, name = "file_path")
     private String filePath;
 
+    // SHA-256 of the version's file (null for legacy uploads)
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     // Relationships
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -15,6 +15,7 @@ import lombok.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@EntityListeners(DocumentChangeListener.class)
 public class Favorite extends BaseEntity {
 
     @Id
@@ -0,0 +1,20 @@
+package com.company.knowledge_sharing_backend.entity;
+
+public enum ProcessingStage {
+    STORE,          // File durably stored (completed by the upload request)
+    THUMBNAIL,      // Image / PDF first page thumbnails rendered
+    PREVIEW,        // Paginated HTML preview of Word documents rendered
+    EXTRACT_TEXT,   // Full text extracted from the stored file
+    SUMMARIZE,      // Summary generated when the owner left it empty
+    EMBED,          // Semantic search embedding generated
+    AUTO_TAG,       // Existing tags found in the text attached
+    NOTIFY;         // Interested users notified
+
+    /**
+     * Stage that runs after this one, or null at the end of the pipeline
+     */
+    public ProcessingStage next() {
+        ProcessingStage[] stages = values();
+        return ordinal() + 1 < stages.length ? stages[ordinal() + 1] : null;
+    }
+}
@@ -0,0 +1,9 @@
+package com.company.knowledge_sharing_backend.entity;
+
+public enum StageStatus {
+    PENDING,    // Waiting for a worker (or for its retry time)
+    RUNNING,    // Claimed by a worker
+    SUCCEEDED,  // Completed with a result
+    SKIPPED,    // Nothing to do (e.g. summary already provided)
+    FAILED      // Failed after all attempts
+}
@@ -0,0 +1,59 @@
+package com.company.knowledge_sharing_backend.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A content-addressed file in the upload store. Named {@code <sha256>.<ext>} and shared by
+ * every document version with identical bytes; deleted once no version references it.
+ */
+@Entity
+@Table(name = "stored_blobs", indexes = {
+    @Index(name = "idx_blob_ref_count", columnList = "ref_count, released_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StoredBlob extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Column(nullable = false, unique = true, name = "file_name", length = 80)
+    private String fileName;
+
+    @NotNull
+    @Column(nullable = false, name = "content_hash", length = 64)
+    private String contentHash;
+
+    // Size of the original bytes; content hash, ranges and Content-Length refer to these
+    @Column(nullable = false)
+    private Long size;
+
+    // Codec the bytes are stored with ("gzip"), null when stored as uploaded
+    @Column(name = "content_encoding", length = 16)
+    private String contentEncoding;
+
+    // Size in the blob store, differs from size when encoded
+    @Column(name = "stored_size")
+    private Long storedSize;
+
+    // Determined once at upload, so downloads don't probe the file type
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    // Number of document versions whose file this is
+    @Column(nullable = false, name = "ref_count")
+    private Integer refCount;
+
+    // When the count last dropped; garbage collection waits a grace period after this
+    @Column(name = "released_at")
+    private LocalDateTime releasedAt;
+}
@@ -0,0 +1,75 @@
+package com.company.knowledge_sharing_backend.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * A chunked upload in progress. Each chunk is staged in the blob store under its own key, so
+ * chunks can arrive in any order, in parallel and at any node; the bitmap records which ones
+ * were verified.
+ */
+@Entity
+@Table(name = "upload_sessions", indexes = {
+    @Index(name = "idx_upload_expires", columnList = "expires_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSession extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Random handle given to the client; ids are not guessable
+    @NotNull
+    @Column(nullable = false, unique = true, name = "upload_id", length = 36)
+    private String uploadId;
+
+    @NotNull
+    @Column(nullable = false, name = "file_name")
+    private String fileName;
+
+    @NotNull
+    @Column(nullable = false, name = "total_size")
+    private Long totalSize;
+
+    @NotNull
+    @Column(nullable = false, name = "chunk_size")
+    private Integer chunkSize;
+
+    @NotNull
+    @Column(nullable = false, name = "chunk_count")
+    private Integer chunkCount;
+
+    // Optional SHA-256 of the whole file, checked when the upload is attached
+    @Column(length = 64)
+    private String sha256;
+
+    // One bit per chunk (java.util.BitSet layout)
+    @Column(name = "received_chunks", length = 1024)
+    private byte[] receivedChunks;
+
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private UploadStatus status;
+
+    @NotNull
+    @Column(nullable = false, name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    // Relationships
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "owner_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User owner;
+}
@@ -0,0 +1,7 @@
+package com.company.knowledge_sharing_backend.entity;
+
+public enum UploadStatus {
+    UPLOADING,  // Accepting chunks
+    VERIFYING,  // Every chunk received; whole-file SHA-256 being checked
+    COMPLETE    // Every chunk received and verified; waiting to be attached to a document
+}
@@ -0,0 +1,57 @@
+package com.company.knowledge_sharing_backend.repository;
+
+import com.company.knowledge_sharing_backend.entity.DocumentProcessingStage;
+import com.company.knowledge_sharing_backend.entity.ProcessingStage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DocumentProcessingStageRepository extends JpaRepository<DocumentProcessingStage, Long> {
+
+    /**
+     * Find all stage states of a document
+     */
+    List<DocumentProcessingStage> findByDocumentId(Long documentId);
+
+    /**
+     * Find state of one stage of a document
+     */
+    Optional<DocumentProcessingStage> findByDocumentIdAndStage(Long documentId, ProcessingStage stage);
+
+    /**
+     * Find stages the resume job should submit: pending and due, or running but abandoned
+     */
+    @Query("SELECT s.id FROM DocumentProcessingStage s " +
+           "WHERE (s.status = com.company.knowledge_sharing_backend.entity.StageStatus.PENDING AND s.nextAttemptAt <= :now) " +
+           "OR (s.status = com.company.knowledge_sharing_backend.entity.StageStatus.RUNNING AND s.startedAt < :staleBefore) " +
+           "ORDER BY s.id")
+    List<Long> findResumableIds(@Param("now") LocalDateTime now,
+                                @Param("staleBefore") LocalDateTime staleBefore,
+                                Pageable pageable);
+
+    /**
+     * Claim a stage for execution. Returns 0 if another worker already owns it.
+     */
+    @Modifying
+    @Query("UPDATE DocumentProcessingStage s " +
+           "SET s.status = com.company.knowledge_sharing_backend.entity.StageStatus.RUNNING, " +
+           "s.attempts = s.attempts + 1, s.startedAt = :now, s.finishedAt = NULL " +
+           "WHERE s.id = :id AND (s.status = com.company.knowledge_sharing_backend.entity.StageStatus.PENDING " +
+           "OR (s.status = com.company.knowledge_sharing_backend.entity.StageStatus.RUNNING AND s.startedAt < :staleBefore))")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    /**
+     * Delete all stage states of a document (a new version restarts the pipeline)
+     */
+    @Modifying
+    @Query("DELETE FROM DocumentProcessingStage s WHERE s.document.id = :documentId")
+    void deleteByDocumentId(@Param("documentId") Long documentId);
+}
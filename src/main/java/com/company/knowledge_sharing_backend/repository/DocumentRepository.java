@@ -3,16 +3,22 @@ package com.company.knowledge_sharing_backend.repository;
 import com.company.knowledge_sharing_backend.entity.Document;
 import com.company.knowledge_sharing_backend.entity.SharingLevel;
 import com.company.knowledge_sharing_backend.entity.Tag;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface DocumentRepository extends JpaRepository<Document, Long>,
@@ -51,15 +57,46 @@ public interface DocumentRepository extends JpaRepository<Document, Long>,
     /**
      * Find top N popular documents by rating (not archived) - Optimized with owner fetch
      */
-    @Query("SELECT DISTINCT d FROM Document d " +
+    @Query("SELECT d FROM Document d " +
            "LEFT JOIN FETCH d.owner " +
-           "LEFT JOIN d.ratings r " +
            "WHERE d.isArchived = false " +
-           "GROUP BY d.id, d.owner " +
-           "ORDER BY AVG(r.ratingValue) DESC, COUNT(r.id) DESC " +
+           "ORDER BY d.ratingAverage DESC, d.ratingCount DESC, d.id DESC " +
            "LIMIT :limit")
     List<Document> findTopPopularDocuments(@Param("limit") int limit);
 
+    /**
+     * Apply a rating change to the aggregates in one statement, so concurrent raters never lose an update
+     */
+    @Modifying
+    @Query(value = "UPDATE documents SET rating_sum = rating_sum + :sumDelta, rating_count = rating_count + :countDelta " +
+                   "WHERE id = :documentId",
+           nativeQuery = true)
+    int adjustRatingAggregates(@Param("documentId") Long documentId,
+                               @Param("sumDelta") long sumDelta,
+                               @Param("countDelta") int countDelta);
+
+    /**
+     * Take a user's ratings out of the aggregates (before the user and their ratings are deleted)
+     */
+    @Modifying
+    @Query(value = "UPDATE documents d JOIN ratings r ON r.document_id = d.id " +
+                   "SET d.rating_sum = d.rating_sum - r.rating_value, d.rating_count = d.rating_count - 1 " +
+                   "WHERE r.user_id = :userId",
+           nativeQuery = true)
+    int removeUserRatingsFromAggregates(@Param("userId") Long userId);
+
+    /**
+     * Recompute the aggregates from the ratings table where they differ (backfill and repair)
+     */
+    @Modifying
+    @Query(value = "UPDATE documents d LEFT JOIN (" +
+                   "SELECT document_id, SUM(rating_value) AS total, COUNT(*) AS cnt FROM ratings GROUP BY document_id" +
+                   ") r ON r.document_id = d.id " +
+                   "SET d.rating_sum = COALESCE(r.total, 0), d.rating_count = COALESCE(r.cnt, 0) " +
+                   "WHERE d.rating_sum <> COALESCE(r.total, 0) OR d.rating_count <> COALESCE(r.cnt, 0)",
+           nativeQuery = true)
+    int reconcileRatingAggregates();
+
     /**
      * Find documents by tag
      */
@@ -82,6 +119,19 @@ public interface DocumentRepository extends JpaRepository<Document, Long>,
            "d.content LIKE CONCAT('%', :keyword, '%'))")
     Page<Document> searchByKeyword(@Param("keyword") String keyword, Pageable pageable);
 
+    /**
+     * As searchByKeyword, also matching documents whose file text matched (ids from the FULLTEXT index)
+     */
+    @Query("SELECT d FROM Document d WHERE " +
+           "d.isArchived = false AND " +
+           "(d.title LIKE CONCAT('%', :keyword, '%') OR " +
+           "d.summary LIKE CONCAT('%', :keyword, '%') OR " +
+           "d.content LIKE CONCAT('%', :keyword, '%') OR " +
+           "d.id IN :textMatchIds)")
+    Page<Document> searchByKeywordOrText(@Param("keyword") String keyword,
+                                         @Param("textMatchIds") Collection<Long> textMatchIds,
+                                         Pageable pageable);
+
     /**
      * Advanced search with multiple filters - using native query
      */
@@ -154,5 +204,36 @@ public interface DocumentRepository extends JpaRepository<Document, Long>,
            "GROUP BY d.id, d.owner " +
            "ORDER BY COUNT(t.id) DESC, d.createdAt DESC")
     List<Document> findRelatedByTags(@Param("documentId") Long documentId, @Param("tags") List<Tag> tags, Pageable pageable);
-}
 
+    /**
+     * Stream the current file names of all documents, row by row (MySQL streaming result set; needs a transaction)
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT d.filePath FROM Document d")
+    Stream<String> streamAllFilePaths();
+
+    /**
+     * Whether any document references the file
+     */
+    boolean existsByFilePath(String filePath);
+
+    /**
+     * Tag names of several documents as [documentId, tagName] rows, in name order
+     */
+    @Query("SELECT d.id, t.name FROM Document d JOIN d.tags t WHERE d.id IN :ids ORDER BY t.name")
+    List<Object[]> findTagNamesByDocumentIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Group ids of several documents as [documentId, groupId] rows, read from the join table alone
+     */
+    @Query(value = "SELECT document_id, group_id FROM document_groups WHERE document_id IN (:ids) ORDER BY group_id",
+           nativeQuery = true)
+    List<Object[]> findGroupIdsByDocumentIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Ids of active documents without an embedding, after the given id, in id order
+     */
+    @Query("SELECT d.id FROM Document d WHERE d.id > :afterId AND d.isArchived = false " +
+           "AND (d.contentEmbedding IS NULL OR LENGTH(d.contentEmbedding) = 0) ORDER BY d.id")
+    List<Long> findIdsWithoutEmbedding(@Param("afterId") Long afterId, Pageable pageable);
+}
@@ -0,0 +1,45 @@
+package com.company.knowledge_sharing_backend.repository;
+
+import com.company.knowledge_sharing_backend.entity.DocumentText;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DocumentTextRepository extends JpaRepository<DocumentText, Long> {
+
+    /**
+     * Find extracted text of a version
+     */
+    Optional<DocumentText> findByVersionId(Long versionId);
+
+    /**
+     * Find any text already extracted from identical file bytes
+     */
+    Optional<DocumentText> findFirstByContentHashAndExtractorVersion(String contentHash, Integer extractorVersion);
+
+    /**
+     * Find extracted text of the latest version of a document
+     */
+    @Query("SELECT t FROM DocumentText t WHERE t.version.document.id = :documentId " +
+           "ORDER BY t.version.versionNumber DESC LIMIT 1")
+    Optional<DocumentText> findLatestByDocumentId(@Param("documentId") Long documentId);
+
+
+    /**
+     * Ids of documents whose latest extracted text matches the keywords, most relevant first
+     * (MySQL FULLTEXT, natural language mode)
+     */
+    @Query(value = "SELECT v.document_id FROM document_texts t " +
+                   "JOIN document_versions v ON v.id = t.version_id " +
+                   "JOIN documents d ON d.id = v.document_id AND d.version_number = v.version_number " +
+                   "WHERE MATCH(t.search_text) AGAINST (:keywords IN NATURAL LANGUAGE MODE) " +
+                   "ORDER BY MATCH(t.search_text) AGAINST (:keywords IN NATURAL LANGUAGE MODE) DESC " +
+                   "LIMIT :limit",
+           nativeQuery = true)
+    List<Long> findDocumentIdsMatching(@Param("keywords") String keywords, @Param("limit") int limit);
+}
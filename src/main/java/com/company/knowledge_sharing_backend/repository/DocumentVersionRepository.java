@@ -1,12 +1,16 @@
 package com.company.knowledge_sharing_backend.repository;
 
 import com.company.knowledge_sharing_backend.entity.DocumentVersion;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface DocumentVersionRepository extends JpaRepository<DocumentVersion, Long> {
@@ -36,5 +40,17 @@ public interface DocumentVersionRepository extends JpaRepository<DocumentVersion
      * Delete all versions of a document
      */
     void deleteByDocumentId(Long documentId);
+
+    /**
+     * Stream the file names of all versions, row by row (MySQL streaming result set; needs a transaction)
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT v.filePath FROM DocumentVersion v")
+    Stream<String> streamAllFilePaths();
+
+    /**
+     * Whether any version references the file
+     */
+    boolean existsByFilePath(String filePath);
 }
 
@@ -29,6 +29,12 @@ public interface GroupRepository extends JpaRepository<Group, Long> {
     @Query("SELECT g FROM Group g JOIN g.users u WHERE u.id = :userId")
     List<Group> findByUserId(@Param("userId") Long userId);
 
+    /**
+     * Ids of the groups a user belongs to (access checks over a page of documents)
+     */
+    @Query("SELECT g.id FROM Group g JOIN g.users u WHERE u.id = :userId")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
+
     /**
      * Find groups by user (alternative using containing)
      */
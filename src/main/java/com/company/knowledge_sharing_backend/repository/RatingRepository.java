@@ -1,7 +1,9 @@
 package com.company.knowledge_sharing_backend.repository;
 
 import com.company.knowledge_sharing_backend.entity.Rating;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -17,6 +19,13 @@ public interface RatingRepository extends JpaRepository<Rating, Long> {
      */
     Optional<Rating> findByDocumentIdAndUserId(Long documentId, Long userId);
 
+    /**
+     * Lock a user's rating, so the old value used for the document aggregates cannot change underneath
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Rating r WHERE r.document.id = :documentId AND r.user.id = :userId")
+    Optional<Rating> lockByDocumentIdAndUserId(@Param("documentId") Long documentId, @Param("userId") Long userId);
+
     /**
      * Check if user has rated a document
      */
@@ -0,0 +1,89 @@
+package com.company.knowledge_sharing_backend.repository;
+
+import com.company.knowledge_sharing_backend.entity.StoredBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, Long> {
+
+    /**
+     * Find blob by stored file name
+     */
+    Optional<StoredBlob> findByFileName(String fileName);
+
+    /**
+     * Lock a blob row; concurrent acquire() of the same file waits until the caller commits
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StoredBlob b WHERE b.fileName = :fileName")
+    Optional<StoredBlob> lockByFileName(@Param("fileName") String fileName);
+
+    /**
+     * Register a reference to a blob, creating it if new. The row lock is held until the
+     * caller's transaction ends, which keeps the garbage collector away from the file.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO stored_blobs (file_name, content_hash, size, content_type, ref_count, created_at, updated_at) " +
+                   "VALUES (:fileName, :contentHash, :size, :contentType, 1, NOW(), NOW()) " +
+                   "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, released_at = NULL, " +
+                   "content_type = COALESCE(content_type, VALUES(content_type)), updated_at = NOW()",
+           nativeQuery = true)
+    int acquire(@Param("fileName") String fileName,
+                @Param("contentHash") String contentHash,
+                @Param("size") long size,
+                @Param("contentType") String contentType);
+
+    /**
+     * Record how the blob's bytes were written to the store
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE StoredBlob b SET b.contentEncoding = :contentEncoding, b.storedSize = :storedSize " +
+           "WHERE b.fileName = :fileName")
+    int updateEncoding(@Param("fileName") String fileName,
+                       @Param("contentEncoding") String contentEncoding,
+                       @Param("storedSize") long storedSize);
+
+    /**
+     * Add a reference to an existing blob. Returns 0 for files not in the blob store.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount + 1, b.releasedAt = NULL WHERE b.fileName = :fileName")
+    int retain(@Param("fileName") String fileName);
+
+    /**
+     * Drop one reference. Returns 0 for files not in the blob store.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount - 1, b.releasedAt = :now " +
+           "WHERE b.fileName = :fileName AND b.refCount > 0")
+    int release(@Param("fileName") String fileName, @Param("now") LocalDateTime now);
+
+    /**
+     * Find unreferenced blobs released before the given time
+     */
+    @Query("SELECT b FROM StoredBlob b WHERE b.refCount = 0 AND b.releasedAt < :releasedBefore ORDER BY b.releasedAt")
+    List<StoredBlob> findCollectable(@Param("releasedBefore") LocalDateTime releasedBefore, Pageable pageable);
+
+    /**
+     * Delete a blob row only if it is still unreferenced
+     */
+    @Modifying
+    @Query("DELETE FROM StoredBlob b WHERE b.id = :id AND b.refCount = 0")
+    int deleteIfUnreferenced(@Param("id") Long id);
+}
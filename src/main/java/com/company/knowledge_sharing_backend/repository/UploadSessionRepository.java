@@ -0,0 +1,36 @@
+package com.company.knowledge_sharing_backend.repository;
+
+import com.company.knowledge_sharing_backend.entity.UploadSession;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, Long> {
+
+    /**
+     * Find session by the id handed to the client
+     */
+    Optional<UploadSession> findByUploadId(String uploadId);
+
+    /**
+     * Lock a session row, so parallel chunk requests update the bitmap one at a time
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UploadSession s WHERE s.uploadId = :uploadId")
+    Optional<UploadSession> lockByUploadId(@Param("uploadId") String uploadId);
+
+    /**
+     * Find sessions past their expiry time
+     */
+    @Query("SELECT s FROM UploadSession s WHERE s.expiresAt < :now ORDER BY s.expiresAt")
+    List<UploadSession> findExpired(@Param("now") LocalDateTime now, Pageable pageable);
+}
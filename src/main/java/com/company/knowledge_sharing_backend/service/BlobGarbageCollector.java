@@ -0,0 +1,76 @@
+package com.company.knowledge_sharing_backend.service;
+
+import com.company.knowledge_sharing_backend.config.FileStorageProperties;
+import com.company.knowledge_sharing_backend.entity.StoredBlob;
+import com.company.knowledge_sharing_backend.repository.StoredBlobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Deletes stored blobs whose reference count has been zero for longer than the grace period
+ */
+@Service
+@Slf4j
+public class BlobGarbageCollector {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private DocumentPreviewService documentPreviewService;
+
+    @Autowired
+    private FileStorageProperties fileStorageProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Scheduled(fixedDelay = 3600000) // Run every 1 hour
+    public void collectGarbage() {
+        LocalDateTime releasedBefore = LocalDateTime.now().minusMinutes(fileStorageProperties.getBlobGcGraceMinutes());
+        List<StoredBlob> candidates = storedBlobRepository.findCollectable(releasedBefore, PageRequest.of(0, BATCH_SIZE));
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int deleted = 0;
+        for (StoredBlob blob : candidates) {
+            try {
+                // The file is deleted while the row delete holds its lock: an upload of the same
+                // bytes waits, then re-creates both row and file
+                Boolean removed = transactionTemplate.execute(status -> {
+                    if (storedBlobRepository.deleteIfUnreferenced(blob.getId()) == 0) {
+                        return false; // Referenced again since the scan
+                    }
+                    fileStorageService.deleteFile(blob.getFileName());
+                    thumbnailService.deleteThumbnails(blob.getFileName());
+                    documentPreviewService.deletePreview(blob.getFileName());
+                    return true;
+                });
+                if (Boolean.TRUE.equals(removed)) {
+                    deleted++;
+                }
+            } catch (Exception e) {
+                log.warn("Failed to delete blob {}: {}", blob.getFileName(), e.getMessage());
+            }
+        }
+
+        if (deleted > 0) {
+            log.info("Deleted {} unreferenced blobs", deleted);
+        }
+    }
+}
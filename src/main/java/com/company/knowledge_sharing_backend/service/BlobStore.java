@@ -0,0 +1,122 @@
+package com.company.knowledge_sharing_backend.service;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Where stored file bytes live. Keys are stored file names ({@code <sha256>.<ext>} for blobs);
+ * the bytes under a key never change once written. Derived artifacts (thumbnails, preview
+ * pages) and the chunks of unfinished uploads are kept under keys of their own, so every node
+ * sees them; a re-sent upload chunk replaces the previous one.
+ * <p>
+ * Implementations: local filesystem (default) and S3-compatible object storage, selected with
+ * {@code blob-store.type}, optionally wrapped in chunk-level deduplication
+ * ({@code blob-store.chunking-enabled}).
+ */
+public interface BlobStore {
+
+    /**
+     * Size and modification time of a stored object
+     */
+    record BlobStat(long size, Instant lastModified) {
+    }
+
+    /**
+     * One object found while listing the store
+     */
+    record BlobEntry(String key, long size, Instant lastModified) {
+    }
+
+    /**
+     * Store a stream under a key. {@code size} is the exact length, or -1 if unknown.
+     */
+    void put(String key, InputStream content, long size, String contentType) throws IOException;
+
+    /**
+     * Store a local file under a key. The store may move the file instead of copying it,
+     * so the caller must not use {@code source} afterwards.
+     */
+    default void put(String key, Path source, String contentType) throws IOException {
+        try (InputStream in = Files.newInputStream(source)) {
+            put(key, in, Files.size(source), contentType);
+        }
+    }
+
+    /**
+     * Whether an object exists under the key
+     */
+    default boolean exists(String key) throws IOException {
+        return stat(key).isPresent();
+    }
+
+    /**
+     * Size and modification time, or empty if there is no object under the key
+     */
+    Optional<BlobStat> stat(String key) throws IOException;
+
+    /**
+     * Open the bytes {@code start..end} (inclusive) of an object
+     *
+     * @throws java.nio.file.NoSuchFileException if there is no object under the key
+     */
+    InputStream openRange(String key, long start, long end) throws IOException;
+
+    /**
+     * Open a whole object
+     *
+     * @throws java.nio.file.NoSuchFileException if there is no object under the key
+     */
+    default InputStream open(String key) throws IOException {
+        return openRange(key, 0, Long.MAX_VALUE - 1);
+    }
+
+    /**
+     * Delete an object; missing objects are ignored
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Visit every stored object, streaming: nothing is collected in memory
+     */
+    void list(Consumer<BlobEntry> visitor) throws IOException;
+
+    /**
+     * Whether the store compresses what it is given itself; callers then store plain bytes
+     */
+    default boolean compressesContent() {
+        return false;
+    }
+
+    /**
+     * Path of the object on local disk when the store has one (lets downloads use sendfile)
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * An object as a response body: its local file when there is one, otherwise an open
+     * stream. Empty if there is no object under the key.
+     */
+    default Optional<Resource> openResource(String key) throws IOException {
+        Optional<Path> local = localPath(key).filter(Files::isRegularFile);
+        if (local.isPresent()) {
+            return Optional.of(new FileSystemResource(local.get()));
+        }
+        try {
+            return Optional.of(new InputStreamResource(open(key)));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+}
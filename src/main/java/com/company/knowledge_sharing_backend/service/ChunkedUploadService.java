@@ -0,0 +1,445 @@
+package com.company.knowledge_sharing_backend.service;
+
+import com.company.knowledge_sharing_backend.config.FileStorageProperties;
+import com.company.knowledge_sharing_backend.dto.request.InitiateUploadRequest;
+import com.company.knowledge_sharing_backend.dto.response.UploadSessionResponse;
+import com.company.knowledge_sharing_backend.entity.UploadSession;
+import com.company.knowledge_sharing_backend.entity.UploadStatus;
+import com.company.knowledge_sharing_backend.entity.User;
+import com.company.knowledge_sharing_backend.exception.BadRequestException;
+import com.company.knowledge_sharing_backend.exception.ResourceNotFoundException;
+import com.company.knowledge_sharing_backend.exception.UnauthorizedException;
+import com.company.knowledge_sharing_backend.repository.UploadSessionRepository;
+import com.company.knowledge_sharing_backend.repository.UserRepository;
+import com.company.knowledge_sharing_backend.util.HashUtil;
+import com.company.knowledge_sharing_backend.util.LimitedInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Resumable chunked uploads: initiate, PUT fixed-size chunks in any order (also in
+ * parallel), complete, then attach the upload to a document by its id.
+ * <p>
+ * Each chunk is hashed while it is received into a local temp file and counts as received
+ * only if its SHA-256 matches the one the client sent; it is then staged in the blob store
+ * as {@code <uploadId>.part-<index>}, so the requests of one upload may reach any node.
+ * Attaching the upload streams the staged chunks in order into the file store. Clients
+ * resume by reading the session and re-sending the missing chunks.
+ */
+@Service
+@Slf4j
+public class ChunkedUploadService {
+
+    // Local temp files of chunks being received
+    private static final String STAGING_DIR = ".chunked";
+
+    private static final String CHUNK_INFIX = ".part-";
+    private static final String CHUNK_CONTENT_TYPE = "application/octet-stream";
+    private static final Pattern CHUNK_KEY = Pattern.compile("\\.part-\\d{5}$");
+
+    // Bitmap column holds 1024 bytes
+    private static final int MAX_CHUNKS = 1024 * 8;
+
+    private static final int EXPIRED_BATCH_SIZE = 500;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private FileStorageProperties fileStorageProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Start an upload; the response tells the client the chunk size and count
+     */
+    public UploadSessionResponse initiate(InitiateUploadRequest request, Long userId) {
+        String fileName = StringUtils.cleanPath(request.getFileName());
+        fileStorageService.validateFileName(fileName);
+
+        long maxBytes = fileStorageProperties.getChunkedUploadMaxBytes();
+        if (request.getTotalSize() > maxBytes) {
+            throw new BadRequestException("File size exceeds maximum limit of " + (maxBytes / (1024 * 1024)) + "MB");
+        }
+        int chunkSize = fileStorageProperties.getChunkedUploadChunkBytes();
+        long chunkCount = (request.getTotalSize() + chunkSize - 1) / chunkSize;
+        if (chunkCount > MAX_CHUNKS) {
+            throw new BadRequestException("File needs more than " + MAX_CHUNKS + " chunks; raise the chunk size");
+        }
+
+        User owner = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+
+        UploadSession session = UploadSession.builder()
+                .uploadId(UUID.randomUUID().toString())
+                .fileName(fileName)
+                .totalSize(request.getTotalSize())
+                .chunkSize(chunkSize)
+                .chunkCount((int) chunkCount)
+                .sha256(request.getSha256() != null ? request.getSha256().toLowerCase() : null)
+                .receivedChunks(new byte[0])
+                .status(UploadStatus.UPLOADING)
+                .expiresAt(LocalDateTime.now().plusHours(fileStorageProperties.getChunkedUploadExpiryHours()))
+                .owner(owner)
+                .build();
+
+        return mapToResponse(uploadSessionRepository.save(session));
+    }
+
+    /**
+     * Upload state, for resuming: which chunks the server already has
+     */
+    public UploadSessionResponse getSession(String uploadId, Long userId) {
+        return mapToResponse(findOwnedSession(uploadId, userId));
+    }
+
+    /**
+     * Store one chunk. Re-sending a chunk replaces it, so retries are safe: the new bytes are
+     * verified before anything is touched, and the chunk counts as missing while they replace
+     * the stored ones.
+     */
+    public UploadSessionResponse writeChunk(String uploadId, int index, String sha256, InputStream body, Long userId) {
+        UploadSession session = findOwnedSession(uploadId, userId);
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new BadRequestException("Chunk index must be between 0 and " + (session.getChunkCount() - 1));
+        }
+        if (sha256 == null || !sha256.matches("[0-9a-fA-F]{64}")) {
+            throw new BadRequestException("Chunk SHA-256 is required (64 hex characters)");
+        }
+
+        long offset = (long) index * session.getChunkSize();
+        long length = Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+
+        Path tempFile = null;
+        try {
+            Files.createDirectories(stagingDirectory());
+            tempFile = Files.createTempFile(stagingDirectory(), uploadId + "-", ".tmp");
+
+            MessageDigest digest = HashUtil.newSha256();
+            long written;
+            // Read one byte more than expected, so an oversized chunk is noticed
+            try (InputStream in = new DigestInputStream(new LimitedInputStream(body, length + 1), digest)) {
+                written = Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (written > length) {
+                throw new BadRequestException("Chunk " + index + " must be " + length + " bytes");
+            }
+            if (written != length) {
+                throw new BadRequestException("Chunk " + index + " must be " + length + " bytes, got " + written);
+            }
+            if (!HashUtil.toHex(digest.digest()).equalsIgnoreCase(sha256)) {
+                throw new BadRequestException("Chunk " + index + " does not match its SHA-256; send it again");
+            }
+
+            // Missing from here until the new bytes are stored, so complete() cannot pass in
+            // between; also rejects chunks once the upload is complete
+            markChunk(uploadId, index, false);
+            // Stored objects are never overwritten in place (the local store keeps the first)
+            blobStore.delete(chunkKey(session, index));
+            blobStore.put(chunkKey(session, index), tempFile, CHUNK_CONTENT_TYPE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store chunk " + index + " of upload " + uploadId, e);
+        } finally {
+            deleteQuietly(tempFile);
+        }
+
+        return mapToResponse(markChunk(uploadId, index, true));
+    }
+
+    /**
+     * Finish an upload once every chunk is in; further chunks are rejected. If the client sent
+     * the file's SHA-256 at initiate, the staged chunks are hashed in order first: on a
+     * mismatch every chunk is marked missing again and the upload goes back to UPLOADING, so
+     * the client can re-send them.
+     */
+    public UploadSessionResponse complete(String uploadId, Long userId) {
+        findOwnedSession(uploadId, userId);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        UploadSession session = transactionTemplate.execute(status -> {
+            UploadSession locked = uploadSessionRepository.lockByUploadId(uploadId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Upload not found: " + uploadId));
+            if (locked.getStatus() == UploadStatus.COMPLETE) {
+                return locked;
+            }
+            int missing = locked.getChunkCount() - BitSet.valueOf(locked.getReceivedChunks()).cardinality();
+            if (missing > 0) {
+                throw new BadRequestException("Upload " + uploadId + " is missing " + missing + " chunks");
+            }
+            // No chunk is accepted from here on; a verification cut short is redone by calling again
+            locked.setStatus(locked.getSha256() != null ? UploadStatus.VERIFYING : UploadStatus.COMPLETE);
+            return uploadSessionRepository.save(locked);
+        });
+        if (session.getStatus() == UploadStatus.COMPLETE) {
+            return mapToResponse(session);
+        }
+
+        // Hashed outside the row lock: reading back a large upload takes a while
+        boolean matches = session.getSha256().equals(hashStagedFile(session));
+
+        UploadSession verified = transactionTemplate.execute(status -> {
+            UploadSession locked = uploadSessionRepository.lockByUploadId(uploadId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Upload not found: " + uploadId));
+            if (locked.getStatus() != UploadStatus.VERIFYING) {
+                return locked; // Settled by a concurrent call
+            }
+            if (matches) {
+                locked.setStatus(UploadStatus.COMPLETE);
+            } else {
+                locked.setStatus(UploadStatus.UPLOADING);
+                locked.setReceivedChunks(new byte[0]);
+            }
+            return uploadSessionRepository.save(locked);
+        });
+        if (!matches) {
+            throw new BadRequestException("Upload " + uploadId + " does not match its SHA-256; "
+                    + "every chunk is marked missing, send them again");
+        }
+        return mapToResponse(verified);
+    }
+
+    /**
+     * Discard an upload and its data
+     */
+    public void abort(String uploadId, Long userId) {
+        UploadSession session = findOwnedSession(uploadId, userId);
+        uploadSessionRepository.delete(session);
+        deleteStagedChunks(session);
+    }
+
+    /**
+     * Stream a completed upload's chunks into the file store and end the session (call inside
+     * the transaction that records the document). The staged chunks are consumed either way:
+     * if the transaction rolls back, the client uploads again.
+     */
+    public FileStorageService.StoredFile storeUpload(String uploadId, Long userId) {
+        UploadSession session = findOwnedSession(uploadId, userId);
+        if (session.getStatus() != UploadStatus.COMPLETE) {
+            throw new BadRequestException("Upload " + uploadId + " is not complete");
+        }
+        try {
+            if (!blobStore.exists(chunkKey(session, 0))) {
+                throw new BadRequestException("Upload " + uploadId + " is no longer available; start a new upload");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read upload " + uploadId, e);
+        }
+
+        FileStorageService.StoredFile storedFile = fileStorageService.storeFile(openStagedFile(session), session.getFileName());
+        // Verified in complete(); checked again for free, since storing hashes the bytes anyway
+        if (session.getSha256() != null && !session.getSha256().equals(storedFile.contentHash())) {
+            throw new BadRequestException("Uploaded file does not match its SHA-256");
+        }
+
+        uploadSessionRepository.delete(session);
+        deleteStagedChunks(session);
+        return storedFile;
+    }
+
+    /**
+     * Whether a blob store key holds a chunk of an unfinished upload rather than a stored file
+     */
+    public boolean isStagingKey(String key) {
+        return CHUNK_KEY.matcher(key).find();
+    }
+
+    @Scheduled(fixedDelay = 3600000) // Run every 1 hour
+    public void deleteExpiredSessions() {
+        List<UploadSession> expired = uploadSessionRepository.findExpired(LocalDateTime.now(),
+                PageRequest.of(0, EXPIRED_BATCH_SIZE));
+        for (UploadSession session : expired) {
+            try {
+                uploadSessionRepository.delete(session);
+                deleteStagedChunks(session);
+            } catch (Exception e) {
+                log.warn("Failed to delete expired upload {}: {}", session.getUploadId(), e.getMessage());
+            }
+        }
+
+        if (!expired.isEmpty()) {
+            log.info("Deleted {} expired uploads", expired.size());
+        }
+    }
+
+    /**
+     * Set or clear a chunk's received bit under the row lock; the status is checked under the
+     * same lock, so no chunk is accepted once the upload is complete
+     */
+    private UploadSession markChunk(String uploadId, int index, boolean received) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            UploadSession locked = uploadSessionRepository.lockByUploadId(uploadId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Upload not found: " + uploadId));
+            if (locked.getStatus() != UploadStatus.UPLOADING) {
+                throw new BadRequestException("Upload " + uploadId + " is already "
+                        + (locked.getStatus() == UploadStatus.VERIFYING ? "being verified" : "complete"));
+            }
+            BitSet chunks = BitSet.valueOf(locked.getReceivedChunks());
+            chunks.set(index, received);
+            locked.setReceivedChunks(chunks.toByteArray());
+            return uploadSessionRepository.save(locked);
+        });
+    }
+
+    private UploadSession findOwnedSession(String uploadId, Long userId) {
+        UploadSession session = uploadSessionRepository.findByUploadId(uploadId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload not found: " + uploadId));
+        if (!session.getOwner().getId().equals(userId)) {
+            throw new UnauthorizedException("You don't have permission to access this upload");
+        }
+        if (session.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new ResourceNotFoundException("Upload not found: " + uploadId);
+        }
+        return session;
+    }
+
+    private Path stagingDirectory() {
+        return Paths.get(fileStorageProperties.getUploadDir()).toAbsolutePath().normalize().resolve(STAGING_DIR);
+    }
+
+    private String chunkKey(UploadSession session, int index) {
+        // The upload id is a server-generated UUID, never client input
+        return session.getUploadId() + CHUNK_INFIX + String.format("%05d", index);
+    }
+
+    /**
+     * The whole file: the staged chunks in order, each opened only when it is reached
+     */
+    private InputStream openStagedFile(UploadSession session) {
+        return new InputStream() {
+            private int next;
+            private InputStream current;
+
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                while (true) {
+                    if (current == null) {
+                        if (next >= session.getChunkCount()) {
+                            return -1;
+                        }
+                        current = blobStore.open(chunkKey(session, next++));
+                    }
+                    int n = current.read(b, off, len);
+                    if (n != -1) {
+                        return n;
+                    }
+                    current.close();
+                    current = null;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (current != null) {
+                    current.close();
+                    current = null;
+                }
+                next = session.getChunkCount();
+            }
+        };
+    }
+
+    private String hashStagedFile(UploadSession session) {
+        MessageDigest digest = HashUtil.newSha256();
+        try (InputStream in = new DigestInputStream(openStagedFile(session), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (NoSuchFileException e) {
+            throw new BadRequestException("Upload " + session.getUploadId() + " is no longer available; start a new upload");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read upload " + session.getUploadId(), e);
+        }
+        return HashUtil.toHex(digest.digest());
+    }
+
+    private void deleteStagedChunks(UploadSession session) {
+        try {
+            for (int index = 0; index < session.getChunkCount(); index++) {
+                blobStore.delete(chunkKey(session, index));
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete staged chunks of upload {}: {}", session.getUploadId(), e.getMessage());
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Leftover temp files are harmless
+        }
+    }
+
+    private UploadSessionResponse mapToResponse(UploadSession session) {
+        BitSet received = BitSet.valueOf(session.getReceivedChunks());
+        List<Integer> receivedChunks = new ArrayList<>();
+        List<Integer> missingChunks = new ArrayList<>();
+        long receivedBytes = 0;
+        for (int index = 0; index < session.getChunkCount(); index++) {
+            if (received.get(index)) {
+                receivedChunks.add(index);
+                long offset = (long) index * session.getChunkSize();
+                receivedBytes += Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+            } else {
+                missingChunks.add(index);
+            }
+        }
+
+        return UploadSessionResponse.builder()
+                .uploadId(session.getUploadId())
+                .fileName(session.getFileName())
+                .totalSize(session.getTotalSize())
+                .chunkSize(session.getChunkSize())
+                .chunkCount(session.getChunkCount())
+                .receivedChunks(receivedChunks)
+                .missingChunks(missingChunks)
+                .receivedBytes(receivedBytes)
+                .status(session.getStatus().name())
+                .expiresAt(session.getExpiresAt())
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+package com.company.knowledge_sharing_backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Shared change counters ("watermarks") for document data, used to build ETags without
+ * rendering a response. Counters live in Redis so every instance agrees on them.
+ */
+@Service
+@Slf4j
+public class ContentVersionService {
+
+    private static final String KEY_PREFIX = "etag:";
+
+    // Bumped on any change that can affect a document list or search result
+    public static final String DOCUMENTS_SCOPE = "documents";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    public static String documentScope(Long documentId) {
+        return "document:" + documentId;
+    }
+
+    /**
+     * Current counter of a scope, or null if it cannot be read (callers then skip ETags)
+     */
+    public Long currentVersion(String scope) {
+        try {
+            String key = KEY_PREFIX + scope;
+            String value = redisTemplate.opsForValue().get(key);
+            if (value == null) {
+                initialize(key);
+                value = redisTemplate.opsForValue().get(key);
+            }
+            return value != null ? Long.parseLong(value) : null;
+        } catch (Exception e) {
+            log.debug("Content version unavailable for {}: {}", scope, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Record a change to a document (or to data shown with it) once the transaction commits
+     */
+    public void documentChanged(Long documentId) {
+        afterCommit(() -> {
+            if (documentId != null) {
+                increment(documentScope(documentId));
+            }
+            increment(DOCUMENTS_SCOPE);
+        });
+    }
+
+    /**
+     * Record a change that affects document lists only (e.g. a tag rename)
+     */
+    public void documentsChanged() {
+        afterCommit(() -> increment(DOCUMENTS_SCOPE));
+    }
+
+    // Bumping before commit would let a reader cache pre-commit data under the new tag
+    private void afterCommit(Runnable bump) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump.run();
+                }
+            });
+        } else {
+            bump.run();
+        }
+    }
+
+    private void increment(String scope) {
+        try {
+            String key = KEY_PREFIX + scope;
+            initialize(key);
+            redisTemplate.opsForValue().increment(key);
+        } catch (Exception e) {
+            log.warn("Failed to bump content version {}: {}", scope, e.getMessage());
+        }
+    }
+
+    // Start from the clock, not 0: a lost counter must never count back up to tags clients still hold
+    private void initialize(String key) {
+        redisTemplate.opsForValue().setIfAbsent(key, String.valueOf(System.currentTimeMillis()));
+    }
+}
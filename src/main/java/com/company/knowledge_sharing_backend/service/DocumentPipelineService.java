@@ -0,0 +1,538 @@
+package com.company.knowledge_sharing_backend.service;
+
+import com.company.knowledge_sharing_backend.config.PipelineProperties;
+import com.company.knowledge_sharing_backend.dto.response.ProcessingStageResponse;
+import com.company.knowledge_sharing_backend.entity.*;
+import com.company.knowledge_sharing_backend.exception.BadRequestException;
+import com.company.knowledge_sharing_backend.exception.ResourceNotFoundException;
+import com.company.knowledge_sharing_backend.exception.UnauthorizedException;
+import com.company.knowledge_sharing_backend.repository.DocumentProcessingStageRepository;
+import com.company.knowledge_sharing_backend.repository.DocumentRepository;
+import com.company.knowledge_sharing_backend.repository.DocumentVersionRepository;
+import com.company.knowledge_sharing_backend.repository.TagRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Post-upload processing: store → thumbnail → preview → extract text → summarize → embed → auto-tag → notify.
+ * <p>
+ * Each stage runs on its own bounded executor, so a slow stage (Gemini) cannot starve the
+ * others. Stage state is persisted per document; a stage that fails is retried with backoff,
+ * and a scheduled job resubmits due or abandoned stages after a crash or a full queue.
+ * A stage that finally fails does not stop the pipeline: later stages work with what exists.
+ */
+@Service
+@Slf4j
+public class DocumentPipelineService {
+
+    // Words of extracted text sent for a generated summary
+    private static final int SUMMARY_INPUT_WORDS = 3000;
+
+    // Words of extracted text scanned for tag names, and tags attached per document
+    private static final int AUTO_TAG_SCAN_WORDS = 5000;
+    private static final int MAX_AUTO_TAGS = 5;
+
+    private static final int SUMMARY_MAX_LENGTH = 1000;
+    private static final int ERROR_MAX_LENGTH = 500;
+    private static final int RESUME_BATCH_SIZE = 100;
+
+    @Autowired
+    private DocumentProcessingStageRepository stageRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentVersionRepository versionRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private DocumentTextService documentTextService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private DocumentPreviewService documentPreviewService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private GeminiService geminiService;
+
+    @Autowired
+    @Lazy
+    private SemanticSearchService semanticSearchService;
+
+    @Autowired
+    @Lazy
+    private NotificationService notificationService;
+
+    @Autowired
+    private ContentVersionService contentVersionService;
+
+    @Autowired
+    private RateLimiterService rateLimiterService;
+
+    @Autowired
+    private PipelineProperties pipelineProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final Map<ProcessingStage, ThreadPoolTaskExecutor> executors = new EnumMap<>(ProcessingStage.class);
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        // Always a fresh transaction: also called from after-commit listeners
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        for (ProcessingStage stage : ProcessingStage.values()) {
+            if (stage == ProcessingStage.STORE) {
+                continue; // Done synchronously by the upload request
+            }
+
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(pipelineProperties.getThreadsPerStage());
+            executor.setMaxPoolSize(pipelineProperties.getThreadsPerStage());
+            executor.setQueueCapacity(pipelineProperties.getQueueCapacity());
+            executor.setThreadNamePrefix("pipeline-" + stage.name().toLowerCase(Locale.ROOT).replace('_', '-') + "-");
+            executor.initialize();
+            executors.put(stage, executor);
+
+            if (meterRegistry != null) {
+                Gauge.builder("pipeline.stage.queue.depth", executor,
+                                e -> e.getThreadPoolExecutor().getQueue().size())
+                        .tag("stage", stage.name())
+                        .register(meterRegistry);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Queued stages stay PENDING in the database and are resumed on the next start
+        executors.values().forEach(ThreadPoolTaskExecutor::shutdown);
+    }
+
+    /**
+     * Start the pipeline once the version (and its file) is committed
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onVersionCreated(DocumentVersionCreatedEvent event) {
+        try {
+            start(event.documentId(), event.versionId());
+        } catch (Exception e) {
+            log.error("Failed to start processing for document {}: {}", event.documentId(), e.getMessage());
+        }
+    }
+
+    /**
+     * (Re)start processing of a document version; state of a previous run is discarded
+     */
+    public void start(Long documentId, Long versionId) {
+        Long firstStageId = transactionTemplate.execute(status -> {
+            stageRepository.deleteByDocumentId(documentId);
+
+            LocalDateTime now = LocalDateTime.now();
+            DocumentProcessingStage stored = newStage(documentId, versionId, ProcessingStage.STORE);
+            stored.setStatus(StageStatus.SUCCEEDED);
+            stored.setStartedAt(now);
+            stored.setFinishedAt(now);
+            stageRepository.save(stored);
+
+            return stageRepository.save(newStage(documentId, versionId, ProcessingStage.STORE.next())).getId();
+        });
+
+        submit(firstStageId, ProcessingStage.STORE.next());
+    }
+
+    /**
+     * Get stage states of a document (owner only)
+     */
+    public List<ProcessingStageResponse> getStages(Long documentId, Long userId) {
+        checkOwner(documentId, userId);
+
+        return stageRepository.findByDocumentId(documentId).stream()
+                .sorted(Comparator.comparing(DocumentProcessingStage::getStage))
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Run one stage again, followed by the stages after it (owner only)
+     */
+    public ProcessingStageResponse retryStage(Long documentId, ProcessingStage stage, Long userId) {
+        checkOwner(documentId, userId);
+
+        if (stage == ProcessingStage.STORE) {
+            throw new BadRequestException("The store stage cannot be retried; upload a new version instead");
+        }
+
+        DocumentProcessingStage retried = transactionTemplate.execute(status -> {
+            DocumentProcessingStage state = stageRepository.findByDocumentIdAndStage(documentId, stage)
+                    .orElseThrow(() -> new BadRequestException("Stage " + stage + " has not been reached yet"));
+
+            if (state.getStatus() == StageStatus.PENDING || state.getStatus() == StageStatus.RUNNING) {
+                throw new BadRequestException("Stage " + stage + " is already in progress");
+            }
+
+            state.setStatus(StageStatus.PENDING);
+            state.setAttempts(0);
+            state.setLastError(null);
+            state.setNextAttemptAt(resumeDeadline());
+            return stageRepository.save(state);
+        });
+
+        submit(retried.getId(), stage);
+        return mapToResponse(retried);
+    }
+
+    /**
+     * Resubmit pending stages that are due (retries, full queues) and running stages whose
+     * worker was lost
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void resumeStages() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> stageIds = stageRepository.findResumableIds(now, staleBefore(now), PageRequest.of(0, RESUME_BATCH_SIZE));
+
+        for (Long stageId : stageIds) {
+            stageRepository.findById(stageId).ifPresent(state -> {
+                log.info("Resuming {} stage {} of document {}", state.getStage(), stageId, state.getDocument().getId());
+                submit(stageId, state.getStage());
+            });
+        }
+    }
+
+    // ==================== EXECUTION ====================
+
+    private void submit(Long stageId, ProcessingStage stage) {
+        try {
+            executors.get(stage).execute(() -> run(stageId));
+        } catch (TaskRejectedException e) {
+            // Stays PENDING; the resume job submits it once the short delay has passed
+            log.warn("{} queue is full, stage {} will be resumed later", stage, stageId);
+            defer(stageId, false);
+        }
+    }
+
+    /**
+     * Put a stage back to PENDING due after a short delay. A stage that was claimed gets its
+     * attempt back: waiting for capacity is not a failure.
+     */
+    private void defer(Long stageId, boolean claimed) {
+        transactionTemplate.executeWithoutResult(status -> stageRepository.findById(stageId).ifPresent(state -> {
+            if (claimed) {
+                state.setStatus(StageStatus.PENDING);
+                state.setAttempts(Math.max(0, state.getAttempts() - 1));
+            } else if (state.getStatus() != StageStatus.PENDING) {
+                return; // Picked up meanwhile
+            }
+            state.setNextAttemptAt(LocalDateTime.now().plusSeconds(pipelineProperties.getDeferSeconds()));
+            stageRepository.save(state);
+        }));
+    }
+
+    private void run(Long stageId) {
+        LocalDateTime now = LocalDateTime.now();
+        Integer claimed = transactionTemplate.execute(status -> stageRepository.claim(stageId, now, staleBefore(now)));
+        if (claimed == null || claimed == 0) {
+            return; // Already running elsewhere, finished, or superseded by a new version
+        }
+
+        DocumentProcessingStage state = stageRepository.findById(stageId).orElse(null);
+        if (state == null) {
+            return;
+        }
+
+        ProcessingStage stage = state.getStage();
+        Long documentId = state.getDocument().getId();
+        long startNanos = System.nanoTime();
+
+        StageStatus outcome;
+        String error = null;
+        try {
+            outcome = execute(stage, documentId, state.getVersion().getId()) ? StageStatus.SUCCEEDED : StageStatus.SKIPPED;
+        } catch (UpstreamBusyException e) {
+            log.debug("Gemini quota exhausted, deferring {} for document {}", stage, documentId);
+            defer(stageId, true);
+            return;
+        } catch (Exception e) {
+            outcome = StageStatus.FAILED;
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            log.warn("{} failed for document {} (attempt {}): {}", stage, documentId, state.getAttempts(), error);
+        }
+
+        if (meterRegistry != null) {
+            Timer.builder("pipeline.stage")
+                    .description("Document processing stage executions")
+                    .tag("stage", stage.name())
+                    .tag("outcome", outcome.name())
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+
+        finish(stageId, outcome, error);
+    }
+
+    private boolean execute(ProcessingStage stage, Long documentId, Long versionId) throws IOException {
+        return switch (stage) {
+            case STORE -> false;
+            case THUMBNAIL -> thumbnail(versionId);
+            case PREVIEW -> preview(versionId);
+            case EXTRACT_TEXT -> documentTextService.storeText(versionId);
+            case SUMMARIZE -> summarize(documentId);
+            case EMBED -> {
+                acquireUpstream();
+                semanticSearchService.generateDocumentEmbedding(documentId);
+                yield true;
+            }
+            case AUTO_TAG -> autoTag(documentId);
+            case NOTIFY -> notifyUsers(documentId);
+        };
+    }
+
+    /**
+     * Record the outcome and hand off to the next stage. Failures go back to PENDING with
+     * backoff until attempts run out.
+     */
+    private void finish(Long stageId, StageStatus outcome, String error) {
+        DocumentProcessingStage next = transactionTemplate.execute(status -> {
+            DocumentProcessingStage state = stageRepository.findById(stageId).orElse(null);
+            if (state == null) {
+                return null; // Superseded by a new version while running
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            state.setFinishedAt(now);
+            state.setLastError(error != null && error.length() > ERROR_MAX_LENGTH ? error.substring(0, ERROR_MAX_LENGTH) : error);
+
+            if (outcome == StageStatus.FAILED && state.getAttempts() < pipelineProperties.getMaxAttempts()) {
+                state.setStatus(StageStatus.PENDING);
+                state.setNextAttemptAt(now.plusSeconds(pipelineProperties.getRetryDelaySeconds() * state.getAttempts()));
+                return null;
+            }
+
+            state.setStatus(outcome);
+            ProcessingStage nextStage = state.getStage().next();
+            if (nextStage == null) {
+                return null;
+            }
+
+            DocumentProcessingStage nextState = stageRepository
+                    .findByDocumentIdAndStage(state.getDocument().getId(), nextStage)
+                    .orElseGet(() -> newStage(state.getDocument().getId(), state.getVersion().getId(), nextStage));
+            nextState.setStatus(StageStatus.PENDING);
+            nextState.setAttempts(0);
+            nextState.setLastError(null);
+            nextState.setNextAttemptAt(resumeDeadline());
+            return stageRepository.save(nextState);
+        });
+
+        if (next != null) {
+            submit(next.getId(), next.getStage());
+        }
+    }
+
+    // ==================== STAGES ====================
+
+    private boolean thumbnail(Long versionId) throws IOException {
+        DocumentVersion version = versionRepository.findById(versionId).orElse(null);
+        if (version == null) {
+            return false;
+        }
+        try (FileStorageService.LocalFile file = fileStorageService.openLocalFile(version.getFilePath())) {
+            return thumbnailService.generateThumbnails(version.getFilePath(), file.path());
+        }
+    }
+
+    private boolean preview(Long versionId) throws IOException {
+        DocumentVersion version = versionRepository.findById(versionId).orElse(null);
+        if (version == null) {
+            return false;
+        }
+        try (FileStorageService.LocalFile file = fileStorageService.openLocalFile(version.getFilePath())) {
+            return documentPreviewService.generatePreview(version.getFilePath(), file.path());
+        }
+    }
+
+    private boolean summarize(Long documentId) {
+        Document document = documentRepository.findById(documentId).orElse(null);
+        if (document == null || (document.getSummary() != null && !document.getSummary().isBlank())) {
+            return false;
+        }
+
+        String text = documentTextService.getLatestExcerpt(documentId, SUMMARY_INPUT_WORDS)
+                .filter(excerpt -> !excerpt.isBlank())
+                .orElse(null);
+        if (text == null) {
+            return false;
+        }
+
+        // Gemini call outside any transaction
+        acquireUpstream();
+        String summary = geminiService.generateSummary(text);
+        String stored = summary.length() > SUMMARY_MAX_LENGTH ? summary.substring(0, SUMMARY_MAX_LENGTH) : summary;
+
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            Document current = documentRepository.findById(documentId).orElse(null);
+            // The owner may have written a summary meanwhile
+            if (current == null || (current.getSummary() != null && !current.getSummary().isBlank())) {
+                return false;
+            }
+            current.setSummary(stored);
+            documentRepository.save(current);
+            return true;
+        }));
+    }
+
+    private boolean autoTag(Long documentId) {
+        String fileText = documentTextService.getLatestExcerpt(documentId, AUTO_TAG_SCAN_WORDS).orElse("");
+
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            Document document = documentRepository.findById(documentId).orElse(null);
+            if (document == null) {
+                return false;
+            }
+
+            // Whole-word match of existing tag names against title, summary and file text
+            String haystack = " " + String.join(" ",
+                    document.getTitle(),
+                    document.getSummary() != null ? document.getSummary() : "",
+                    fileText).toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ") + " ";
+
+            int added = 0;
+            for (Tag tag : tagRepository.findAll()) {
+                if (added >= MAX_AUTO_TAGS) {
+                    break;
+                }
+                String name = " " + tag.getName().toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim() + " ";
+                if (name.isBlank() || !haystack.contains(name)) {
+                    continue;
+                }
+                if (document.getTags().add(tag)) {
+                    added++;
+                }
+            }
+
+            if (added > 0) {
+                documentRepository.save(document);
+                // Tag-only changes don't fire entity update callbacks
+                contentVersionService.documentChanged(documentId);
+            }
+            return added > 0;
+        }));
+    }
+
+    private boolean notifyUsers(Long documentId) {
+        Document document = transactionTemplate.execute(status -> {
+            Document loaded = documentRepository.findByIdWithDetails(documentId).orElse(null);
+            if (loaded != null) {
+                // Notifications run asynchronously on a detached copy
+                Hibernate.initialize(loaded.getTags());
+            }
+            return loaded;
+        });
+        if (document == null) {
+            return false;
+        }
+
+        if (document.getVersionNumber() == 1) {
+            notificationService.notifyNewDocument(document);
+        } else {
+            notificationService.notifyDocumentUpdate(document);
+        }
+        return true;
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    // Stages calling Gemini share the global quota with user requests
+    private void acquireUpstream() {
+        if (!rateLimiterService.tryAcquireUpstream()) {
+            throw new UpstreamBusyException();
+        }
+    }
+
+    private static final class UpstreamBusyException extends RuntimeException {
+        UpstreamBusyException() {
+            super("Gemini quota exhausted", null, false, false);
+        }
+    }
+
+    private DocumentProcessingStage newStage(Long documentId, Long versionId, ProcessingStage stage) {
+        return DocumentProcessingStage.builder()
+                .document(documentRepository.getReferenceById(documentId))
+                .version(versionRepository.getReferenceById(versionId))
+                .stage(stage)
+                .status(StageStatus.PENDING)
+                .nextAttemptAt(resumeDeadline())
+                .build();
+    }
+
+    // A stage submitted now is picked up by the resume job only if it has not run by then
+    private LocalDateTime resumeDeadline() {
+        return LocalDateTime.now().plusMinutes(pipelineProperties.getStaleAfterMinutes());
+    }
+
+    private LocalDateTime staleBefore(LocalDateTime now) {
+        return now.minusMinutes(pipelineProperties.getStaleAfterMinutes());
+    }
+
+    private void checkOwner(Long documentId, Long userId) {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Document not found with id: " + documentId));
+
+        if (!document.getOwner().getId().equals(userId)) {
+            throw new UnauthorizedException("You don't have permission to manage processing of this document");
+        }
+    }
+
+    private ProcessingStageResponse mapToResponse(DocumentProcessingStage state) {
+        return ProcessingStageResponse.builder()
+                .stage(state.getStage().name())
+                .status(state.getStatus().name())
+                .attempts(state.getAttempts())
+                .lastError(state.getLastError())
+                .startedAt(state.getStartedAt())
+                .finishedAt(state.getFinishedAt())
+                .build();
+    }
+}
@@ -0,0 +1,386 @@
+package com.company.knowledge_sharing_backend.service;
+
+import com.company.knowledge_sharing_backend.config.FileStorageProperties;
+import com.company.knowledge_sharing_backend.exception.BadRequestException;
+import com.company.knowledge_sharing_backend.exception.ResourceNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.hwpf.HWPFDocument;
+import org.apache.poi.hwpf.extractor.WordExtractor;
+import org.apache.poi.hwpf.model.StyleDescription;
+import org.apache.poi.hwpf.usermodel.Paragraph;
+import org.apache.poi.hwpf.usermodel.Range;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Paginated HTML previews of Word attachments. Each stored file is parsed once; the pages
+ * are kept gzip-compressed in the blob store ({@code <name>.preview-0001.html.gz}, ...) and
+ * served as-is to clients that accept gzip. The page count ({@code <name>.preview-pages})
+ * is written last and marks the preview as complete.
+ * <p>
+ * Only text and structure (headings, paragraphs, tables) are carried over and every piece
+ * of text is HTML-escaped, so the preview cannot contain markup from the document.
+ */
+@Service
+@Slf4j
+public class DocumentPreviewService {
+
+    // A page closes at the first block boundary after this many characters of text
+    private static final int PAGE_CHARS = 12_000;
+
+    private static final String KEY_INFIX = ".preview-";
+    private static final String PAGE_COUNT_SUFFIX = KEY_INFIX + "pages";
+    private static final String GZIP_CONTENT_TYPE = "application/gzip";
+
+    private static final Pattern PREVIEW_KEY = Pattern.compile("\\.preview-(pages|\\d{4,}\\.html\\.gz)$");
+
+    // Previews used to be written here, one directory per file, outside the blob store
+    private static final String LEGACY_DIRECTORY = "previews";
+    private static final String LEGACY_PAGE_COUNT_FILE = "pages";
+    private static final Pattern LEGACY_PAGE_FILE = Pattern.compile("^page-(\\d{4,})\\.html\\.gz$");
+
+    @Autowired
+    private DocumentService documentService;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private FileStorageProperties fileStorageProperties;
+
+    /**
+     * One compressed page of a preview
+     */
+    public record PreviewPage(Resource gzipContent, int page, int totalPages) {
+    }
+
+    /**
+     * Render the preview of a stored file. Returns false if it exists already or the type has no preview.
+     */
+    public boolean generatePreview(String fileName, Path source) throws IOException {
+        String extension = extensionOf(fileName);
+        if (!"doc".equals(extension) && !"docx".equals(extension)) {
+            return false;
+        }
+
+        String baseName = baseName(fileName);
+        if (blobStore.exists(baseName + PAGE_COUNT_SUFFIX)) {
+            return false; // Same content already rendered
+        }
+
+        PageWriter pages = new PageWriter();
+        try (InputStream in = Files.newInputStream(source)) {
+            if ("docx".equals(extension)) {
+                renderDocx(new XWPFDocument(in), pages);
+            } else {
+                renderDoc(new HWPFDocument(in), pages);
+            }
+        }
+        List<String> rendered = pages.finish();
+
+        // Pages first, count last: readers never see half a preview. A concurrent render of
+        // the same content writes identical pages.
+        for (int i = 0; i < rendered.size(); i++) {
+            byte[] page = compress(rendered.get(i));
+            blobStore.put(pageKey(baseName, i + 1), new ByteArrayInputStream(page), page.length, GZIP_CONTENT_TYPE);
+        }
+        byte[] count = String.valueOf(rendered.size()).getBytes(StandardCharsets.UTF_8);
+        blobStore.put(baseName + PAGE_COUNT_SUFFIX, new ByteArrayInputStream(count), count.length, "text/plain");
+
+        log.info("Rendered {} preview pages for {}", rendered.size(), fileName);
+        return true;
+    }
+
+    /**
+     * Get one page of the preview of a document's current file (with access check)
+     */
+    public PreviewPage getPreviewPage(Long documentId, int page, Long userId) {
+        String fileName = documentService.getDocumentFilePath(documentId, userId);
+
+        String extension = extensionOf(fileName);
+        if (!"doc".equals(extension) && !"docx".equals(extension)) {
+            throw new BadRequestException("Preview is only available for Word documents");
+        }
+
+        String baseName = baseName(fileName);
+        int totalPages = readPageCount(baseName)
+                .orElseThrow(() -> new ResourceNotFoundException("Preview is not ready yet for document: " + documentId));
+
+        if (page < 1 || page > totalPages) {
+            throw new BadRequestException("Page must be between 1 and " + totalPages);
+        }
+        try {
+            Resource content = blobStore.openResource(pageKey(baseName, page))
+                    .orElseThrow(() -> new ResourceNotFoundException("Preview is not ready yet for document: " + documentId));
+            return new PreviewPage(content, page, totalPages);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read preview page " + page + " of " + fileName, e);
+        }
+    }
+
+    /**
+     * Delete the preview of a file (when the file itself is deleted). The count goes first, so
+     * readers stop finding the preview; pages of an unfinished render are found by probing.
+     */
+    public void deletePreview(String fileName) {
+        String baseName = baseName(fileName);
+        try {
+            int totalPages = readPageCount(baseName).orElse(0);
+            blobStore.delete(baseName + PAGE_COUNT_SUFFIX);
+            for (int page = 1; page <= totalPages || blobStore.exists(pageKey(baseName, page)); page++) {
+                blobStore.delete(pageKey(baseName, page));
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to delete preview of {}: {}", fileName, e.getMessage());
+        }
+    }
+
+    /**
+     * Whether a blob store key holds part of a preview rather than a stored file
+     */
+    public boolean isPreviewKey(String key) {
+        return PREVIEW_KEY.matcher(key).find();
+    }
+
+    /**
+     * Move previews written to the local previews directory by earlier releases into the blob
+     * store (once; the directory is removed when it is empty)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLocalPreviews() {
+        Path legacyDirectory = Paths.get(fileStorageProperties.getUploadDir(), LEGACY_DIRECTORY).toAbsolutePath().normalize();
+        if (!Files.isDirectory(legacyDirectory)) {
+            return;
+        }
+        int moved = 0;
+        try (DirectoryStream<Path> previews = Files.newDirectoryStream(legacyDirectory, Files::isDirectory)) {
+            for (Path preview : previews) {
+                String baseName = preview.getFileName().toString();
+                if (baseName.startsWith(".")) {
+                    continue; // Unfinished render
+                }
+                Path countFile = preview.resolve(LEGACY_PAGE_COUNT_FILE);
+                if (Files.isRegularFile(countFile)) {
+                    try (DirectoryStream<Path> pages = Files.newDirectoryStream(preview)) {
+                        for (Path page : pages) {
+                            Matcher matcher = LEGACY_PAGE_FILE.matcher(page.getFileName().toString());
+                            if (matcher.matches()) {
+                                blobStore.put(pageKey(baseName, Integer.parseInt(matcher.group(1))), page, GZIP_CONTENT_TYPE);
+                            }
+                        }
+                    }
+                    blobStore.put(baseName + PAGE_COUNT_SUFFIX, countFile, "text/plain");
+                    moved++;
+                }
+                FileSystemUtils.deleteRecursively(preview);
+            }
+            Files.deleteIfExists(legacyDirectory);
+        } catch (IOException e) {
+            log.warn("Could not move local previews to the blob store ({} moved): {}", moved, e.getMessage());
+            return;
+        }
+        if (moved > 0) {
+            log.info("Moved {} local previews to the blob store", moved);
+        }
+    }
+
+    // ==================== RENDERING ====================
+
+    private void renderDocx(XWPFDocument document, PageWriter pages) throws IOException {
+        try (document) {
+            for (IBodyElement element : document.getBodyElements()) {
+                if (element instanceof XWPFParagraph paragraph) {
+                    if (paragraph.isPageBreak()) {
+                        pages.pageBreak();
+                    }
+                    pages.block(headingLevel(paragraph.getStyle()), paragraph.getText());
+                } else if (element instanceof XWPFTable table) {
+                    pages.table(tableRows(table));
+                }
+            }
+        }
+    }
+
+    private List<List<String>> tableRows(XWPFTable table) {
+        List<List<String>> rows = new ArrayList<>();
+        for (XWPFTableRow row : table.getRows()) {
+            List<String> cells = new ArrayList<>();
+            for (XWPFTableCell cell : row.getTableCells()) {
+                cells.add(cell.getText());
+            }
+            rows.add(cells);
+        }
+        return rows;
+    }
+
+    private void renderDoc(HWPFDocument document, PageWriter pages) throws IOException {
+        try (document) {
+            Range range = document.getRange();
+            for (int i = 0; i < range.numParagraphs(); i++) {
+                Paragraph paragraph = range.getParagraph(i);
+                if (paragraph.pageBreakBefore()) {
+                    pages.pageBreak();
+                }
+
+                StyleDescription style = document.getStyleSheet().getStyleDescription(paragraph.getStyleIndex());
+                // Table cell marks (\u0007) become spaces; field codes are dropped
+                String text = WordExtractor.stripFields(paragraph.text()).replace('\u0007', ' ');
+                pages.block(headingLevel(style != null ? style.getName() : null), text);
+            }
+        }
+    }
+
+    /**
+     * "Heading 1" / "Heading1" / "Title" → 1..3, anything else → 0 (paragraph)
+     */
+    private int headingLevel(String styleName) {
+        if (styleName == null) {
+            return 0;
+        }
+        String name = styleName.toLowerCase(Locale.ROOT).replace(" ", "");
+        if (name.equals("title") || name.equals("heading1")) {
+            return 1;
+        }
+        if (name.equals("heading2")) {
+            return 2;
+        }
+        if (name.startsWith("heading")) {
+            return 3;
+        }
+        return 0;
+    }
+
+    /**
+     * Accumulates escaped HTML blocks and cuts pages at block boundaries
+     */
+    private static class PageWriter {
+        private final List<String> pages = new ArrayList<>();
+        private StringBuilder current = new StringBuilder();
+        private int textChars;
+
+        void block(int headingLevel, String text) {
+            String trimmed = text == null ? "" : text.strip();
+            if (trimmed.isEmpty()) {
+                return;
+            }
+            String tag = headingLevel > 0 ? "h" + headingLevel : "p";
+            current.append('<').append(tag).append('>')
+                    .append(HtmlUtils.htmlEscape(trimmed))
+                    .append("</").append(tag).append(">\n");
+            countAndMaybeBreak(trimmed.length());
+        }
+
+        void table(List<List<String>> rows) {
+            int chars = 0;
+            current.append("<table>\n");
+            for (List<String> row : rows) {
+                current.append("<tr>");
+                for (String cell : row) {
+                    String text = cell == null ? "" : cell.strip();
+                    current.append("<td>").append(HtmlUtils.htmlEscape(text)).append("</td>");
+                    chars += text.length();
+                }
+                current.append("</tr>\n");
+            }
+            current.append("</table>\n");
+            countAndMaybeBreak(chars);
+        }
+
+        void pageBreak() {
+            if (textChars > 0) {
+                closePage();
+            }
+        }
+
+        List<String> finish() {
+            if (textChars > 0 || pages.isEmpty()) {
+                closePage();
+            }
+            return pages;
+        }
+
+        private void countAndMaybeBreak(int chars) {
+            textChars += chars;
+            if (textChars >= PAGE_CHARS) {
+                closePage();
+            }
+        }
+
+        private void closePage() {
+            pages.add("<div class=\"preview-page\">\n" + current + "</div>\n");
+            current = new StringBuilder();
+            textChars = 0;
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    /**
+     * A page is at most about PAGE_CHARS of text plus markup: compressed in memory
+     */
+    private byte[] compress(String html) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes);
+             Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            writer.write(html);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Optional<Integer> readPageCount(String baseName) {
+        try (InputStream in = blobStore.open(baseName + PAGE_COUNT_SUFFIX)) {
+            return Optional.of(Integer.parseInt(new String(in.readAllBytes(), StandardCharsets.UTF_8).trim()));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the preview of " + baseName, e);
+        }
+    }
+
+    private String baseName(String fileName) {
+        // The blob store rejects keys that are not plain file names
+        return fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
+    }
+
+    private String pageKey(String baseName, int page) {
+        return baseName + KEY_INFIX + String.format("%04d.html.gz", page);
+    }
+
+    private String extensionOf(String fileName) {
+        int dotIndex = fileName.lastIndexOf('.');
+        return dotIndex == -1 ? "" : fileName.substring(dotIndex + 1).toLowerCase(Locale.ROOT);
+    }
+}
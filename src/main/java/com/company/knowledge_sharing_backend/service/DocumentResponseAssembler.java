@@ -0,0 +1,182 @@
+package com.company.knowledge_sharing_backend.service;
+
+import com.company.knowledge_sharing_backend.dto.response.DocumentResponse;
+import com.company.knowledge_sharing_backend.entity.Document;
+import com.company.knowledge_sharing_backend.entity.SharingLevel;
+import com.company.knowledge_sharing_backend.repository.DocumentRepository;
+import com.company.knowledge_sharing_backend.repository.GroupRepository;
+import com.company.knowledge_sharing_backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Builds list responses for a page of documents without touching their lazy associations.
+ * Owner usernames, tag names and group ids come from one batched query each, so a page costs
+ * the same three queries whatever its size (rating aggregates are columns of the document row).
+ * Access filtering adds one query for the viewer's groups and reads group rows only where they
+ * decide access (see {@link #toAccessibleResponses(List, Long, int, boolean)}).
+ */
+@Service
+public class DocumentResponseAssembler {
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    /**
+     * Map documents to responses, keeping their order
+     *
+     * @param includeContent whether to copy the full content into each response
+     */
+    public List<DocumentResponse> toResponses(List<Document> documents, boolean includeContent) {
+        if (documents.isEmpty()) {
+            return List.of();
+        }
+        return toResponses(documents, findGroupIds(documents), includeContent);
+    }
+
+    /**
+     * Map the documents the user may see to responses, keeping their order: own documents,
+     * public ones, and group documents shared with one of the user's groups. Candidates are
+     * checked in batches of {@code limit}, so a long ranked list stops being read once enough
+     * are found; group rows are only fetched for other users' GROUP documents, plus once more
+     * for the own and public documents that end up in the response.
+     *
+     * @param limit maximum number of responses
+     */
+    public List<DocumentResponse> toAccessibleResponses(List<Document> documents, Long userId, int limit,
+                                                        boolean includeContent) {
+        if (documents.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, List<Long>> groupIds = new HashMap<>();
+        Set<Long> groupIdsFetched = new HashSet<>();
+        Set<Long> userGroupIds = null;
+        List<Document> accessible = new ArrayList<>();
+        int batchSize = Math.max(1, Math.min(limit, documents.size()));
+        for (int from = 0; from < documents.size() && accessible.size() < limit; from += batchSize) {
+            List<Document> batch = documents.subList(from, Math.min(from + batchSize, documents.size()));
+
+            List<Document> sharedWithGroups = batch.stream()
+                    .filter(document -> isOthersGroupDocument(document, userId))
+                    .collect(Collectors.toList());
+            if (!sharedWithGroups.isEmpty()) {
+                if (userGroupIds == null) {
+                    userGroupIds = new HashSet<>(groupRepository.findIdsByUserId(userId));
+                }
+                // Without groups of their own the user sees none of them: no need to read their rows
+                if (!userGroupIds.isEmpty()) {
+                    groupIds.putAll(findGroupIds(sharedWithGroups));
+                    sharedWithGroups.forEach(document -> groupIdsFetched.add(document.getId()));
+                }
+            }
+
+            for (Document document : batch) {
+                if (accessible.size() >= limit) {
+                    break;
+                }
+                boolean allowed = document.getOwner().getId().equals(userId)
+                        || document.getSharingLevel() == SharingLevel.PUBLIC;
+                if (!allowed && isOthersGroupDocument(document, userId)) {
+                    allowed = groupIds.getOrDefault(document.getId(), List.of()).stream()
+                            .anyMatch(userGroupIds::contains);
+                }
+                if (allowed) {
+                    accessible.add(document);
+                }
+            }
+        }
+
+        if (accessible.isEmpty()) {
+            return List.of();
+        }
+
+        // Own and public documents were let through without their group rows; the response lists them
+        List<Document> withoutGroupIds = accessible.stream()
+                .filter(document -> !groupIdsFetched.contains(document.getId()))
+                .collect(Collectors.toList());
+        if (!withoutGroupIds.isEmpty()) {
+            groupIds.putAll(findGroupIds(withoutGroupIds));
+        }
+        return toResponses(accessible, groupIds, includeContent);
+    }
+
+    /**
+     * Map all documents the user may see to responses
+     */
+    public List<DocumentResponse> toAccessibleResponses(List<Document> documents, Long userId, boolean includeContent) {
+        return toAccessibleResponses(documents, userId, Integer.MAX_VALUE, includeContent);
+    }
+
+    private static boolean isOthersGroupDocument(Document document, Long userId) {
+        return userId != null
+                && document.getSharingLevel() == SharingLevel.GROUP
+                && !document.getOwner().getId().equals(userId);
+    }
+
+    private Map<Long, List<Long>> findGroupIds(List<Document> documents) {
+        Set<Long> documentIds = documents.stream().map(Document::getId).collect(Collectors.toSet());
+
+        Map<Long, List<Long>> groupIds = new HashMap<>();
+        for (Object[] row : documentRepository.findGroupIdsByDocumentIds(documentIds)) {
+            // Native query: the driver may hand back Integer or BigInteger
+            long documentId = ((Number) row[0]).longValue();
+            groupIds.computeIfAbsent(documentId, id -> new ArrayList<>()).add(((Number) row[1]).longValue());
+        }
+        return groupIds;
+    }
+
+    private List<DocumentResponse> toResponses(List<Document> documents, Map<Long, List<Long>> groupIds,
+                                               boolean includeContent) {
+        Set<Long> documentIds = new HashSet<>();
+        Set<Long> ownerIds = new HashSet<>();
+        for (Document document : documents) {
+            documentIds.add(document.getId());
+            // Reading the id of an uninitialized proxy does not load it
+            ownerIds.add(document.getOwner().getId());
+        }
+
+        Map<Long, String> usernames = new HashMap<>();
+        for (Object[] row : userRepository.findUsernamesByIds(ownerIds)) {
+            usernames.put((Long) row[0], (String) row[1]);
+        }
+
+        Map<Long, List<String>> tagNames = new HashMap<>();
+        for (Object[] row : documentRepository.findTagNamesByDocumentIds(documentIds)) {
+            tagNames.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+
+        return documents.stream()
+                .map(document -> DocumentResponse.builder()
+                        .id(document.getId())
+                        .title(document.getTitle())
+                        .summary(document.getSummary())
+                        .content(includeContent ? document.getContent() : null)
+                        .filePath(document.getFilePath())
+                        .thumbnailUrl(ThumbnailService.thumbnailUrl(document))
+                        .fileType(document.getFileType().name())
+                        .fileSize(document.getFileSize())
+                        .sharingLevel(document.getSharingLevel().name())
+                        .versionNumber(document.getVersionNumber())
+                        .isArchived(document.getIsArchived())
+                        .ownerId(document.getOwner().getId())
+                        .ownerUsername(usernames.get(document.getOwner().getId()))
+                        .averageRating(document.getAverageRating())
+                        .ratingCount(document.getRatingCount())
+                        .createdAt(document.getCreatedAt())
+                        .updatedAt(document.getUpdatedAt())
+                        .tags(tagNames.getOrDefault(document.getId(), List.of()))
+                        .groupIds(groupIds.getOrDefault(document.getId(), List.of()))
+                        .build())
+                .collect(Collectors.toList());
+    }
+}
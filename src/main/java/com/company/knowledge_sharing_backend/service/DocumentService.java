@@ -32,5 +32,7 @@ public interface DocumentService {
     List<DocumentVersionResponse> getDocumentVersions(Long documentId, Long userId);
 
     List<DocumentResponse> getRelatedDocuments(Long documentId, Long userId, int limit);
+
+    String getDocumentFilePath(Long documentId, Long userId);
 }
 
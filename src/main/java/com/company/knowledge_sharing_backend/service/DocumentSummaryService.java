@@ -1,15 +1,11 @@
 package com.company.knowledge_sharing_backend.service;
 
 import com.company.knowledge_sharing_backend.dto.response.SummaryResponse;
-import com.company.knowledge_sharing_backend.exception.RateLimitExceededException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class DocumentSummaryService {
@@ -20,26 +16,21 @@ public class DocumentSummaryService {
     @Autowired
     private GeminiService geminiService;
 
-    @Value("${api.rate.limit.summary.requests-per-minute:10}")
-    private int maxRequestsPerMinute;
-
-    // Rate limiting: userId -> [count, timestamp]
-    private final Map<Long, RateLimitInfo> rateLimitMap = new ConcurrentHashMap<>();
+    @Autowired
+    private RateLimiterService rateLimiterService;
 
     private static final int MAX_WORDS = 3000; // Truncate to avoid token limits
+    private static final int MAX_CHARS = 30_000; // Same limit for text without word breaks
 
     /**
      * Generate summary from uploaded file (preview only, not saved)
      */
     public SummaryResponse generateSummary(MultipartFile file, Long userId) {
         // Check rate limit
-        checkRateLimit(userId);
-
-        // Extract text from file
-        String extractedText = textExtractionService.extractText(file);
+        rateLimiterService.acquire(RateLimiterService.Scope.SUMMARY, userId);
 
-        // Truncate if too long
-        extractedText = textExtractionService.truncateText(extractedText, MAX_WORDS);
+        // Extract text from file (extractors stop once MAX_WORDS words are read)
+        String extractedText = textExtractionService.extractText(file, MAX_WORDS, MAX_CHARS);
 
         // Generate summary using Gemini
         String summary = geminiService.generateSummary(extractedText);
@@ -50,45 +41,18 @@ public class DocumentSummaryService {
     }
 
     /**
-     * Check rate limit per user
+     * Non-blocking variant: text is extracted on the calling thread (the multipart
+     * stream is only valid during the request), then the Gemini call runs without
+     * holding that thread
      */
-    private void checkRateLimit(Long userId) {
-        long currentTime = System.currentTimeMillis();
+    public CompletableFuture<SummaryResponse> generateSummaryAsync(MultipartFile file, Long userId) {
+        rateLimiterService.acquire(RateLimiterService.Scope.SUMMARY, userId);
 
-        rateLimitMap.compute(userId, (key, info) -> {
-            if (info == null) {
-                return new RateLimitInfo(1, currentTime);
-            }
+        String extractedText = textExtractionService.extractText(file, MAX_WORDS, MAX_CHARS);
 
-            // Reset if 1 minute has passed
-            if (currentTime - info.timestamp > 60000) {
-                return new RateLimitInfo(1, currentTime);
-            }
-
-            // Check limit
-            if (info.count >= maxRequestsPerMinute) {
-                throw new RateLimitExceededException(
-                        "Rate limit exceeded. Maximum " + maxRequestsPerMinute + " requests per minute."
-                );
-            }
-
-            // Increment count
-            info.count++;
-            return info;
-        });
-    }
-
-    /**
-     * Inner class for rate limit tracking
-     */
-    private static class RateLimitInfo {
-        int count;
-        long timestamp;
-
-        RateLimitInfo(int count, long timestamp) {
-            this.count = count;
-            this.timestamp = timestamp;
-        }
+        return geminiService.generateSummaryAsync(extractedText)
+                .thenApply(summary -> SummaryResponse.builder()
+                        .summary(summary)
+                        .build());
     }
 }
-
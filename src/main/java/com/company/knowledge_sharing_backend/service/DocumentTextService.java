@@ -0,0 +1,273 @@
+package com.company.knowledge_sharing_backend.service;
+
+import com.company.knowledge_sharing_backend.entity.DocumentText;
+import com.company.knowledge_sharing_backend.entity.DocumentVersion;
+import com.company.knowledge_sharing_backend.repository.DocumentTextRepository;
+import com.company.knowledge_sharing_backend.repository.DocumentVersionRepository;
+import com.company.knowledge_sharing_backend.util.HashUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Full text of stored document files. Each version is extracted once by the processing
+ * pipeline; versions whose file bytes did not change reuse the existing text.
+ */
+@Service
+@Slf4j
+public class DocumentTextService {
+
+    // Upper bound on stored words per version (keeps rows and downstream inputs bounded)
+    private static final int MAX_STORED_WORDS = 200_000;
+    // ...and characters (bounds text with few or no word breaks, e.g. encoded blobs)
+    private static final int MAX_STORED_CHARS = 2_000_000;
+
+    // Keyword search considers at most this many text matches
+    private static final int MAX_TEXT_MATCHES = 1000;
+    private static final String FULLTEXT_INDEX = "ft_document_text";
+    // Rows converted per statement batch when moving legacy gzip text into search_text
+    private static final int LEGACY_TEXT_BATCH = 50;
+
+    private static final Pattern LINE_BREAKS = Pattern.compile("\\r\\n?");
+    private static final Pattern CONTROL_CHARS = Pattern.compile("[\\p{Cntrl}&&[^\\n\\t]]");
+    private static final Pattern HORIZONTAL_SPACE = Pattern.compile("[\\t\\x0B\\f \\u00A0]+");
+    private static final Pattern SPACE_AROUND_NEWLINE = Pattern.compile(" ?\\n ?");
+    private static final Pattern BLANK_LINES = Pattern.compile("\\n{3,}");
+
+    @Autowired
+    private DocumentTextRepository documentTextRepository;
+
+    @Autowired
+    private DocumentVersionRepository versionRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private TextExtractionService textExtractionService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Set once the FULLTEXT index is known to exist; MATCH fails without it
+    private volatile boolean fullTextReady;
+
+    /**
+     * Extract and store the text of a version. Returns false if the stored text is already
+     * current or the file type has no text.
+     */
+    public boolean storeText(Long versionId) {
+        DocumentVersion version = versionRepository.findById(versionId).orElse(null);
+        if (version == null || !textExtractionService.isSupported(version.getFilePath())) {
+            return false;
+        }
+
+        String fileName = version.getFilePath();
+        // Hash recorded at upload; legacy versions are hashed here
+        String contentHash = version.getContentHash() != null ? version.getContentHash() : hashFile(fileName);
+        int extractorVersion = TextExtractionService.EXTRACTOR_VERSION;
+
+        Optional<DocumentText> existing = documentTextRepository.findByVersionId(versionId);
+        if (existing.isPresent()
+                && existing.get().getContentHash().equals(contentHash)
+                && existing.get().getExtractorVersion() == extractorVersion) {
+            return false;
+        }
+
+        // Same bytes already extracted (e.g. metadata-only update): copy instead of parsing again
+        String text;
+        Optional<DocumentText> identical = documentTextRepository
+                .findFirstByContentHashAndExtractorVersion(contentHash, extractorVersion);
+        if (identical.isPresent()) {
+            text = identical.get().getText();
+        } else {
+            // Parse outside any transaction; this may take seconds
+            try (FileStorageService.LocalFile file = fileStorageService.openLocalFile(fileName)) {
+                text = normalize(textExtractionService.extractText(file.path(), contentHash, MAX_STORED_WORDS, MAX_STORED_CHARS));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read stored file " + fileName, e);
+            }
+        }
+        int charCount = text.length();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            DocumentText documentText = documentTextRepository.findByVersionId(versionId)
+                    .orElseGet(() -> DocumentText.builder()
+                            .version(versionRepository.getReferenceById(versionId))
+                            .build());
+            documentText.setContentHash(contentHash);
+            documentText.setExtractorVersion(extractorVersion);
+            documentText.setText(text);
+            documentText.setCharCount(charCount);
+            documentTextRepository.save(documentText);
+        });
+
+        log.info("Stored {} chars of text for version {}", charCount, versionId);
+        return true;
+    }
+
+    /**
+     * Get full text of the latest version of a document
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> getLatestText(Long documentId) {
+        return documentTextRepository.findLatestByDocumentId(documentId)
+                .map(DocumentText::getText);
+    }
+
+    /**
+     * Get at most maxWords words of the latest text of a document
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> getLatestExcerpt(Long documentId, int maxWords) {
+        return getLatestText(documentId).map(text -> textExtractionService.truncateText(text, maxWords));
+    }
+
+    /**
+     * Get full text of a specific version
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> getText(Long versionId) {
+        return documentTextRepository.findByVersionId(versionId)
+                .map(DocumentText::getText);
+    }
+
+    /**
+     * Ids of documents whose current file text matches the keywords (at most MAX_TEXT_MATCHES,
+     * most relevant first). Empty until the FULLTEXT index exists.
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findDocumentIdsMatching(String keywords) {
+        if (!fullTextReady || keywords == null || keywords.isBlank()) {
+            return List.of();
+        }
+        try {
+            return documentTextRepository.findDocumentIdsMatching(keywords.trim(), MAX_TEXT_MATCHES);
+        } catch (Exception e) {
+            log.warn("File text search failed, matching metadata only: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * One-time schema work for keyword search, run at startup: move texts stored by earlier
+     * releases out of the gzip column, then create the FULLTEXT index
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void prepareTextSearch() {
+        migrateLegacyText();
+        ensureFullTextIndex();
+    }
+
+    /**
+     * Earlier releases kept text only gzip-compressed in compressed_text (NOT NULL, which would
+     * reject new rows). Decompress those rows into search_text and drop the column; a failed run
+     * leaves the column in place and is retried at the next startup.
+     */
+    void migrateLegacyText() {
+        try {
+            Integer legacyColumn = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.columns " +
+                    "WHERE table_schema = DATABASE() AND table_name = 'document_texts' AND column_name = 'compressed_text'",
+                    Integer.class);
+            if (legacyColumn == null || legacyColumn == 0) {
+                return;
+            }
+
+            long afterId = 0;
+            int migrated = 0;
+            while (true) {
+                List<Object[]> rows = jdbcTemplate.query(
+                        "SELECT id, compressed_text FROM document_texts " +
+                        "WHERE id > ? AND search_text IS NULL ORDER BY id LIMIT ?",
+                        (rs, rowNum) -> new Object[]{rs.getLong(1), decompress(rs.getBytes(2))},
+                        afterId, LEGACY_TEXT_BATCH);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                jdbcTemplate.batchUpdate("UPDATE document_texts SET search_text = ? WHERE id = ?",
+                        rows.stream().map(row -> new Object[]{row[1], row[0]}).toList());
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+                migrated += rows.size();
+            }
+
+            log.info("Moved {} stored texts to search_text, dropping compressed_text", migrated);
+            jdbcTemplate.execute("ALTER TABLE document_texts DROP COLUMN compressed_text");
+        } catch (Exception e) {
+            log.warn("Could not migrate compressed document texts: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Create the FULLTEXT index on the stored text (JPA cannot declare one)
+     */
+    void ensureFullTextIndex() {
+        try {
+            Integer existing = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM information_schema.statistics " +
+                    "WHERE table_schema = DATABASE() AND table_name = 'document_texts' AND index_name = ?",
+                    Integer.class, FULLTEXT_INDEX);
+            if (existing == null || existing == 0) {
+                log.info("Creating FULLTEXT index {} on document_texts", FULLTEXT_INDEX);
+                jdbcTemplate.execute("CREATE FULLTEXT INDEX " + FULLTEXT_INDEX + " ON document_texts (search_text)");
+            }
+            fullTextReady = true;
+        } catch (Exception e) {
+            log.warn("FULLTEXT index unavailable, keyword search will not cover file text: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Unicode NFKC, single spaces, no control characters, at most one blank line in a row
+     */
+    static String normalize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC);
+        normalized = LINE_BREAKS.matcher(normalized).replaceAll("\n");
+        normalized = CONTROL_CHARS.matcher(normalized).replaceAll(" ");
+        normalized = HORIZONTAL_SPACE.matcher(normalized).replaceAll(" ");
+        normalized = SPACE_AROUND_NEWLINE.matcher(normalized).replaceAll("\n");
+        normalized = BLANK_LINES.matcher(normalized).replaceAll("\n\n");
+        return normalized.trim();
+    }
+
+    private String hashFile(String fileName) {
+        MessageDigest digest = HashUtil.newSha256();
+        try (InputStream in = new DigestInputStream(fileStorageService.openStream(fileName), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read stored file " + fileName, e);
+        }
+        return HashUtil.toHex(digest.digest());
+    }
+
+    private static String decompress(byte[] compressed) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
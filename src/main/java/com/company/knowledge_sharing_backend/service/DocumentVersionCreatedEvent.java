@@ -0,0 +1,7 @@
+package com.company.knowledge_sharing_backend.service;
+
+/**
+ * Published when a document version is saved; listeners run after the transaction commits
+ */
+public record DocumentVersionCreatedEvent(Long documentId, Long versionId, String filePath) {
+}
@@ -0,0 +1,173 @@
+package com.company.knowledge_sharing_backend.service;
+
+import com.company.knowledge_sharing_backend.config.FileStorageProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local disk cache of extracted text, keyed by the SHA-256 of the raw file bytes plus the
+ * extractor version. Entries are gzip-compressed and evicted least-recently-used once the
+ * total size exceeds the configured cap.
+ */
+@Service
+@Slf4j
+public class ExtractionCacheService {
+
+    private static final String SUFFIX = ".txt.gz";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path cacheLocation;
+    private final long maxBytes;
+
+    // key -> compressed size, in access order (eldest = least recently used)
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    @Autowired
+    public ExtractionCacheService(FileStorageProperties fileStorageProperties) {
+        this.cacheLocation = Paths.get(fileStorageProperties.getExtractionCacheDir()).toAbsolutePath().normalize();
+        this.maxBytes = fileStorageProperties.getExtractionCacheMaxBytes();
+
+        try {
+            Files.createDirectories(cacheLocation);
+            loadIndex();
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not initialize extraction cache directory.", ex);
+        }
+    }
+
+    /**
+     * Get cached text for the key, if present
+     */
+    public Optional<String> get(String key) {
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                return Optional.empty();
+            }
+        }
+
+        Path file = cacheLocation.resolve(key + SUFFIX);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            // Persist recency so the LRU order survives restarts
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(text);
+        } catch (IOException e) {
+            log.warn("Dropping unreadable extraction cache entry {}: {}", key, e.getMessage());
+            remove(key);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Store text for the key (write to temp file, then atomic rename)
+     */
+    public void put(String key, String text) {
+        Path target = cacheLocation.resolve(key + SUFFIX);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(cacheLocation, key, TEMP_SUFFIX);
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                out.write(text.getBytes(StandardCharsets.UTF_8));
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+
+            long size = Files.size(target);
+            synchronized (this) {
+                Long previous = entries.put(key, size);
+                totalBytes += size - (previous != null ? previous : 0);
+                evictIfNeeded();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write extraction cache entry {}: {}", key, e.getMessage());
+        } finally {
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    // Helper methods
+
+    private synchronized void evictIfNeeded() {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            eldest.remove();
+            totalBytes -= entry.getValue();
+            deleteQuietly(cacheLocation.resolve(entry.getKey() + SUFFIX));
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (this) {
+            Long size = entries.remove(key);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        }
+        deleteQuietly(cacheLocation.resolve(key + SUFFIX));
+    }
+
+    private void loadIndex() throws IOException {
+        // Temp files left by writes interrupted by a crash are never renamed into place
+        List<Path> orphans;
+        try (Stream<Path> files = Files.list(cacheLocation)) {
+            orphans = files.filter(file -> file.getFileName().toString().endsWith(TEMP_SUFFIX)).toList();
+        }
+        orphans.forEach(this::deleteQuietly);
+        if (!orphans.isEmpty()) {
+            log.info("Deleted {} unfinished extraction cache files", orphans.size());
+        }
+
+        try (Stream<Path> files = Files.list(cacheLocation)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(this::lastModified))
+                    .forEach(file -> {
+                        String name = file.getFileName().toString();
+                        long size = file.toFile().length();
+                        entries.put(name.substring(0, name.length() - SUFFIX.length()), size);
+                        totalBytes += size;
+                    });
+        }
+        evictIfNeeded();
+        log.info("Extraction cache loaded: {} entries, {} bytes", entries.size(), totalBytes);
+    }
+
+    private FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete extraction cache file {}: {}", file, e.getMessage());
+        }
+    }
+}
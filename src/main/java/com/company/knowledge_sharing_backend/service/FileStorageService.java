@@ -3,28 +3,54 @@ package com.company.knowledge_sharing_backend.service;
 import com.company.knowledge_sharing_backend.config.FileStorageProperties;
 import com.company.knowledge_sharing_backend.exception.BadRequestException;
 import com.company.knowledge_sharing_backend.entity.FileType;
+import com.company.knowledge_sharing_backend.entity.StoredBlob;
+import com.company.knowledge_sharing_backend.exception.ResourceNotFoundException;
+import com.company.knowledge_sharing_backend.repository.StoredBlobRepository;
+import com.company.knowledge_sharing_backend.util.HashUtil;
+import com.company.knowledge_sharing_backend.util.LimitedInputStream;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @Service
+@Slf4j
 public class FileStorageService {
 
     private final Path fileStorageLocation;
 
+    private final FileStorageProperties fileStorageProperties;
+
+    private final StoredBlobRepository storedBlobRepository;
+
+    private final BlobStore blobStore;
+
     // Allowed file extensions
     private static final List<String> ALLOWED_EXTENSIONS = Arrays.asList(
         "pdf", "doc", "docx", "jpg", "jpeg", "png"
@@ -33,8 +59,20 @@ public class FileStorageService {
     // Max file size: 10MB
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024;
 
+    // Images and OOXML (zip) containers are compressed already; a PDF is tried and kept
+    // compressed only if its streams were not deflated
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of("pdf", "doc");
+
+    public static final String GZIP_ENCODING = "gzip";
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     @Autowired
-    public FileStorageService(FileStorageProperties fileStorageProperties) {
+    public FileStorageService(FileStorageProperties fileStorageProperties, StoredBlobRepository storedBlobRepository,
+                              BlobStore blobStore) {
+        this.fileStorageProperties = fileStorageProperties;
+        this.storedBlobRepository = storedBlobRepository;
+        this.blobStore = blobStore;
         this.fileStorageLocation = Paths.get(fileStorageProperties.getUploadDir())
                 .toAbsolutePath().normalize();
 
@@ -46,58 +84,439 @@ public class FileStorageService {
     }
 
     /**
-     * Store file and return file path
+     * Stored file name, SHA-256 of its bytes and its size
      */
-    public String storeFile(MultipartFile file) {
+    public record StoredFile(String fileName, String contentHash, long size, String contentType) {
+    }
+
+    /**
+     * What a download needs: location (null for remote stores), length, type and validators.
+     * Content-addressed files never change, so they can be cached forever. Size and ETag
+     * describe the original bytes; an encoded file is stored as {@code storedSize} bytes
+     * of {@code contentEncoding} at the path.
+     */
+    public record FileInfo(String fileName, Path path, long size, String contentType, String etag,
+                           Instant lastModified, boolean immutable,
+                           String contentEncoding, long storedSize) {
+
+        public boolean encoded() {
+            return contentEncoding != null;
+        }
+    }
+
+    /**
+     * Store file in a single pass: the upload stream is hashed while it is written to a temp
+     * file, which then becomes {@code <sha256>.<ext>} in the blob store. Identical bytes are
+     * stored once; the returned file holds one new reference (call inside the transaction
+     * that records it). Compressible formats are stored gzip-encoded when that pays off; the
+     * hash and size always describe the original bytes.
+     */
+    public StoredFile storeFile(MultipartFile file) {
         // Validate file
         validateFile(file);
 
-        // Generate unique filename
         String originalFileName = StringUtils.cleanPath(file.getOriginalFilename());
-        String fileExtension = getFileExtension(originalFileName);
-        String fileName = UUID.randomUUID().toString() + "." + fileExtension;
 
+        Path tempFile = null;
         try {
-            // Copy file to target location
-            Path targetLocation = this.fileStorageLocation.resolve(fileName);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            tempFile = Files.createTempFile(this.fileStorageLocation, ".upload-", ".tmp");
 
-            return fileName;
+            MessageDigest digest = HashUtil.newSha256();
+            long size;
+            // Streamed uploads report no size up front: the limit is enforced while copying
+            try (InputStream in = new DigestInputStream(new LimitedInputStream(file.getInputStream(), MAX_FILE_SIZE + 1), digest)) {
+                size = Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (size == 0) {
+                throw new BadRequestException("File is required");
+            }
+            if (size > MAX_FILE_SIZE) {
+                throw new BadRequestException("File size exceeds maximum limit of 10MB");
+            }
+
+            return store(tempFile, HashUtil.toHex(digest.digest()), size, originalFileName);
         } catch (IOException ex) {
-            throw new RuntimeException("Could not store file " + fileName + ". Please try again!", ex);
+            throw new RuntimeException("Could not store file " + originalFileName + ". Please try again!", ex);
+        } finally {
+            deleteQuietly(tempFile);
         }
     }
 
     /**
-     * Load file as Resource
+     * Store a file read from a stream (a chunked upload, read back from its staged chunks),
+     * hashed while it is written to a temp file as above. Size limits are up to the caller.
      */
-    public Resource loadFileAsResource(String fileName) {
+    public StoredFile storeFile(InputStream content, String originalFileName) {
+        validateFileName(originalFileName);
+
+        Path tempFile = null;
+        try (InputStream in = content) {
+            tempFile = Files.createTempFile(this.fileStorageLocation, ".upload-", ".tmp");
+
+            MessageDigest digest = HashUtil.newSha256();
+            long size = Files.copy(new DigestInputStream(in, digest), tempFile, StandardCopyOption.REPLACE_EXISTING);
+
+            return store(tempFile, HashUtil.toHex(digest.digest()), size, StringUtils.cleanPath(originalFileName));
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not store file " + originalFileName + ". Please try again!", ex);
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    private StoredFile store(Path file, String contentHash, long size, String originalFileName) throws IOException {
+        String fileExtension = getFileExtension(originalFileName).toLowerCase();
+        String fileName = contentHash + "." + fileExtension;
+        String contentType = guessContentType(fileName);
+
+        // Reference first: the row lock keeps the garbage collector from deleting the
+        // file between the existence check below and our commit
+        storedBlobRepository.acquire(fileName, contentHash, size, contentType);
+
+        Optional<BlobStore.BlobStat> existing = blobStore.stat(fileName);
+        if (existing.isEmpty()) {
+            write(file, fileName, fileExtension, size, contentType);
+        } else if (storedBlobRepository.findByFileName(fileName).map(StoredBlob::getStoredSize).isEmpty()) {
+            // The file is there but the row does not say how: written by an upload whose
+            // transaction rolled back (taking the new row with it), or before encodings were recorded
+            recordExistingEncoding(file, fileName, fileExtension, size, contentType, existing.get());
+        }
+
+        return new StoredFile(fileName, contentHash, size, contentType);
+    }
+
+    /**
+     * Write the blob, compressed when that pays off, and record how it was written
+     */
+    private void write(Path file, String fileName, String fileExtension, long size, String contentType) throws IOException {
+        Path compressedFile = null;
         try {
-            Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
+            // Compressed only when actually written: duplicates skip the work
+            Path storedFile = file;
+            String contentEncoding = null;
+            long storedSize = size;
+            if (isCompressible(fileExtension, size)) {
+                compressedFile = Files.createTempFile(this.fileStorageLocation, ".upload-", ".gz.tmp");
+                long compressedSize = compress(file, compressedFile);
+                if (compressedSize * 100 <= size * (100L - fileStorageProperties.getCompressionMinSavingsPercent())) {
+                    storedFile = compressedFile;
+                    contentEncoding = GZIP_ENCODING;
+                    storedSize = compressedSize;
+                }
+            }
+            blobStore.put(fileName, storedFile, contentType);
+            // Also covers a row that outlived its file (lost, or stored before compression)
+            storedBlobRepository.updateEncoding(fileName, contentEncoding, storedSize);
+        } finally {
+            deleteQuietly(compressedFile);
+        }
+    }
+
+    /**
+     * Work out the encoding of a blob that is already stored: the original size means raw,
+     * a different size with the gzip header means gzip. Anything else cannot be decoded into
+     * these bytes, so it is replaced.
+     */
+    private void recordExistingEncoding(Path file, String fileName, String fileExtension, long size,
+                                        String contentType, BlobStore.BlobStat stat) throws IOException {
+        if (stat.size() == size) {
+            storedBlobRepository.updateEncoding(fileName, null, stat.size());
+        } else if (hasGzipHeader(fileName)) {
+            storedBlobRepository.updateEncoding(fileName, GZIP_ENCODING, stat.size());
+        } else {
+            log.warn("Stored file {} has {} bytes, expected {}; storing it again", fileName, stat.size(), size);
+            blobStore.delete(fileName);
+            write(file, fileName, fileExtension, size, contentType);
+        }
+    }
+
+    private boolean hasGzipHeader(String fileName) throws IOException {
+        try (InputStream in = blobStore.openRange(fileName, 0, 1)) {
+            byte[] header = in.readNBytes(2);
+            return header.length == 2 && (header[0] & 0xff) == 0x1f && (header[1] & 0xff) == 0x8b;
+        }
+    }
+
+    private boolean isCompressible(String fileExtension, long size) {
+        return fileStorageProperties.isCompressionEnabled()
+                && !blobStore.compressesContent()
+                && size >= fileStorageProperties.getCompressionMinBytes()
+                && COMPRESSIBLE_EXTENSIONS.contains(fileExtension);
+    }
+
+    private long compress(Path source, Path target) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(target), GZIP_BUFFER_SIZE)) {
+            Files.copy(source, out);
+        }
+        return Files.size(target);
+    }
+
+    /**
+     * Add a reference to an already stored file (a new version keeping the same file)
+     */
+    public void retainFile(String fileName) {
+        storedBlobRepository.retain(fileName);
+    }
+
+    /**
+     * Drop a reference to a stored file. Unreferenced blobs are removed by the garbage
+     * collector after a grace period; files from before the blob store are deleted directly.
+     */
+    public void releaseFile(String fileName) {
+        if (storedBlobRepository.release(fileName, LocalDateTime.now()) == 0
+                && storedBlobRepository.findByFileName(fileName).isEmpty()) {
+            deleteFile(fileName);
+        }
+    }
+
+    /**
+     * Describe a stored file for serving. Blob metadata comes from the blob table; files
+     * from before the blob store fall back to the store's own metadata.
+     */
+    public FileInfo getFileInfo(String fileName) {
+        Path localPath;
+        try {
+            localPath = blobStore.localPath(fileName).orElse(null);
+        } catch (IllegalArgumentException e) {
+            throw new ResourceNotFoundException("File not found " + fileName);
+        }
+        if (localPath != null && !Files.isRegularFile(localPath)) {
+            throw new ResourceNotFoundException("File not found " + fileName);
+        }
+
+        Optional<StoredBlob> blob = storedBlobRepository.findByFileName(fileName);
+        if (blob.isPresent()) {
+            StoredBlob storedBlob = blob.get();
+            String contentType = storedBlob.getContentType() != null
+                    ? storedBlob.getContentType() : guessContentType(fileName);
+            Instant lastModified = storedBlob.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant();
+            long storedSize = storedBlob.getStoredSize() != null ? storedBlob.getStoredSize() : storedBlob.getSize();
+            return new FileInfo(fileName, localPath, storedBlob.getSize(), contentType,
+                    "\"" + storedBlob.getContentHash() + "\"", lastModified, true,
+                    storedBlob.getContentEncoding(), storedSize);
+        }
+
+        try {
+            BlobStore.BlobStat stat = blobStore.stat(fileName)
+                    .orElseThrow(() -> new ResourceNotFoundException("File not found " + fileName));
+            String etag = "\"" + Long.toHexString(stat.size()) + "-" + Long.toHexString(stat.lastModified().toEpochMilli()) + "\"";
+            return new FileInfo(fileName, localPath, stat.size(), guessContentType(fileName), etag,
+                    stat.lastModified(), false, null, stat.size());
+        } catch (IOException ex) {
+            throw new ResourceNotFoundException("File not found " + fileName);
+        }
+    }
+
+    /**
+     * Open a stored file for reading; encoded files are decompressed on the fly
+     */
+    public InputStream openStream(String fileName) throws IOException {
+        return decode(blobStore.open(fileName), findContentEncoding(fileName));
+    }
 
-            if (resource.exists()) {
-                return resource;
-            } else {
-                throw new RuntimeException("File not found " + fileName);
+    /**
+     * Open bytes {@code start..end} (inclusive) of the original file. An encoded file is
+     * decompressed from the start, skipping up to the range.
+     */
+    public InputStream openRange(FileInfo file, long start, long end) throws IOException {
+        if (!file.encoded()) {
+            return blobStore.openRange(file.fileName(), start, end);
+        }
+        InputStream in = decode(blobStore.open(file.fileName()), file.contentEncoding());
+        try {
+            in.skipNBytes(start);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+        return new LimitedInputStream(in, end - start + 1);
+    }
+
+    /**
+     * Open bytes {@code start..end} (inclusive) as stored, i.e. still encoded
+     */
+    public InputStream openStoredRange(FileInfo file, long start, long end) throws IOException {
+        return blobStore.openRange(file.fileName(), start, end);
+    }
+
+    private String findContentEncoding(String fileName) {
+        return storedBlobRepository.findByFileName(fileName)
+                .map(StoredBlob::getContentEncoding)
+                .orElse(null);
+    }
+
+    private InputStream decode(InputStream in, String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return in;
+        }
+        if (!GZIP_ENCODING.equals(contentEncoding)) {
+            in.close();
+            throw new IOException("Unsupported content encoding " + contentEncoding);
+        }
+        try {
+            return new GZIPInputStream(in, GZIP_BUFFER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Make a stored file available as a local path for parsers that need one. With a remote
+     * store, or a file stored encoded, the original bytes are written to a temp file that is
+     * deleted on close.
+     */
+    public LocalFile openLocalFile(String fileName) throws IOException {
+        String contentEncoding = findContentEncoding(fileName);
+        Optional<Path> localPath = blobStore.localPath(fileName);
+        if (localPath.isPresent() && contentEncoding == null) {
+            if (!Files.isRegularFile(localPath.get())) {
+                throw new NoSuchFileException(fileName);
+            }
+            return new LocalFile(localPath.get(), false);
+        }
+
+        // Keep the name as suffix: parsers pick the format from the extension
+        Path tempFile = Files.createTempFile(this.fileStorageLocation, ".fetch-", "-" + fileName);
+        try (InputStream in = decode(blobStore.open(fileName), contentEncoding)) {
+            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(tempFile);
+            throw e;
+        }
+        return new LocalFile(tempFile, true);
+    }
+
+    /**
+     * A stored file on local disk; closing removes it if it was a temporary copy
+     */
+    public class LocalFile implements AutoCloseable {
+        private final Path path;
+        private final boolean temporary;
+
+        private LocalFile(Path path, boolean temporary) {
+            this.path = path;
+            this.temporary = temporary;
+        }
+
+        public Path path() {
+            return path;
+        }
+
+        @Override
+        public void close() {
+            if (temporary) {
+                deleteQuietly(path);
             }
-        } catch (MalformedURLException ex) {
-            throw new RuntimeException("File not found " + fileName, ex);
         }
     }
 
+    /**
+     * Local path of a stored file, if the store keeps files on local disk. The file holds
+     * the stored bytes, which may be encoded; use {@link #findLocalResource} to serve it.
+     */
+    public Optional<Path> getLocalPath(String fileName) {
+        return blobStore.localPath(fileName);
+    }
+
+    /**
+     * A locally stored file as a resource with its original bytes (decompressed on read when
+     * stored encoded), or empty if the store is remote or the file is missing
+     */
+    public Optional<Resource> findLocalResource(String fileName) {
+        Optional<Path> localPath = blobStore.localPath(fileName).filter(Files::isRegularFile);
+        if (localPath.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<StoredBlob> blob = storedBlobRepository.findByFileName(fileName);
+        if (blob.isPresent() && GZIP_ENCODING.equals(blob.get().getContentEncoding())) {
+            return Optional.of(new GzipFileResource(localPath.get(), fileName, blob.get().getSize()));
+        }
+        return Optional.of(new FileSystemResource(localPath.get()));
+    }
+
+    /**
+     * A gzip-encoded file read as its original bytes; the length comes from the blob row
+     * so nothing has to be decompressed to answer it
+     */
+    private static class GzipFileResource extends AbstractResource {
+        private final Path path;
+        private final String fileName;
+        private final long size;
+
+        GzipFileResource(Path path, String fileName, long size) {
+            this.path = path;
+            this.fileName = fileName;
+            this.size = size;
+        }
+
+        @Override
+        public boolean exists() {
+            return Files.isRegularFile(path);
+        }
+
+        @Override
+        public long contentLength() {
+            return size;
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return Files.getLastModifiedTime(path).toMillis();
+        }
+
+        @Override
+        public String getFilename() {
+            return fileName;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new GZIPInputStream(Files.newInputStream(path), GZIP_BUFFER_SIZE);
+        }
+
+        @Override
+        public String getDescription() {
+            return "gzip-encoded file [" + path + "]";
+        }
+    }
+
+    private String guessContentType(String fileName) {
+        return MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+    }
+
+    /**
+     * Load file as Resource
+     */
+    public Resource loadFileAsResource(String fileName) {
+        return findLocalResource(fileName)
+                .orElseThrow(() -> new RuntimeException("File not found " + fileName));
+    }
+
     /**
      * Delete file
      */
     public void deleteFile(String fileName) {
         try {
-            Path filePath = this.fileStorageLocation.resolve(fileName).normalize();
-            Files.deleteIfExists(filePath);
+            blobStore.delete(fileName);
         } catch (IOException ex) {
             throw new RuntimeException("Could not delete file " + fileName, ex);
         }
     }
 
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // Leftover temp files are harmless
+        }
+    }
+
     /**
      * Validate file
      */
@@ -111,8 +530,13 @@ public class FileStorageService {
             throw new BadRequestException("File size exceeds maximum limit of 10MB");
         }
 
-        // Check file extension
-        String originalFileName = file.getOriginalFilename();
+        validateFileName(file.getOriginalFilename());
+    }
+
+    /**
+     * Check the file extension against the allowed types
+     */
+    public void validateFileName(String originalFileName) {
         String fileExtension = getFileExtension(originalFileName);
 
         if (!ALLOWED_EXTENSIONS.contains(fileExtension.toLowerCase())) {
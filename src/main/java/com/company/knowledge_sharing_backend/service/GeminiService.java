@@ -1,5 +1,7 @@
 package com.company.knowledge_sharing_backend.service;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface GeminiService {
 
     /**
@@ -16,6 +18,20 @@ public interface GeminiService {
      */
     String generateEmbedding(String text);
 
+    /**
+     * Generate summary without blocking the calling thread
+     * @param text Input text to summarize
+     * @return Future completed with the generated summary
+     */
+    CompletableFuture<String> generateSummaryAsync(String text);
+
+    /**
+     * Generate embedding without blocking the calling thread
+     * @param text Input text to generate embedding
+     * @return Future completed with the embedding JSON string
+     */
+    CompletableFuture<String> generateEmbeddingAsync(String text);
+
     /**
      * Calculate cosine similarity between two embedding vectors
      * @param embedding1 First embedding JSON string
@@ -0,0 +1,272 @@
+package com.company.knowledge_sharing_backend.service;
+
+import com.company.knowledge_sharing_backend.config.FileStorageProperties;
+import com.company.knowledge_sharing_backend.dto.response.OrphanSweepReport;
+import com.company.knowledge_sharing_backend.entity.StoredBlob;
+import com.company.knowledge_sharing_backend.exception.BadRequestException;
+import com.company.knowledge_sharing_backend.repository.DocumentRepository;
+import com.company.knowledge_sharing_backend.repository.DocumentVersionRepository;
+import com.company.knowledge_sharing_backend.repository.StoredBlobRepository;
+import com.company.knowledge_sharing_backend.util.BloomFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Mark-and-sweep collection of stored files that no document or version references.
+ * <p>
+ * Reference counting ({@link BlobGarbageCollector}) handles normal deletes; this job catches
+ * what it cannot: files from before the blob table and references that were never released.
+ * Mark streams every referenced file name into a Bloom filter (~10 bits per name), sweep
+ * walks the blob store. A false positive only keeps a file until the next run; each
+ * deletion is confirmed with exact queries while the blob row is locked, so an upload that
+ * re-references the file concurrently wins.
+ */
+@Service
+@Slf4j
+public class OrphanFileCollector {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int SAMPLE_SIZE = 20;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private DocumentVersionRepository versionRepository;
+
+    @Autowired
+    private StoredBlobRepository storedBlobRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private DocumentPreviewService documentPreviewService;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private FileStorageProperties fileStorageProperties;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Counters updated while the store is walked
+     */
+    private static class SweepProgress {
+        long scanned;
+        long orphans;
+        long orphanBytes;
+        long deleted;
+        long deletedBytes;
+        boolean limitReached;
+        final List<String> sample = new ArrayList<>();
+    }
+
+    @Scheduled(initialDelay = 600000, fixedDelay = 21600000) // Run every 6 hours
+    public void scheduledSweep() {
+        if (!fileStorageProperties.isOrphanGcEnabled() || running.get()) {
+            return;
+        }
+        try {
+            sweep(fileStorageProperties.isOrphanGcDryRun());
+        } catch (Exception e) {
+            log.warn("Orphan file sweep failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Run one mark-and-sweep pass. With dryRun nothing is deleted; the report lists what would be.
+     */
+    public OrphanSweepReport sweep(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BadRequestException("An orphan file sweep is already running");
+        }
+        try {
+            LocalDateTime startedAt = LocalDateTime.now();
+            long startNanos = System.nanoTime();
+
+            BloomFilter referenced = new BloomFilter(
+                    documentRepository.count() + versionRepository.count(), FALSE_POSITIVE_RATE);
+            long referencedPaths = markReferenced(referenced);
+
+            SweepProgress progress = new SweepProgress();
+            Instant cutoff = Instant.now().minus(Duration.ofHours(fileStorageProperties.getOrphanGcGraceHours()));
+            try {
+                blobStore.list(entry -> {
+                    if (isDerivedKey(entry.key())) {
+                        return; // Removed with the file they belong to, or with their upload
+                    }
+                    progress.scanned++;
+                    if (entry.lastModified().isAfter(cutoff) || referenced.mightContain(entry.key())) {
+                        return; // Young (may be mid-upload) or referenced
+                    }
+                    progress.orphans++;
+                    progress.orphanBytes += entry.size();
+                    if (progress.sample.size() < SAMPLE_SIZE) {
+                        progress.sample.add(entry.key());
+                    }
+                    if (dryRun) {
+                        return;
+                    }
+                    if (progress.deleted >= fileStorageProperties.getOrphanGcMaxDeletesPerRun()) {
+                        progress.limitReached = true;
+                        return;
+                    }
+                    if (deleteIfOrphan(entry.key())) {
+                        progress.deleted++;
+                        progress.deletedBytes += entry.size();
+                        throttle();
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not list the blob store", e);
+            }
+
+            long durationNanos = System.nanoTime() - startNanos;
+            recordMetrics(dryRun, progress, durationNanos);
+
+            log.info("Orphan file sweep{}: {} referenced, {} scanned, {} orphans ({} bytes), {} deleted ({} bytes){}",
+                    dryRun ? " (dry run)" : "", referencedPaths, progress.scanned, progress.orphans,
+                    progress.orphanBytes, progress.deleted, progress.deletedBytes,
+                    progress.limitReached ? ", delete limit reached" : "");
+
+            return OrphanSweepReport.builder()
+                    .dryRun(dryRun)
+                    .startedAt(startedAt)
+                    .durationMillis(Duration.ofNanos(durationNanos).toMillis())
+                    .referencedPaths(referencedPaths)
+                    .scannedFiles(progress.scanned)
+                    .orphanFiles(progress.orphans)
+                    .orphanBytes(progress.orphanBytes)
+                    .deletedFiles(progress.deleted)
+                    .deletedBytes(progress.deletedBytes)
+                    .limitReached(progress.limitReached)
+                    .sampleOrphans(progress.sample)
+                    .build();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Stream every referenced file name into the filter; nothing else is held in memory
+     */
+    private long markReferenced(BloomFilter referenced) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        long[] marked = {0};
+        readOnly.executeWithoutResult(status -> {
+            try (Stream<String> paths = versionRepository.streamAllFilePaths()) {
+                paths.filter(Objects::nonNull).forEach(path -> {
+                    referenced.put(path);
+                    marked[0]++;
+                });
+            }
+            try (Stream<String> paths = documentRepository.streamAllFilePaths()) {
+                paths.filter(Objects::nonNull).forEach(path -> {
+                    referenced.put(path);
+                    marked[0]++;
+                });
+            }
+        });
+        return marked[0];
+    }
+
+    /**
+     * Delete a file after confirming, under the blob row lock, that nothing references it
+     */
+    private boolean deleteIfOrphan(String fileName) {
+        try {
+            Boolean deleted = new TransactionTemplate(transactionManager).execute(status -> {
+                Optional<StoredBlob> blob = storedBlobRepository.lockByFileName(fileName);
+                if (versionRepository.existsByFilePath(fileName) || documentRepository.existsByFilePath(fileName)) {
+                    return false; // Referenced again since the mark phase
+                }
+
+                if (blob.isPresent()) {
+                    log.warn("Deleting orphan blob {} with leaked reference count {}", fileName, blob.get().getRefCount());
+                    storedBlobRepository.delete(blob.get());
+                }
+                try {
+                    blobStore.delete(fileName);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                thumbnailService.deleteThumbnails(fileName);
+                documentPreviewService.deletePreview(fileName);
+                return true;
+            });
+            return Boolean.TRUE.equals(deleted);
+        } catch (Exception e) {
+            log.warn("Failed to delete orphan file {}: {}", fileName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Thumbnails, preview pages and staged upload chunks share the blob store with stored files
+     */
+    private boolean isDerivedKey(String key) {
+        return thumbnailService.isThumbnailKey(key)
+                || documentPreviewService.isPreviewKey(key)
+                || chunkedUploadService.isStagingKey(key);
+    }
+
+    private void throttle() {
+        int perSecond = fileStorageProperties.getOrphanGcDeletesPerSecond();
+        if (perSecond <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(1000L / perSecond);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Orphan file sweep interrupted");
+        }
+    }
+
+    private void recordMetrics(boolean dryRun, SweepProgress progress, long durationNanos) {
+        if (meterRegistry == null) {
+            return;
+        }
+        String mode = dryRun ? "dry_run" : "delete";
+        Timer.builder("storage.orphans.sweep")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .record(Duration.ofNanos(durationNanos));
+        meterRegistry.counter("storage.orphans.scanned", "mode", mode).increment(progress.scanned);
+        meterRegistry.counter("storage.orphans.found", "mode", mode).increment(progress.orphans);
+        meterRegistry.counter("storage.orphans.deleted").increment(progress.deleted);
+        meterRegistry.counter("storage.orphans.deleted.bytes").increment(progress.deletedBytes);
+    }
+}
@@ -0,0 +1,184 @@
+package com.company.knowledge_sharing_backend.service;
+
+import com.company.knowledge_sharing_backend.config.RateLimitProperties;
+import com.company.knowledge_sharing_backend.exception.RateLimitExceededException;
+import com.company.knowledge_sharing_backend.util.TokenBucket;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket rate limiting for expensive endpoints.
+ *
+ * Buckets live in local memory by default. With api.rate.limit.distributed=true the
+ * buckets are kept in Redis and updated by an atomic Lua script, so the quota holds
+ * across all replicas instead of being multiplied by the number of nodes.
+ */
+@Service
+@Slf4j
+public class RateLimiterService {
+
+    public enum Scope {
+        SUMMARY("summary", true),
+        SEMANTIC_SEARCH("semantic-search", true),
+        UPLOAD("upload", false);
+
+        private final String key;
+        private final boolean upstream;
+
+        Scope(String key, boolean upstream) {
+            this.key = key;
+            this.upstream = upstream;
+        }
+    }
+
+    private static final String GEMINI_KEY = "gemini";
+    private static final String REDIS_KEY_PREFIX = "ratelimit:";
+
+    /**
+     * KEYS[1] = bucket key, ARGV = capacity, tokens per minute, idle ttl (ms).
+     * Uses Redis server time so that clock skew between nodes does not matter.
+     */
+    private static final RedisScript<Long> TOKEN_BUCKET_SCRIPT = new DefaultRedisScript<>(
+            "local capacity = tonumber(ARGV[1]) " +
+            "local rate = tonumber(ARGV[2]) / 60000 " +
+            "local t = redis.call('TIME') " +
+            "local now = t[1] * 1000 + math.floor(t[2] / 1000) " +
+            "local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts') " +
+            "local tokens = tonumber(state[1]) " +
+            "local ts = tonumber(state[2]) " +
+            "if tokens == nil then tokens = capacity ts = now end " +
+            "tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate) " +
+            "local allowed = 0 " +
+            "if tokens >= 1 then tokens = tokens - 1 allowed = 1 end " +
+            "redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now)) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[3]) " +
+            "return allowed",
+            Long.class
+    );
+
+    /**
+     * KEYS[1] = bucket key, ARGV = capacity. Returns a token taken by the script above;
+     * a bucket that expired meanwhile is full anyway and is left alone.
+     */
+    private static final RedisScript<Long> REFUND_SCRIPT = new DefaultRedisScript<>(
+            "local tokens = tonumber(redis.call('HGET', KEYS[1], 'tokens')) " +
+            "if tokens == nil then return 0 end " +
+            "redis.call('HSET', KEYS[1], 'tokens', tostring(math.min(tonumber(ARGV[1]), tokens + 1))) " +
+            "return 1",
+            Long.class
+    );
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    // "scope:userId" -> bucket
+    private final Map<String, TokenBucket> localBuckets = new ConcurrentHashMap<>();
+
+    /**
+     * Consume one request from the user's quota for the given scope. Scopes that call
+     * Gemini additionally consume from the global upstream quota; when that is exhausted the
+     * user's token is given back, so global saturation does not use up individual quotas.
+     */
+    public void acquire(Scope scope, Long userId) {
+        RateLimitProperties.Quota quota = quotaFor(scope);
+        String userKey = scope.key + ":" + userId;
+        if (!tryAcquire(userKey, quota)) {
+            throw new RateLimitExceededException(
+                    "Rate limit exceeded. Maximum " + quota.getRequestsPerMinute() + " requests per minute."
+            );
+        }
+
+        if (scope.upstream && !tryAcquire(GEMINI_KEY, properties.getGemini())) {
+            refund(userKey, quota);
+            throw new RateLimitExceededException(
+                    "AI service is busy. Please try again in a moment."
+            );
+        }
+    }
+
+    /**
+     * Consume one request from the global Gemini quota only, for background work that has no
+     * user to charge. Returns false instead of throwing so the caller can defer the work.
+     */
+    public boolean tryAcquireUpstream() {
+        return tryAcquire(GEMINI_KEY, properties.getGemini());
+    }
+
+    /**
+     * Drop local buckets that have refilled and not been used recently
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleBuckets() {
+        long idleNanos = TimeUnit.MINUTES.toNanos(properties.getIdleEvictionMinutes());
+        int before = localBuckets.size();
+        localBuckets.values().removeIf(bucket -> bucket.isIdle(idleNanos));
+        int evicted = before - localBuckets.size();
+        if (evicted > 0) {
+            log.debug("Evicted {} idle rate limit buckets", evicted);
+        }
+    }
+
+    // Helper methods
+
+    private boolean tryAcquire(String key, RateLimitProperties.Quota quota) {
+        if (properties.isDistributed()) {
+            try {
+                return tryAcquireShared(key, quota);
+            } catch (Exception e) {
+                // Degrade to per-node limiting rather than rejecting everything
+                log.warn("Shared rate limiter unavailable, using local bucket for {}: {}", key, e.getMessage());
+            }
+        }
+        return localBuckets
+                .computeIfAbsent(key, k -> new TokenBucket(quota.getBurst(), quota.getRequestsPerMinute()))
+                .tryAcquire();
+    }
+
+    private void refund(String key, RateLimitProperties.Quota quota) {
+        if (properties.isDistributed()) {
+            try {
+                redisTemplate.execute(REFUND_SCRIPT, List.of(REDIS_KEY_PREFIX + key), String.valueOf(quota.getBurst()));
+                return;
+            } catch (Exception e) {
+                log.warn("Shared rate limiter unavailable, refunding local bucket for {}: {}", key, e.getMessage());
+            }
+        }
+        TokenBucket bucket = localBuckets.get(key);
+        if (bucket != null) {
+            bucket.refund();
+        }
+    }
+
+    private boolean tryAcquireShared(String key, RateLimitProperties.Quota quota) {
+        long idleTtlMillis = TimeUnit.MINUTES.toMillis(properties.getIdleEvictionMinutes());
+        Long allowed = redisTemplate.execute(
+                TOKEN_BUCKET_SCRIPT,
+                List.of(REDIS_KEY_PREFIX + key),
+                String.valueOf(quota.getBurst()),
+                String.valueOf(quota.getRequestsPerMinute()),
+                String.valueOf(idleTtlMillis)
+        );
+        return allowed != null && allowed == 1L;
+    }
+
+    private RateLimitProperties.Quota quotaFor(Scope scope) {
+        return switch (scope) {
+            case SUMMARY -> properties.getSummary();
+            case SEMANTIC_SEARCH -> properties.getSemanticSearch();
+            case UPLOAD -> properties.getUpload();
+        };
+    }
+}
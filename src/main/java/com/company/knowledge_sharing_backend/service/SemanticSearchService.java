@@ -3,6 +3,7 @@ package com.company.knowledge_sharing_backend.service;
 import com.company.knowledge_sharing_backend.dto.response.DocumentResponse;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface SemanticSearchService {
 
@@ -15,6 +16,16 @@ public interface SemanticSearchService {
      */
     List<DocumentResponse> semanticSearch(String query, Long userId, int limit);
 
+    /**
+     * Non-blocking variant of {@link #semanticSearch}: the query embedding is requested
+     * asynchronously and ranking runs on the AI executor
+     * @param query User search query
+     * @param userId Current user ID
+     * @param limit Maximum number of results
+     * @return Future completed with documents ranked by semantic similarity
+     */
+    CompletableFuture<List<DocumentResponse>> semanticSearchAsync(String query, Long userId, int limit);
+
     /**
      * Generate and save embedding for a document
      * @param documentId Document ID
@@ -0,0 +1,59 @@
+package com.company.knowledge_sharing_backend.service;
+
+import com.company.knowledge_sharing_backend.config.FileStorageProperties;
+import com.company.knowledge_sharing_backend.service.impl.LocalBlobStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Moves files from the flat upload directory into the sharded layout in small batches while
+ * the application keeps serving them. Keeps running after the backlog is gone, because
+ * instances from before the sharded layout may still write flat files during a rollout.
+ */
+@Service
+@Slf4j
+public class StorageLayoutMigrator {
+
+    // Absent when blobs live in object storage
+    @Autowired
+    private ObjectProvider<LocalBlobStore> localBlobStore;
+
+    @Autowired
+    private FileStorageProperties fileStorageProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter migratedCounter;
+
+    @PostConstruct
+    void registerMetrics() {
+        migratedCounter = Counter.builder("storage.layout.migrated")
+                .description("Files moved from the flat upload directory into the sharded layout")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelay = 60000, fixedDelay = 60000) // Run every minute
+    public void migrateBatch() {
+        LocalBlobStore blobStore = localBlobStore.getIfAvailable();
+        if (blobStore == null || !fileStorageProperties.isLayoutMigrationEnabled()) {
+            return;
+        }
+
+        try {
+            int moved = blobStore.migrateFlatFiles(fileStorageProperties.getLayoutMigrationBatchSize());
+            if (moved > 0) {
+                migratedCounter.increment(moved);
+                log.info("Moved {} files into the sharded upload layout", moved);
+            }
+        } catch (Exception e) {
+            log.warn("Upload layout migration failed: {}", e.getMessage());
+        }
+    }
+}
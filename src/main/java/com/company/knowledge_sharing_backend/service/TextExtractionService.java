@@ -1,8 +1,23 @@
 package com.company.knowledge_sharing_backend.service;
 
+import com.company.knowledge_sharing_backend.config.ExtractionProperties;
 import com.company.knowledge_sharing_backend.exception.InvalidFileTypeException;
+import com.company.knowledge_sharing_backend.exception.RateLimitExceededException;
 import com.company.knowledge_sharing_backend.exception.TextExtractionException;
+import com.company.knowledge_sharing_backend.util.BoundedTextBuilder;
+import com.company.knowledge_sharing_backend.util.ExtractionGuard;
+import com.company.knowledge_sharing_backend.util.HashUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.Splitter;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.poi.hwpf.HWPFDocument;
 import org.apache.poi.hwpf.extractor.WordExtractor;
@@ -10,19 +25,53 @@ import org.apache.poi.xslf.usermodel.XMLSlideShow;
 import org.apache.poi.xslf.usermodel.XSLFSlide;
 import org.apache.poi.xslf.usermodel.XSLFShape;
 import org.apache.poi.xslf.usermodel.XSLFTextShape;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class TextExtractionService {
@@ -33,10 +82,87 @@ public class TextExtractionService {
 
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
 
+    // PDF pages stripped per task, and how many ranges may be in flight at once
+    private static final int PDF_PAGES_PER_TASK = 8;
+    private static final int PDF_MAX_RANGES_IN_FLIGHT = 4;
+
+    // Bump whenever extractor output changes so stale cache entries are not reused
+    public static final int EXTRACTOR_VERSION = 3;
+
+    @Autowired(required = false)
+    @Qualifier("pdfPageExecutor")
+    private Executor pdfPageExecutor;
+
+    @Autowired(required = false)
+    private ExtractionCacheService extractionCacheService;
+
+    @Autowired(required = false)
+    @Qualifier("extractionExecutor")
+    private ThreadPoolTaskExecutor extractionExecutor;
+
+    @Autowired(required = false)
+    private ExtractionProperties extractionProperties = new ExtractionProperties();
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private Counter rejectedCounter;
+    private Counter timeoutCounter;
+
+    /**
+     * Apply parser safety limits (process-wide POI settings) and register pool metrics
+     */
+    @PostConstruct
+    void init() {
+        ZipSecureFile.setMinInflateRatio(extractionProperties.getMinInflateRatio());
+        ZipSecureFile.setMaxEntrySize(extractionProperties.getMaxEntryBytes());
+        ZipSecureFile.setMaxTextSize(extractionProperties.getMaxTextChars());
+        IOUtils.setByteArrayMaxOverride(extractionProperties.getMaxByteArrayBytes());
+
+        if (meterRegistry != null && extractionExecutor != null) {
+            Gauge.builder("extraction.queue.depth", extractionExecutor,
+                            executor -> executor.getThreadPoolExecutor().getQueue().size())
+                    .description("Extraction tasks waiting for a worker")
+                    .register(meterRegistry);
+            Gauge.builder("extraction.active", extractionExecutor, ThreadPoolTaskExecutor::getActiveCount)
+                    .description("Extraction tasks currently running")
+                    .register(meterRegistry);
+            rejectedCounter = meterRegistry.counter("extraction.rejected");
+            timeoutCounter = meterRegistry.counter("extraction.timeouts");
+        }
+    }
+
     /**
      * Extract text from uploaded file
      */
     public String extractText(MultipartFile file) {
+        return extractText(file, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Extract at most maxWords words from uploaded file. Streaming extractors stop
+     * reading as soon as the budget is reached.
+     */
+    public String extractText(MultipartFile file, int maxWords) {
+        return extractText(file, maxWords, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Extract at most maxWords words and maxChars characters from uploaded file. The character
+     * budget also bounds input without whitespace, which never uses up the word budget.
+     */
+    public String extractText(MultipartFile file, int maxWords, int maxChars) {
+        return extractText(file, null, maxWords, maxChars);
+    }
+
+    /**
+     * As above; contentHash is the SHA-256 of the file bytes when already known (e.g. recorded
+     * at upload). Otherwise the upload is hashed first, so previews of identical files are
+     * served from the extraction cache too.
+     */
+    public String extractText(MultipartFile file, String contentHash, int maxWords, int maxChars) {
+        Budget budget = new Budget(maxWords, maxChars);
+
         // Validate file
         validateFile(file);
 
@@ -44,21 +170,192 @@ public class TextExtractionService {
         String extension = getFileExtension(filename);
 
         try {
+            // The key is needed before extracting; one sequential pass over at most MAX_FILE_SIZE
+            // bytes costs far less than parsing them
+            String hash = contentHash == null && extractionCacheService != null ? sha256(file) : contentHash;
+            return extractCached(hash, budget, () -> extract(file, extension, budget), filename);
+        } catch (IOException e) {
+            throw new TextExtractionException("Failed to extract text from file: " + filename, e);
+        }
+    }
+
+    /**
+     * Extract at most maxWords words from a file already in storage (no size limit)
+     */
+    public String extractText(Path path, int maxWords) {
+        return extractText(path, null, maxWords, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Extract at most maxWords words and maxChars characters from a file already in storage.
+     * With the stored content hash, re-processing identical bytes is served from the cache.
+     */
+    public String extractText(Path path, String contentHash, int maxWords, int maxChars) {
+        Budget budget = new Budget(maxWords, maxChars);
+        String filename = path.getFileName().toString();
+        String extension = getFileExtension(filename);
+        if (!isSupported(filename)) {
+            throw new InvalidFileTypeException("Unsupported file type: " + extension);
+        }
+
+        try {
+            return extractCached(contentHash, budget, () -> "xlsx".equalsIgnoreCase(extension)
+                    ? extractFromXlsx(path, budget)
+                    : extract(Files.newInputStream(path), extension, budget), filename);
+        } catch (IOException e) {
+            throw new TextExtractionException("Failed to extract text from file: " + filename, e);
+        }
+    }
+
+    /**
+     * Whether text can be extracted from files with this name's extension
+     */
+    public boolean isSupported(String filename) {
+        return filename != null && ALLOWED_EXTENSIONS.contains(getFileExtension(filename).toLowerCase());
+    }
+
+    /**
+     * Word and character limits of one extraction
+     */
+    private record Budget(int maxWords, int maxChars) {
+
+        BoundedTextBuilder newText() {
+            return new BoundedTextBuilder(maxWords, maxChars);
+        }
+
+        String key() {
+            String words = maxWords == Integer.MAX_VALUE ? "all" : String.valueOf(maxWords);
+            return maxChars == Integer.MAX_VALUE ? words : words + "c" + maxChars;
+        }
+    }
+
+    private static String sha256(MultipartFile file) throws IOException {
+        MessageDigest digest = HashUtil.newSha256();
+        try (InputStream in = file.getInputStream()) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HashUtil.toHex(digest.digest());
+    }
+
+    private String extract(MultipartFile file, String extension, Budget budget) throws IOException {
+        if ("xlsx".equalsIgnoreCase(extension)) {
+            return extractFromXlsx(file, budget);
+        }
+        return extract(file.getInputStream(), extension, budget);
+    }
+
+    private String extract(InputStream input, String extension, Budget budget) throws IOException {
+        try (InputStream in = input) {
             return switch (extension.toLowerCase()) {
-                case "pdf" -> extractFromPdf(file.getInputStream());
-                case "doc" -> extractFromDoc(file.getInputStream());
-                case "docx" -> extractFromDocx(file.getInputStream());
-                case "xls" -> extractFromXls(file.getInputStream());
-                case "xlsx" -> extractFromXlsx(file.getInputStream());
-                case "ppt", "pptx" -> extractFromPptx(file.getInputStream());
-                case "txt" -> extractFromTxt(file.getInputStream());
+                case "pdf" -> extractFromPdf(in, budget);
+                case "doc" -> extractFromDoc(in, budget);
+                case "docx" -> extractFromDocx(in, budget);
+                case "xls" -> extractFromXls(in, budget);
+                case "ppt", "pptx" -> extractFromPptx(in, budget);
+                case "txt" -> extractFromTxt(in, budget);
                 default -> throw new InvalidFileTypeException("Unsupported file type: " + extension);
             };
-        } catch (IOException e) {
-            throw new TextExtractionException("Failed to extract text from file: " + filename, e);
         }
     }
 
+    /**
+     * Serve identical bytes (same attachment uploaded again, re-processing) from the disk cache
+     */
+    private String extractCached(String contentHash, Budget budget, Callable<String> extraction,
+                                 String filename) throws IOException {
+        String cacheKey = extractionCacheService != null && contentHash != null ? cacheKey(contentHash, budget) : null;
+        if (cacheKey != null) {
+            Optional<String> cached = extractionCacheService.get(cacheKey);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+
+        String text = runIsolated(extraction, filename);
+
+        if (cacheKey != null) {
+            extractionCacheService.put(cacheKey, text);
+        }
+        return text;
+    }
+
+    /**
+     * Run an extraction on the isolated pool with a wall-clock timeout and a CPU-time limit.
+     * On timeout the worker is interrupted; extractors stop at their next checkpoint (page,
+     * row, paragraph or append), see {@link ExtractionGuard}.
+     */
+    private String runIsolated(Callable<String> extraction, String filename) throws IOException {
+        Callable<String> guarded = () -> ExtractionGuard.call(cpuTimeLimitNanos(), extraction);
+
+        if (extractionExecutor == null) {
+            try {
+                return guarded.call();
+            } catch (CancellationException e) {
+                increment(timeoutCounter);
+                throw new TextExtractionException("Text extraction timed out for file: " + filename);
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        }
+
+        Future<String> task;
+        try {
+            task = extractionExecutor.submit(guarded);
+        } catch (RejectedExecutionException e) {
+            increment(rejectedCounter);
+            throw new RateLimitExceededException("Too many documents are being processed. Please try again shortly.");
+        }
+
+        try {
+            return task.get(extractionProperties.getTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            increment(timeoutCounter);
+            throw new TextExtractionException("Text extraction timed out for file: " + filename);
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new TextExtractionException("Text extraction interrupted for file: " + filename);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof CancellationException) {
+                // CPU-time limit reached inside the worker
+                increment(timeoutCounter);
+                throw new TextExtractionException("Text extraction timed out for file: " + filename);
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new TextExtractionException("Failed to extract text from file: " + filename, cause);
+        }
+    }
+
+    private long cpuTimeLimitNanos() {
+        return TimeUnit.SECONDS.toNanos(extractionProperties.getCpuTimeLimitSeconds());
+    }
+
+    private void increment(Counter counter) {
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * Cache key: content hash + extractor version + budget (truncated output differs per budget)
+     */
+    private static String cacheKey(String contentHash, Budget budget) {
+        return contentHash + "-v" + EXTRACTOR_VERSION + "-" + budget.key();
+    }
+
     /**
      * Validate file type and size
      */
@@ -96,70 +393,265 @@ public class TextExtractionService {
     }
 
     /**
-     * Extract text from PDF
+     * Extract text from PDF. The file is parsed once; larger documents are split into page
+     * ranges, and each range is written out as a small standalone PDF (PDDocument is not
+     * thread-safe, and split ranges still share objects with the source) that a worker
+     * parses and strips. Ranges are appended in page order, and no further ranges are
+     * scheduled once the budget is reached.
+     */
+    private String extractFromPdf(InputStream inputStream, Budget budget) throws IOException {
+        BoundedTextBuilder text = budget.newText();
+
+        try (PDDocument document = PDDocument.load(inputStream, pdfMemoryUsage())) {
+            ExtractionGuard.checkpoint();
+            int pageCount = document.getNumberOfPages();
+
+            // Small documents (or no pool available): strip sequentially, range by range
+            if (pdfPageExecutor == null || pageCount <= PDF_PAGES_PER_TASK) {
+                try {
+                    for (int start = 1; start <= pageCount; start += PDF_PAGES_PER_TASK) {
+                        ExtractionGuard.checkpoint();
+                        text.append(stripPages(document, start, Math.min(start + PDF_PAGES_PER_TASK - 1, pageCount)));
+                    }
+                } catch (BoundedTextBuilder.LimitReachedException e) {
+                    // Budget reached - remaining pages are not needed
+                }
+                return text.toString();
+            }
+
+            Splitter splitter = new Splitter();
+            splitter.setSplitAtPage(PDF_PAGES_PER_TASK);
+            List<PDDocument> ranges = splitter.split(document);
+
+            Deque<CompletableFuture<String>> inFlight = new ArrayDeque<>();
+            int nextRange = 0;
+            try {
+                while (nextRange < ranges.size() || !inFlight.isEmpty()) {
+                    while (nextRange < ranges.size() && inFlight.size() < PDF_MAX_RANGES_IN_FLIGHT) {
+                        ExtractionGuard.checkpoint();
+                        byte[] rangeBytes = toBytes(ranges.get(nextRange));
+                        long cpuTimeLimitNanos = cpuTimeLimitNanos();
+                        inFlight.add(CompletableFuture.supplyAsync(
+                                () -> stripAllPages(rangeBytes, cpuTimeLimitNanos), pdfPageExecutor));
+                        nextRange++;
+                    }
+                    text.append(awaitPages(inFlight.poll()));
+                }
+            } catch (BoundedTextBuilder.LimitReachedException e) {
+                // Budget reached - stop scheduling ranges
+            } finally {
+                // Not interrupting: workers stop at their own page checkpoints and CPU limit
+                inFlight.forEach(future -> future.cancel(true));
+                for (PDDocument range : ranges) {
+                    range.close();
+                }
+            }
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Write a split range out, closing it: the bytes carry everything the range needs
      */
-    private String extractFromPdf(InputStream inputStream) throws IOException {
-        try (PDDocument document = PDDocument.load(inputStream)) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            return stripper.getText(document);
+    private byte[] toBytes(PDDocument range) throws IOException {
+        try (range) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            range.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Heap up to the configured limit, then a scratch file; documents needing more fail
+     */
+    private MemoryUsageSetting pdfMemoryUsage() {
+        return MemoryUsageSetting.setupMixed(
+                extractionProperties.getPdfMaxMainMemoryBytes(),
+                extractionProperties.getPdfMaxMainMemoryBytes() + extractionProperties.getPdfMaxStorageBytes());
+    }
+
+    private String stripAllPages(byte[] bytes, long cpuTimeLimitNanos) {
+        try {
+            return ExtractionGuard.call(cpuTimeLimitNanos, () -> {
+                try (PDDocument document = PDDocument.load(bytes, pdfMemoryUsage())) {
+                    return stripPages(document, 1, document.getNumberOfPages());
+                }
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private String stripPages(PDDocument document, int startPage, int endPage) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper() {
+            @Override
+            protected void startPage(PDPage page) throws IOException {
+                ExtractionGuard.checkpoint();
+                super.startPage(page);
+            }
+        };
+        stripper.setStartPage(startPage);
+        stripper.setEndPage(endPage);
+        return stripper.getText(document);
+    }
+
+    private String awaitPages(CompletableFuture<String> future) throws IOException {
+        try {
+            // get() rather than join(): waiting must stay interruptible for the timeout
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Text extraction cancelled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
         }
     }
 
     /**
      * Extract text from DOC (old Word format)
      */
-    private String extractFromDoc(InputStream inputStream) throws IOException {
+    private String extractFromDoc(InputStream inputStream, Budget budget) throws IOException {
+        BoundedTextBuilder text = budget.newText();
         try (HWPFDocument document = new HWPFDocument(inputStream);
              WordExtractor extractor = new WordExtractor(document)) {
-            return extractor.getText();
+            for (String paragraph : extractor.getParagraphText()) {
+                ExtractionGuard.checkpoint();
+                text.append(paragraph);
+            }
+        } catch (BoundedTextBuilder.LimitReachedException e) {
+            // Budget reached
         }
+        return text.toString();
     }
 
     /**
      * Extract text from DOCX
      */
-    private String extractFromDocx(InputStream inputStream) throws IOException {
+    private String extractFromDocx(InputStream inputStream, Budget budget) throws IOException {
+        BoundedTextBuilder text = budget.newText();
         try (XWPFDocument document = new XWPFDocument(inputStream)) {
-            StringBuilder text = new StringBuilder();
             for (XWPFParagraph paragraph : document.getParagraphs()) {
-                text.append(paragraph.getText()).append("\n");
+                ExtractionGuard.checkpoint();
+                text.append(paragraph.getText()).append('\n');
             }
-            return text.toString();
+        } catch (BoundedTextBuilder.LimitReachedException e) {
+            // Budget reached
         }
+        return text.toString();
     }
 
     /**
      * Extract text from XLS (old Excel format)
      */
-    private String extractFromXls(InputStream inputStream) throws IOException {
+    private String extractFromXls(InputStream inputStream, Budget budget) throws IOException {
+        BoundedTextBuilder text = budget.newText();
         try (HSSFWorkbook workbook = new HSSFWorkbook(inputStream)) {
-            return extractFromWorkbook(workbook);
+            extractFromWorkbook(workbook, text);
+        } catch (BoundedTextBuilder.LimitReachedException e) {
+            // Budget reached
         }
+        return text.toString();
     }
 
     /**
-     * Extract text from XLSX
+     * Extract text from XLSX using the SAX event model: sheets are streamed row by row
+     * instead of building the whole workbook DOM, and parsing stops at the word budget
      */
-    private String extractFromXlsx(InputStream inputStream) throws IOException {
-        try (XSSFWorkbook workbook = new XSSFWorkbook(inputStream)) {
-            return extractFromWorkbook(workbook);
+    private String extractFromXlsx(MultipartFile file, Budget budget) throws IOException {
+        // OPCPackage needs random access to stream zip entries; from a plain InputStream it inflates everything
+        Path tempFile = Files.createTempFile("extract-", ".xlsx");
+        try {
+            file.transferTo(tempFile);
+            return extractFromXlsx(tempFile, budget);
+        } finally {
+            Files.deleteIfExists(tempFile);
         }
     }
 
+    private String extractFromXlsx(Path path, Budget budget) throws IOException {
+        BoundedTextBuilder text = budget.newText();
+
+        try (OPCPackage pkg = OPCPackage.open(path.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(
+                            styles, null, sharedStrings, new SheetTextHandler(text), new DataFormatter(), false));
+                    parser.parse(new InputSource(sheet));
+                }
+            }
+        } catch (BoundedTextBuilder.LimitReachedException e) {
+            // Budget reached - stop reading the remaining rows
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            if (!BoundedTextBuilder.LimitReachedException.isCause(e)) {
+                throw new IOException("Invalid XLSX file", e);
+            }
+        }
+
+        return text.toString();
+    }
+
     /**
-     * Extract text from Excel workbook (common for XLS and XLSX)
+     * Writes one line per row, cells separated by a space
      */
-    private String extractFromWorkbook(Workbook workbook) {
-        StringBuilder text = new StringBuilder();
+    private static class SheetTextHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final BoundedTextBuilder text;
+
+        SheetTextHandler(BoundedTextBuilder text) {
+            this.text = text;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            ExtractionGuard.checkpoint();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            text.append('\n');
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            if (formattedValue != null) {
+                text.append(formattedValue).append(' ');
+            }
+        }
+
+        @Override
+        public void headerFooter(String headerFooterText, boolean isHeader, String tagName) {
+        }
+    }
+
+    /**
+     * Extract text from Excel workbook (XLS)
+     */
+    private void extractFromWorkbook(Workbook workbook, BoundedTextBuilder text) {
         for (Sheet sheet : workbook) {
             for (Row row : sheet) {
+                ExtractionGuard.checkpoint();
                 for (Cell cell : row) {
-                    text.append(getCellValue(cell)).append(" ");
+                    text.append(getCellValue(cell)).append(' ');
                 }
-                text.append("\n");
+                text.append('\n');
             }
         }
-        return text.toString();
     }
 
     /**
@@ -178,46 +670,74 @@ public class TextExtractionService {
     /**
      * Extract text from PPTX
      */
-    private String extractFromPptx(InputStream inputStream) throws IOException {
+    private String extractFromPptx(InputStream inputStream, Budget budget) throws IOException {
+        BoundedTextBuilder text = budget.newText();
         try (XMLSlideShow ppt = new XMLSlideShow(inputStream)) {
-            StringBuilder text = new StringBuilder();
             for (XSLFSlide slide : ppt.getSlides()) {
+                ExtractionGuard.checkpoint();
                 for (XSLFShape shape : slide.getShapes()) {
-                    if (shape instanceof XSLFTextShape) {
-                        XSLFTextShape textShape = (XSLFTextShape) shape;
-                        text.append(textShape.getText()).append("\n");
+                    if (shape instanceof XSLFTextShape textShape) {
+                        text.append(textShape.getText()).append('\n');
                     }
                 }
             }
-            return text.toString();
+        } catch (BoundedTextBuilder.LimitReachedException e) {
+            // Budget reached
         }
+        return text.toString();
     }
 
     /**
-     * Extract text from TXT
+     * Extract text from TXT, reading only as much of the stream as the budget needs
      */
-    private String extractFromTxt(InputStream inputStream) throws IOException {
-        return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+    private String extractFromTxt(InputStream inputStream, Budget budget) throws IOException {
+        BoundedTextBuilder text = budget.newText();
+        try (Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                ExtractionGuard.checkpoint();
+                text.append(CharBuffer.wrap(buffer, 0, read));
+            }
+        } catch (BoundedTextBuilder.LimitReachedException e) {
+            // Budget reached
+        }
+        return text.toString();
     }
 
     /**
-     * Truncate text if too long (to avoid GPT token limits)
+     * Truncate text to maxWords words (to avoid GPT token limits).
+     * Scans once for the end of the last allowed word instead of splitting the whole text.
      */
     public String truncateText(String text, int maxWords) {
         if (text == null || text.isEmpty()) {
             return text;
         }
 
-        String[] words = text.split("\\s+");
-        if (words.length <= maxWords) {
-            return text;
-        }
+        int end = endOfWords(text, maxWords);
+        return end == text.length() ? text : text.substring(0, end).trim();
+    }
 
-        StringBuilder truncated = new StringBuilder();
-        for (int i = 0; i < maxWords; i++) {
-            truncated.append(words[i]).append(" ");
+    /**
+     * Index just past the maxWords-th word, or the text length if it has fewer words
+     */
+    static int endOfWords(CharSequence text, int maxWords) {
+        int words = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                if (inWord && words == maxWords) {
+                    return i;
+                }
+                inWord = false;
+            } else if (!inWord) {
+                if (words == maxWords) {
+                    return i;
+                }
+                words++;
+                inWord = true;
+            }
         }
-        return truncated.toString().trim();
+        return text.length();
     }
 }
-
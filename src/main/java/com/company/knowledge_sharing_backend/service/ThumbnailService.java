@@ -0,0 +1,296 @@
+package com.company.knowledge_sharing_backend.service;
+
+import com.company.knowledge_sharing_backend.config.ExtractionProperties;
+import com.company.knowledge_sharing_backend.config.FileStorageProperties;
+import com.company.knowledge_sharing_backend.entity.Document;
+import com.company.knowledge_sharing_backend.entity.FileType;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * JPEG thumbnails of image attachments and PDF first pages. Generated once per stored file
+ * (content-addressed files share them) and kept in the blob store as
+ * {@code <name>-small.jpg} / {@code <name>-medium.jpg}, so every node can serve them.
+ */
+@Service
+@Slf4j
+public class ThumbnailService {
+
+    public enum ThumbnailSize {
+        SMALL(160),
+        MEDIUM(480);
+
+        private final int maxDimension;
+
+        ThumbnailSize(int maxDimension) {
+            this.maxDimension = maxDimension;
+        }
+
+        public int getMaxDimension() {
+            return maxDimension;
+        }
+    }
+
+    public static final String CONTENT_TYPE = "image/jpeg";
+
+    private static final float JPEG_QUALITY = 0.8f;
+
+    // PDF sizes are in points (1/72 in); scale 1 renders one pixel per point (72 DPI)
+    private static final float PDF_DEFAULT_SCALE = 1f;
+
+    // Thumbnails used to be written here, outside the blob store
+    private static final String LEGACY_DIRECTORY = "thumbnails";
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private ExtractionProperties extractionProperties;
+
+    @Autowired
+    private FileStorageProperties fileStorageProperties;
+
+    /**
+     * Thumbnail URL for a document, or null if its file type has no thumbnail
+     */
+    public static String thumbnailUrl(Document document) {
+        if (document.getFileType() != FileType.IMAGE && document.getFileType() != FileType.PDF) {
+            return null;
+        }
+        return "/api/files/" + document.getFilePath() + "/thumbnail";
+    }
+
+    /**
+     * Create all sizes for a stored file. Returns false if they already exist or the type has no thumbnail.
+     */
+    public boolean generateThumbnails(String fileName, Path source) throws IOException {
+        String extension = extensionOf(fileName);
+        if (!isSupported(extension)) {
+            return false;
+        }
+        if (allSizesExist(fileName)) {
+            return false; // Same content already processed for another document or version
+        }
+
+        BufferedImage image = "pdf".equals(extension)
+                ? renderFirstPage(source)
+                : readImage(source, ThumbnailSize.MEDIUM.getMaxDimension());
+        if (image == null) {
+            throw new IOException("Unsupported image format: " + fileName);
+        }
+
+        for (ThumbnailSize size : ThumbnailSize.values()) {
+            byte[] jpeg = encodeJpeg(scale(image, size.getMaxDimension()));
+            blobStore.put(thumbnailKey(fileName, size), new ByteArrayInputStream(jpeg), jpeg.length, CONTENT_TYPE);
+        }
+        return true;
+    }
+
+    /**
+     * An existing thumbnail, ready to send
+     */
+    public Optional<Resource> getThumbnail(String fileName, ThumbnailSize size) throws IOException {
+        return blobStore.openResource(thumbnailKey(fileName, size));
+    }
+
+    /**
+     * Delete all sizes of a file's thumbnails (when the file itself is deleted)
+     */
+    public void deleteThumbnails(String fileName) {
+        for (ThumbnailSize size : ThumbnailSize.values()) {
+            try {
+                blobStore.delete(thumbnailKey(fileName, size));
+            } catch (IOException e) {
+                log.warn("Failed to delete thumbnail of {}: {}", fileName, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Whether a blob store key holds a thumbnail rather than a stored file
+     */
+    public boolean isThumbnailKey(String key) {
+        for (ThumbnailSize size : ThumbnailSize.values()) {
+            if (key.endsWith(sizeSuffix(size))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Move thumbnails written to the local thumbnails directory by earlier releases into the
+     * blob store (once; the directory is removed when it is empty)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLocalThumbnails() {
+        Path legacyDirectory = Paths.get(fileStorageProperties.getUploadDir(), LEGACY_DIRECTORY).toAbsolutePath().normalize();
+        if (!Files.isDirectory(legacyDirectory)) {
+            return;
+        }
+        int moved = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(legacyDirectory, "*.jpg")) {
+            for (Path file : files) {
+                String key = file.getFileName().toString();
+                if (isThumbnailKey(key)) {
+                    blobStore.put(key, file, CONTENT_TYPE);
+                    Files.deleteIfExists(file);
+                    moved++;
+                }
+            }
+            Files.deleteIfExists(legacyDirectory);
+        } catch (IOException e) {
+            log.warn("Could not move local thumbnails to the blob store ({} moved): {}", moved, e.getMessage());
+            return;
+        }
+        if (moved > 0) {
+            log.info("Moved {} local thumbnails to the blob store", moved);
+        }
+    }
+
+    // ==================== HELPER METHODS ====================
+
+    private boolean isSupported(String extension) {
+        return switch (extension) {
+            case "pdf", "jpg", "jpeg", "png" -> true;
+            default -> false;
+        };
+    }
+
+    private boolean allSizesExist(String fileName) throws IOException {
+        for (ThumbnailSize size : ThumbnailSize.values()) {
+            if (!blobStore.exists(thumbnailKey(fileName, size))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String thumbnailKey(String fileName, ThumbnailSize size) {
+        // The blob store rejects keys that are not plain file names
+        String baseName = fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
+        return baseName + sizeSuffix(size);
+    }
+
+    private static String sizeSuffix(ThumbnailSize size) {
+        return "-" + size.name().toLowerCase(Locale.ROOT) + ".jpg";
+    }
+
+    private String extensionOf(String fileName) {
+        int dotIndex = fileName.lastIndexOf('.');
+        return dotIndex == -1 ? "" : fileName.substring(dotIndex + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private BufferedImage renderFirstPage(Path source) throws IOException {
+        MemoryUsageSetting memory = MemoryUsageSetting.setupMixed(
+                extractionProperties.getPdfMaxMainMemoryBytes(),
+                extractionProperties.getPdfMaxMainMemoryBytes() + extractionProperties.getPdfMaxStorageBytes());
+        try (PDDocument document = PDDocument.load(source.toFile(), memory)) {
+            if (document.getNumberOfPages() == 0) {
+                return null;
+            }
+            // Just large enough for the biggest size, whatever the page format (A0 or a receipt)
+            PDRectangle box = document.getPage(0).getCropBox();
+            float longestSide = Math.max(box.getWidth(), box.getHeight());
+            float scale = longestSide > 0
+                    ? ThumbnailSize.MEDIUM.getMaxDimension() / longestSide
+                    : PDF_DEFAULT_SCALE;
+            return new PDFRenderer(document).renderImage(0, scale, ImageType.RGB);
+        }
+    }
+
+    /**
+     * Decode with subsampling so a large photo is never fully expanded in memory
+     */
+    private BufferedImage readImage(Path source, int targetDimension) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int largest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, largest / (targetDimension * 2));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage image, int maxDimension) {
+        double ratio = Math.min(1.0, (double) maxDimension / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+        // JPEG has no alpha: flatten onto white
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Thumbnails are at most 480 px, a few dozen KB: encoded in memory
+     */
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(bytes)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -44,6 +44,9 @@ public class AdminServiceImpl implements AdminService {
     @Autowired
     private GroupRepository groupRepository;
 
+    @Autowired
+    private DocumentVersionRepository versionRepository;
+
     @Autowired
     private FileStorageService fileStorageService;
 
@@ -91,15 +94,14 @@ public class AdminServiceImpl implements AdminService {
         Page<Document> documentsPage = documentRepository.findByOwnerId(userId, Pageable.unpaged());
         List<Document> documents = documentsPage.getContent();
 
+        // Release the files of every version; anything missed is found by the orphan sweep
         for (Document document : documents) {
-            try {
-                fileStorageService.deleteFile(document.getFilePath());
-            } catch (Exception e) {
-                // Log error but continue
-                System.err.println("Failed to delete file: " + document.getFilePath());
-            }
+            releaseVersionFiles(document.getId());
         }
 
+        // Their ratings go with them: take them out of the rated documents' aggregates first
+        documentRepository.removeUserRatingsFromAggregates(userId);
+
         // Delete user (cascade will handle related entities)
         userRepository.delete(user);
     }
@@ -221,12 +223,8 @@ public class AdminServiceImpl implements AdminService {
         Document document = documentRepository.findById(documentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Document not found with id: " + documentId));
 
-        // Delete file
-        try {
-            fileStorageService.deleteFile(document.getFilePath());
-        } catch (Exception e) {
-            System.err.println("Failed to delete file: " + document.getFilePath());
-        }
+        // Release the file of every version; shared blobs stay until no document uses them
+        releaseVersionFiles(documentId);
 
         // Delete document (cascade will handle related entities)
         documentRepository.delete(document);
@@ -238,6 +236,7 @@ public class AdminServiceImpl implements AdminService {
                 .orElseThrow(() -> new ResourceNotFoundException("Rating not found with id: " + ratingId));
 
         ratingRepository.delete(rating);
+        documentRepository.adjustRatingAggregates(rating.getDocument().getId(), -rating.getRatingValue(), -1);
     }
 
     @Override
@@ -250,6 +249,12 @@ public class AdminServiceImpl implements AdminService {
 
     // ==================== HELPER METHODS ====================
 
+    private void releaseVersionFiles(Long documentId) {
+        for (DocumentVersion version : versionRepository.findByDocumentIdOrderByVersionNumberDesc(documentId)) {
+            fileStorageService.releaseFile(version.getFilePath());
+        }
+    }
+
     private UserManagementResponse mapToUserManagementResponse(User user) {
         Integer documentCount = documentRepository.countByOwnerId(user.getId()).intValue();
         Integer ratingCount = ratingRepository.countByUserId(user.getId()).intValue();
@@ -0,0 +1,478 @@
+package com.company.knowledge_sharing_backend.service.impl;
+
+import com.company.knowledge_sharing_backend.config.BlobStoreProperties;
+import com.company.knowledge_sharing_backend.config.FileStorageProperties;
+import com.company.knowledge_sharing_backend.service.BlobStore;
+import com.company.knowledge_sharing_backend.util.BloomFilter;
+import com.company.knowledge_sharing_backend.util.ContentDefinedChunker;
+import com.company.knowledge_sharing_backend.util.HashUtil;
+import com.company.knowledge_sharing_backend.util.LimitedInputStream;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Chunk-level deduplication on top of the configured blob store.
+ * <p>
+ * A file is split into content-defined chunks; each chunk is stored once under
+ * {@code <sha256>.chunk} and the file itself becomes a manifest ({@code <key>.manifest})
+ * listing its chunks in order. A new version that changes a few pages shares every other
+ * chunk with the previous one, so storage grows by roughly the size of the edit. Reads walk
+ * the manifest and stream the chunks; files stored before chunking was enabled are still
+ * read whole from the underlying store.
+ * <p>
+ * Chunks are never deleted with a file, as other manifests may share them. A periodic
+ * mark-and-sweep removes chunks no manifest lists once they are older than the grace period;
+ * an upload that reuses a chunk older than a quarter of that period rewrites it, so a chunk
+ * in use never looks old to the sweep.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "blob-store", name = "chunking-enabled", havingValue = "true")
+@Slf4j
+public class ChunkedBlobStore implements BlobStore {
+
+    private static final String CHUNK_SUFFIX = ".chunk";
+    private static final String MANIFEST_SUFFIX = ".manifest";
+
+    private static final int MANIFEST_MAGIC = 0x4B43484D; // "KCHM"
+    private static final int MANIFEST_VERSION = 1;
+    private static final int MANIFEST_ENTRY_BYTES = 32 + 4;
+
+    // First byte of every stored chunk
+    private static final int CHUNK_RAW = 0;
+    private static final int CHUNK_GZIP = 1;
+
+    // Already-compressed content is stored raw without trying
+    private static final List<String> INCOMPRESSIBLE_TYPES = List.of(
+            "image/", "application/zip", "application/gzip", "application/vnd.openxmlformats");
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final BlobStore delegate;
+
+    private final BlobStoreProperties properties;
+
+    private final FileStorageProperties fileStorageProperties;
+
+    private final ContentDefinedChunker chunker;
+
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    /**
+     * One chunk of a file: content hash and original length
+     */
+    private record ChunkRef(String hash, int length) {
+    }
+
+    /**
+     * A file's chunks in order, with the offset at which each one starts
+     */
+    private record Manifest(long totalSize, List<ChunkRef> chunks, long[] offsets) {
+    }
+
+    @Autowired
+    public ChunkedBlobStore(ObjectProvider<LocalBlobStore> localBlobStore, ObjectProvider<S3BlobStore> s3BlobStore,
+                            BlobStoreProperties properties, FileStorageProperties fileStorageProperties) {
+        this(Optional.<BlobStore>ofNullable(s3BlobStore.getIfAvailable()).orElseGet(localBlobStore::getObject),
+                properties, fileStorageProperties);
+    }
+
+    public ChunkedBlobStore(BlobStore delegate, BlobStoreProperties properties,
+                            FileStorageProperties fileStorageProperties) {
+        this.delegate = delegate;
+        this.properties = properties;
+        this.fileStorageProperties = fileStorageProperties;
+        this.chunker = new ContentDefinedChunker(properties.getChunkMinBytes(),
+                properties.getChunkAverageBytes(), properties.getChunkMaxBytes());
+    }
+
+    // ==================== WRITE ====================
+
+    @Override
+    public void put(String key, InputStream content, long size, String contentType) throws IOException {
+        boolean compress = isCompressible(contentType);
+        Instant refreshBefore = Instant.now().minus(gracePeriod().dividedBy(4));
+
+        List<ChunkRef> chunks = new ArrayList<>();
+        long totalSize = chunker.split(content,
+                (buffer, length) -> chunks.add(storeChunk(buffer, length, compress, refreshBefore)));
+
+        // Written last: readers see either no file or one whose chunks are all present
+        byte[] manifest = writeManifest(totalSize, chunks);
+        delegate.put(manifestKey(key), new ByteArrayInputStream(manifest), manifest.length, "application/octet-stream");
+    }
+
+    private ChunkRef storeChunk(byte[] buffer, int length, boolean compress, Instant refreshBefore) throws IOException {
+        MessageDigest digest = HashUtil.newSha256();
+        digest.update(buffer, 0, length);
+        String hash = HashUtil.toHex(digest.digest());
+        String chunkKey = hash + CHUNK_SUFFIX;
+
+        Optional<BlobStat> existing = delegate.stat(chunkKey);
+        if (existing.isEmpty() || existing.get().lastModified().isBefore(refreshBefore)) {
+            byte[] stored = encodeChunk(buffer, length, compress);
+            delegate.put(chunkKey, new ByteArrayInputStream(stored), stored.length, "application/octet-stream");
+        }
+        return new ChunkRef(hash, length);
+    }
+
+    private byte[] encodeChunk(byte[] buffer, int length, boolean compress) throws IOException {
+        if (compress) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2);
+            compressed.write(CHUNK_GZIP);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(buffer, 0, length);
+            }
+            if ((compressed.size() - 1) * 100L <= length * (100L - fileStorageProperties.getCompressionMinSavingsPercent())) {
+                return compressed.toByteArray();
+            }
+        }
+        byte[] raw = new byte[length + 1];
+        raw[0] = CHUNK_RAW;
+        System.arraycopy(buffer, 0, raw, 1, length);
+        return raw;
+    }
+
+    private boolean isCompressible(String contentType) {
+        return fileStorageProperties.isCompressionEnabled()
+                && (contentType == null || INCOMPRESSIBLE_TYPES.stream().noneMatch(contentType::startsWith));
+    }
+
+    @Override
+    public boolean compressesContent() {
+        return true;
+    }
+
+    // ==================== READ ====================
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return delegate.exists(manifestKey(key)) || delegate.exists(key);
+    }
+
+    @Override
+    public Optional<BlobStat> stat(String key) throws IOException {
+        Optional<BlobStat> manifestStat = delegate.stat(manifestKey(key));
+        if (manifestStat.isEmpty()) {
+            return delegate.stat(key);
+        }
+        Manifest manifest = readManifest(key);
+        return Optional.of(new BlobStat(manifest.totalSize(), manifestStat.get().lastModified()));
+    }
+
+    @Override
+    public InputStream openRange(String key, long start, long end) throws IOException {
+        Manifest manifest;
+        try {
+            manifest = readManifest(key);
+        } catch (NoSuchFileException e) {
+            return delegate.openRange(key, start, end); // Stored before chunking
+        }
+
+        long last = Math.min(end, manifest.totalSize() - 1);
+        if (start > last) {
+            return InputStream.nullInputStream();
+        }
+        int first = Arrays.binarySearch(manifest.offsets(), start);
+        if (first < 0) {
+            first = -first - 2; // Chunk containing start
+        }
+        return new LimitedInputStream(new ChunkSequenceInputStream(manifest, first, start - manifest.offsets()[first]),
+                last - start + 1);
+    }
+
+    private InputStream openChunk(String hash) throws IOException {
+        InputStream in = delegate.open(hash + CHUNK_SUFFIX);
+        try {
+            int format = in.read();
+            if (format == CHUNK_GZIP) {
+                return new GZIPInputStream(in);
+            }
+            if (format != CHUNK_RAW) {
+                throw new IOException("Unknown format of chunk " + hash);
+            }
+            return in;
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the chunks of a manifest one after another, opening each only when it is reached
+     */
+    private class ChunkSequenceInputStream extends InputStream {
+        private final Manifest manifest;
+        private int next;
+        private long skipFirst;
+        private InputStream current;
+
+        ChunkSequenceInputStream(Manifest manifest, int first, long skipFirst) {
+            this.manifest = manifest;
+            this.next = first;
+            this.skipFirst = skipFirst;
+        }
+
+        private boolean advance() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            if (next >= manifest.chunks().size()) {
+                return false;
+            }
+            current = openChunk(manifest.chunks().get(next++).hash());
+            if (skipFirst > 0) {
+                current.skipNBytes(skipFirst);
+                skipFirst = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                if (current == null && !advance()) {
+                    return -1;
+                }
+                int n = current.read(b, off, len);
+                if (n != -1) {
+                    return n;
+                }
+                if (!advance()) {
+                    return -1;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            next = manifest.chunks().size();
+        }
+    }
+
+    // ==================== DELETE / LIST ====================
+
+    /**
+     * Deletes the manifest (or a file from before chunking); the chunks are left to the sweep
+     */
+    @Override
+    public void delete(String key) throws IOException {
+        delegate.delete(manifestKey(key));
+        delegate.delete(key);
+    }
+
+    /**
+     * Lists files: manifests under the key they stand for, plus files from before chunking.
+     * Sizes of chunked files are those of their manifests.
+     */
+    @Override
+    public void list(Consumer<BlobEntry> visitor) throws IOException {
+        delegate.list(entry -> {
+            String key = entry.key();
+            if (key.endsWith(CHUNK_SUFFIX)) {
+                return;
+            }
+            if (key.endsWith(MANIFEST_SUFFIX)) {
+                visitor.accept(new BlobEntry(key.substring(0, key.length() - MANIFEST_SUFFIX.length()),
+                        entry.size(), entry.lastModified()));
+                return;
+            }
+            visitor.accept(entry);
+        });
+    }
+
+    /**
+     * Chunked files are assembled from several objects, so they never have a single local path
+     */
+    @Override
+    public Optional<Path> localPath(String key) {
+        try {
+            if (delegate.exists(manifestKey(key))) {
+                return Optional.empty();
+            }
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+        return delegate.localPath(key);
+    }
+
+    // ==================== CHUNK SWEEP ====================
+
+    @Scheduled(initialDelay = 900000, fixedDelay = 21600000) // Run every 6 hours
+    public void scheduledSweep() {
+        try {
+            sweepUnreferencedChunks();
+        } catch (Exception e) {
+            log.warn("Chunk sweep failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Delete chunks that no manifest lists and that are older than the grace period. Returns
+     * the number deleted. Stops early if it runs for more than half the grace period, after
+     * which an upload could reuse a chunk without refreshing it.
+     */
+    public int sweepUnreferencedChunks() throws IOException {
+        if (!sweeping.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            Instant startedAt = Instant.now();
+            Instant deadline = startedAt.plus(gracePeriod().dividedBy(2));
+            Instant cutoff = startedAt.minus(gracePeriod());
+
+            // Mark: manifests are small, so collecting their keys first is cheap
+            List<String> manifestKeys = new ArrayList<>();
+            long[] manifestBytes = {0};
+            delegate.list(entry -> {
+                if (entry.key().endsWith(MANIFEST_SUFFIX)) {
+                    manifestKeys.add(entry.key());
+                    manifestBytes[0] += entry.size();
+                }
+            });
+            BloomFilter referenced = new BloomFilter(manifestBytes[0] / MANIFEST_ENTRY_BYTES, FALSE_POSITIVE_RATE);
+            for (String manifestKey : manifestKeys) {
+                try {
+                    readManifestObject(manifestKey).chunks().forEach(chunk -> referenced.put(chunk.hash()));
+                } catch (NoSuchFileException e) {
+                    // Deleted since the listing
+                }
+            }
+
+            // Sweep
+            int[] deleted = {0};
+            delegate.list(entry -> {
+                String key = entry.key();
+                if (!key.endsWith(CHUNK_SUFFIX) || !entry.lastModified().isBefore(cutoff)
+                        || Instant.now().isAfter(deadline)) {
+                    return;
+                }
+                if (referenced.mightContain(key.substring(0, key.length() - CHUNK_SUFFIX.length()))) {
+                    return;
+                }
+                try {
+                    delegate.delete(key);
+                    deleted[0]++;
+                } catch (IOException e) {
+                    log.warn("Failed to delete chunk {}: {}", key, e.getMessage());
+                }
+            });
+
+            if (Instant.now().isAfter(deadline)) {
+                log.warn("Chunk sweep stopped early after {}", Duration.between(startedAt, Instant.now()));
+            }
+            if (deleted[0] > 0) {
+                log.info("Deleted {} unreferenced chunks ({} manifests marked)", deleted[0], manifestKeys.size());
+            }
+            if (meterRegistry != null) {
+                meterRegistry.counter("storage.chunks.deleted").increment(deleted[0]);
+            }
+            return deleted[0];
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    // ==================== MANIFEST ====================
+
+    private static String manifestKey(String key) {
+        return key + MANIFEST_SUFFIX;
+    }
+
+    private Manifest readManifest(String key) throws IOException {
+        return readManifestObject(manifestKey(key));
+    }
+
+    private Manifest readManifestObject(String manifestKey) throws IOException {
+        byte[] bytes;
+        try (InputStream in = delegate.open(manifestKey)) {
+            bytes = in.readAllBytes();
+        }
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != MANIFEST_MAGIC || in.readUnsignedByte() != MANIFEST_VERSION) {
+                throw new IOException("Not a chunk manifest: " + manifestKey);
+            }
+            long totalSize = in.readLong();
+            int count = in.readInt();
+            List<ChunkRef> chunks = new ArrayList<>(count);
+            long[] offsets = new long[count];
+            long offset = 0;
+            byte[] hash = new byte[32];
+            for (int i = 0; i < count; i++) {
+                in.readFully(hash);
+                int length = in.readInt();
+                chunks.add(new ChunkRef(HexFormat.of().formatHex(hash), length));
+                offsets[i] = offset;
+                offset += length;
+            }
+            if (offset != totalSize) {
+                throw new IOException("Corrupt chunk manifest: " + manifestKey);
+            }
+            return new Manifest(totalSize, chunks, offsets);
+        }
+    }
+
+    private byte[] writeManifest(long totalSize, List<ChunkRef> chunks) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(17 + chunks.size() * MANIFEST_ENTRY_BYTES);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeByte(MANIFEST_VERSION);
+            out.writeLong(totalSize);
+            out.writeInt(chunks.size());
+            for (ChunkRef chunk : chunks) {
+                out.write(HexFormat.of().parseHex(chunk.hash()));
+                out.writeInt(chunk.length());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private Duration gracePeriod() {
+        return Duration.ofHours(properties.getChunkGcGraceHours());
+    }
+}
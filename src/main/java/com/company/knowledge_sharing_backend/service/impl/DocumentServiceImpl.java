@@ -10,12 +10,16 @@ import com.company.knowledge_sharing_backend.exception.ResourceNotFoundException
 import com.company.knowledge_sharing_backend.exception.UnauthorizedException;
 import com.company.knowledge_sharing_backend.entity.*;
 import com.company.knowledge_sharing_backend.repository.*;
+import com.company.knowledge_sharing_backend.service.ChunkedUploadService;
+import com.company.knowledge_sharing_backend.service.DocumentResponseAssembler;
 import com.company.knowledge_sharing_backend.service.DocumentService;
+import com.company.knowledge_sharing_backend.service.DocumentTextService;
+import com.company.knowledge_sharing_backend.service.DocumentVersionCreatedEvent;
 import com.company.knowledge_sharing_backend.service.FileStorageService;
-import com.company.knowledge_sharing_backend.service.NotificationService;
-import com.company.knowledge_sharing_backend.service.SemanticSearchService;
+import com.company.knowledge_sharing_backend.service.RateLimiterService;
+import com.company.knowledge_sharing_backend.service.ThumbnailService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Lazy;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -58,37 +62,53 @@ public class DocumentServiceImpl implements DocumentService {
     private FileStorageService fileStorageService;
 
     @Autowired
-    @Lazy
-    private NotificationService notificationService;
+    private ChunkedUploadService chunkedUploadService;
 
     @Autowired
-    @Lazy
-    private SemanticSearchService semanticSearchService;
+    private DocumentResponseAssembler responseAssembler;
+
+    @Autowired
+    private DocumentTextService documentTextService;
+
+    @Autowired
+    private RateLimiterService rateLimiterService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public DocumentResponse createDocument(DocumentRequest request, MultipartFile file, Long userId) {
-        // Validate file is provided
-        if (file == null || file.isEmpty()) {
+        // Validate file is provided (as a part or as a completed chunked upload)
+        if ((file == null || file.isEmpty()) && request.getUploadId() == null) {
             throw new BadRequestException("File is required");
         }
 
+        rateLimiterService.acquire(RateLimiterService.Scope.UPLOAD, userId);
+
         // Get user
         User owner = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
 
-        // Store file
-        String fileName = fileStorageService.storeFile(file);
-        FileType fileType = fileStorageService.determineFileType(file.getOriginalFilename());
+        // Everything that can reject the request is checked before the file is stored
+        SharingLevel sharingLevel = parseSharingLevel(request.getSharingLevel());
+        Set<Group> groups = sharingLevel == SharingLevel.GROUP && request.getGroupIds() != null
+                ? handleGroups(request.getGroupIds())
+                : null;
+
+        // Store file (hashed while written, so nothing reads the upload again)
+        FileStorageService.StoredFile storedFile = storeUploadedFile(request, file, userId);
+        FileType fileType = fileStorageService.determineFileType(storedFile.fileName());
 
         // Create document
         Document document = Document.builder()
                 .title(request.getTitle())
                 .summary(request.getSummary())
                 .content(request.getContent())
-                .filePath(fileName)
+                .filePath(storedFile.fileName())
+                .contentHash(storedFile.contentHash())
                 .fileType(fileType)
-                .fileSize(file.getSize())
-                .sharingLevel(SharingLevel.valueOf(request.getSharingLevel()))
+                .fileSize(storedFile.size())
+                .sharingLevel(sharingLevel)
                 .versionNumber(1)
                 .isArchived(false)
                 .owner(owner)
@@ -101,34 +121,16 @@ public class DocumentServiceImpl implements DocumentService {
         }
 
         // Handle groups (if GROUP sharing)
-        if (request.getSharingLevel().equals("GROUP") && request.getGroupIds() != null) {
-            Set<Group> groups = handleGroups(request.getGroupIds());
+        if (groups != null) {
             document.setGroups(groups);
         }
 
         // Save document
         document = documentRepository.save(document);
 
-        // Create initial version
+        // Create initial version (text extraction, embedding and notifications follow in the pipeline)
         createVersion(document, owner.getUsername(), "Initial version");
 
-        // Trigger notification for new document
-        try {
-            notificationService.notifyNewDocument(document);
-        } catch (Exception e) {
-            // Log error but don't fail document creation
-            System.err.println("Failed to send notifications: " + e.getMessage());
-        }
-
-        // Generate embedding asynchronously (don't block document creation)
-        final Long documentId = document.getId();
-        try {
-            semanticSearchService.generateDocumentEmbedding(documentId);
-        } catch (Exception e) {
-            // Log error but don't fail document creation
-            System.err.println("Failed to generate embedding for document " + documentId + ": " + e.getMessage());
-        }
-
         return mapToResponse(document);
     }
 
@@ -153,7 +155,7 @@ public class DocumentServiceImpl implements DocumentService {
         document.setTitle(request.getTitle());
         document.setSummary(request.getSummary());
         document.setContent(request.getContent());
-        document.setSharingLevel(SharingLevel.valueOf(request.getSharingLevel()));
+        document.setSharingLevel(parseSharingLevel(request.getSharingLevel()));
 
         // Update tags
         if (request.getTags() != null) {
@@ -170,17 +172,20 @@ public class DocumentServiceImpl implements DocumentService {
         }
 
         // Handle file update (creates new version)
-        if (file != null && !file.isEmpty()) {
-            String newFileName = fileStorageService.storeFile(file);
-            FileType newFileType = fileStorageService.determineFileType(file.getOriginalFilename());
+        if ((file != null && !file.isEmpty()) || request.getUploadId() != null) {
+            rateLimiterService.acquire(RateLimiterService.Scope.UPLOAD, userId);
+            FileStorageService.StoredFile storedFile = storeUploadedFile(request, file, userId);
+            FileType newFileType = fileStorageService.determineFileType(storedFile.fileName());
 
-            // Delete old file (optional - might want to keep for versions)
-            // fileStorageService.deleteFile(document.getFilePath());
+            // The old file stays referenced by the earlier versions
 
-            document.setFilePath(newFileName);
+            document.setFilePath(storedFile.fileName());
+            document.setContentHash(storedFile.contentHash());
             document.setFileType(newFileType);
-            document.setFileSize(file.getSize());
-
+            document.setFileSize(storedFile.size());
+        } else {
+            // The new version shares the current file
+            fileStorageService.retainFile(document.getFilePath());
         }
         document.setVersionNumber(document.getVersionNumber() + 1);
 
@@ -190,13 +195,6 @@ public class DocumentServiceImpl implements DocumentService {
 
         document = documentRepository.save(document);
 
-        // Trigger notification for document update
-        try {
-            notificationService.notifyDocumentUpdate(document);
-        } catch (Exception e) {
-            System.err.println("Failed to send notifications: " + e.getMessage());
-        }
-
         return mapToResponse(document);
     }
 
@@ -225,8 +223,10 @@ public class DocumentServiceImpl implements DocumentService {
             throw new UnauthorizedException("You don't have permission to delete this document");
         }
 
-        // Delete file
-        fileStorageService.deleteFile(document.getFilePath());
+        // Release the file of every version; shared blobs stay until no document uses them
+        for (DocumentVersion version : versionRepository.findByDocumentIdOrderByVersionNumberDesc(documentId)) {
+            fileStorageService.releaseFile(version.getFilePath());
+        }
 
         // Delete document (cascade will delete versions, ratings, favorites, etc.)
         documentRepository.delete(document);
@@ -254,11 +254,8 @@ public class DocumentServiceImpl implements DocumentService {
     public List<DocumentResponse> getRecentDocuments(int limit, Long userId) {
         List<Document> documents = documentRepository.findTopRecentDocuments(limit);
 
-        // Filter by access permission
-        return documents.stream()
-                .filter(doc -> canAccessDocument(doc, userId))
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        // Filter by access permission (group membership checked in one batch)
+        return responseAssembler.toAccessibleResponses(documents, userId, true);
     }
 
     @Override
@@ -267,11 +264,8 @@ public class DocumentServiceImpl implements DocumentService {
     public List<DocumentResponse> getPopularDocuments(int limit, Long userId) {
         List<Document> documents = documentRepository.findTopPopularDocuments(limit);
 
-        // Filter by access permission
-        return documents.stream()
-                .filter(doc -> canAccessDocument(doc, userId))
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        // Filter by access permission (group membership checked in one batch)
+        return responseAssembler.toAccessibleResponses(documents, userId, true);
     }
 
     @Override
@@ -280,9 +274,7 @@ public class DocumentServiceImpl implements DocumentService {
         Pageable pageable = PageRequest.of(0, limit, Sort.by("createdAt").descending());
         Page<Document> documents = documentRepository.findByOwnerIdAndIsArchivedFalse(userId, pageable);
 
-        return documents.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        return responseAssembler.toResponses(documents.getContent(), true);
     }
 
     @Override
@@ -297,7 +289,10 @@ public class DocumentServiceImpl implements DocumentService {
         Page<Document> documents;
 
         if (request.getQuery() != null && !request.getQuery().isEmpty()) {
-            documents = documentRepository.searchByKeyword(request.getQuery(), pageable);
+            List<Long> textMatchIds = documentTextService.findDocumentIdsMatching(request.getQuery());
+            documents = textMatchIds.isEmpty()
+                    ? documentRepository.searchByKeyword(request.getQuery(), pageable)
+                    : documentRepository.searchByKeywordOrText(request.getQuery(), textMatchIds, pageable);
         } else {
             String sharingLevel = request.getSharingLevel();
 
@@ -318,11 +313,8 @@ public class DocumentServiceImpl implements DocumentService {
             );
         }
 
-        // Filter by access permission
-        return documents.stream()
-                .filter(doc -> canAccessDocument(doc, userId))
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        // Filter by access permission (group membership checked in one batch)
+        return responseAssembler.toAccessibleResponses(documents.getContent(), userId, true);
     }
 
     @Override
@@ -371,12 +363,22 @@ public class DocumentServiceImpl implements DocumentService {
                 pageable
         );
 
-        // Filter by access permission and map to response
-        return relatedDocuments.stream()
-                .filter(doc -> canAccessDocument(doc, userId))
-                .map(this::mapToResponse)
-                .limit(limit)
-                .collect(Collectors.toList());
+        // Filter by access permission (group membership checked in one batch)
+        return responseAssembler.toAccessibleResponses(relatedDocuments, userId, limit, true);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public String getDocumentFilePath(Long documentId, Long userId) {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Document not found with id: " + documentId));
+
+        // Check access permission
+        if (!canAccessDocument(document, userId)) {
+            throw new UnauthorizedException("You don't have permission to access this document");
+        }
+
+        return document.getFilePath();
     }
 
     // ==================== HELPER METHODS ====================
@@ -397,6 +399,14 @@ public class DocumentServiceImpl implements DocumentService {
         return tags;
     }
 
+    private SharingLevel parseSharingLevel(String sharingLevel) {
+        try {
+            return SharingLevel.valueOf(sharingLevel);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid sharing level: " + sharingLevel);
+        }
+    }
+
     private Set<Group> handleGroups(List<Long> groupIds) {
         Set<Group> groups = new HashSet<>();
 
@@ -409,6 +419,17 @@ public class DocumentServiceImpl implements DocumentService {
         return groups;
     }
 
+    /**
+     * Store the file sent with the request: a completed chunked upload if an upload id is
+     * given, otherwise the multipart file
+     */
+    private FileStorageService.StoredFile storeUploadedFile(DocumentRequest request, MultipartFile file, Long userId) {
+        if (request.getUploadId() != null) {
+            return chunkedUploadService.storeUpload(request.getUploadId(), userId);
+        }
+        return fileStorageService.storeFile(file);
+    }
+
     private void createVersion(Document document, String updatedBy, String changeNotes) {
         DocumentVersion version = DocumentVersion.builder()
                 .document(document)
@@ -416,9 +437,13 @@ public class DocumentServiceImpl implements DocumentService {
                 .updatedBy(updatedBy)
                 .changeNotes(changeNotes != null ? changeNotes : "No notes provided")
                 .filePath(document.getFilePath())
+                .contentHash(document.getContentHash())
                 .build();
 
-        versionRepository.save(version);
+        version = versionRepository.save(version);
+
+        // Starts the processing pipeline after commit; the request returns once the file is stored
+        eventPublisher.publishEvent(new DocumentVersionCreatedEvent(document.getId(), version.getId(), version.getFilePath()));
     }
 
     private boolean canAccessDocument(Document document, Long userId) {
@@ -456,8 +481,9 @@ public class DocumentServiceImpl implements DocumentService {
             case "title":
                 return Sort.by("title").ascending();
             case "popular":
-                // Note: This is a simplified sort. For true rating sort, use custom query
-                return Sort.by("createdAt").descending();
+                return Sort.by("ratingAverage").descending()
+                        .and(Sort.by("ratingCount").descending())
+                        .and(Sort.by("createdAt").descending());
             case "recent":
             default:
                 return Sort.by("createdAt").descending();
@@ -473,6 +499,7 @@ public class DocumentServiceImpl implements DocumentService {
                 .summary(document.getSummary())
                 .content(document.getContent())
                 .filePath(document.getFilePath())
+                .thumbnailUrl(ThumbnailService.thumbnailUrl(document))
                 .fileType(document.getFileType().name())
                 .fileSize(document.getFileSize())
                 .sharingLevel(document.getSharingLevel().name())
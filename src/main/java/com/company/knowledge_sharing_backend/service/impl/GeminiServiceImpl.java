@@ -1,19 +1,42 @@
 package com.company.knowledge_sharing_backend.service.impl;
 
+import com.company.knowledge_sharing_backend.exception.GPTApiException;
+import com.company.knowledge_sharing_backend.exception.RateLimitExceededException;
 import com.company.knowledge_sharing_backend.service.GeminiService;
+import com.company.knowledge_sharing_backend.util.HashUtil;
+import com.company.knowledge_sharing_backend.util.SingleFlight;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
+@Slf4j
 public class GeminiServiceImpl implements GeminiService {
 
+    public static final String SUMMARY_CACHE = "geminiSummaries";
+    public static final String EMBEDDING_CACHE = "geminiEmbeddings";
+
     // API Key (shared for both summary and embedding)
     @Value("${gemini.api.key}")
     private String apiKey;
@@ -38,103 +61,238 @@ public class GeminiServiceImpl implements GeminiService {
     @Value("${gemini.embedding.model}")
     private String embeddingModel;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    // HTTP Configuration
+    @Value("${gemini.http.connect-timeout-seconds:5}")
+    private int connectTimeoutSeconds;
+
+    @Value("${gemini.http.request-timeout-seconds:30}")
+    private int requestTimeoutSeconds;
+
+    // Publish results to the shared cache so identical inputs skip the API entirely
+    @Value("${gemini.cache.results:true}")
+    private boolean cacheResults;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    @Qualifier("aiExecutor")
+    private Executor aiExecutor;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    // Identical concurrent requests (operation + content hash) share one upstream call
+    private final SingleFlight<String, String> inFlightRequests = new SingleFlight<>();
+
+    // Non-blocking client: no thread is held while waiting for Gemini to respond
+    private HttpClient httpClient;
+
+    @PostConstruct
+    void initHttpClient() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .executor(aiExecutor)
+                .build();
+    }
+
     @Override
     public String generateSummary(String text) {
-        try {
-            // Build endpoint from configuration
-            String endpoint = summaryApiUrl + "/models/" + summaryModel + ":generateContent?key=" + apiKey;
-
-            // Build request
-            Map<String, Object> request = new HashMap<>();
-            Map<String, Object> content = new HashMap<>();
-            List<Map<String, String>> parts = new ArrayList<>();
-
-            Map<String, String> part = new HashMap<>();
-            part.put("text", "Summarize the following text in a concise manner (max 200 words):\n\n" + text);
-            parts.add(part);
-
-            content.put("parts", parts);
-            request.put("contents", Collections.singletonList(content));
-
-            // Add generation config
-            Map<String, Object> generationConfig = new HashMap<>();
-            generationConfig.put("maxOutputTokens", summaryMaxTokens);
-            generationConfig.put("temperature", summaryTemperature);
-            request.put("generationConfig", generationConfig);
-
-            // Call API
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(
-                    endpoint,
-                    HttpMethod.POST,
-                    entity,
-                    String.class
-            );
-
-            // Parse response
-            JsonNode root = objectMapper.readTree(response.getBody());
-            return root.at("/candidates/0/content/parts/0/text").asText();
-
-        } catch (Exception e) {
-            throw new RuntimeException("Gemini API error: " + e.getMessage(), e);
-        }
+        return await(generateSummaryAsync(text));
     }
 
     @Override
     public String generateEmbedding(String text) {
-        try {
-            // Build endpoint from configuration
-            String endpoint = embeddingApiUrl + "/models/" + embeddingModel + ":embedContent?key=" + apiKey;
-
-            // Build request according to Gemini API spec
-            Map<String, Object> request = new HashMap<>();
-            Map<String, Object> content = new HashMap<>();
-            List<Map<String, String>> parts = new ArrayList<>();
-
-            Map<String, String> part = new HashMap<>();
-            part.put("text", text);
-            parts.add(part);
-
-            content.put("parts", parts);
-            request.put("content", content);
-
-            // Call API
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(request, headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(
-                    endpoint,
-                    HttpMethod.POST,
-                    entity,
-                    String.class
-            );
-
-            // Parse response and extract embedding values
-            JsonNode root = objectMapper.readTree(response.getBody());
+        return await(generateEmbeddingAsync(text));
+    }
+
+    @Override
+    public CompletableFuture<String> generateSummaryAsync(String text) {
+        String key = "summary:" + summaryModel + ":" + HashUtil.sha256Hex(text);
+        return coalesce(SUMMARY_CACHE, key, () -> requestSummary(text));
+    }
+
+    @Override
+    public CompletableFuture<String> generateEmbeddingAsync(String text) {
+        String key = "embedding:" + embeddingModel + ":" + HashUtil.sha256Hex(text);
+        return coalesce(EMBEDDING_CACHE, key, () -> requestEmbedding(text));
+    }
+
+    private CompletableFuture<String> requestSummary(String text) {
+        // Build endpoint from configuration
+        String endpoint = summaryApiUrl + "/models/" + summaryModel + ":generateContent?key=" + apiKey;
+
+        // Build request
+        Map<String, Object> request = new HashMap<>();
+        Map<String, Object> content = new HashMap<>();
+        List<Map<String, String>> parts = new ArrayList<>();
+
+        Map<String, String> part = new HashMap<>();
+        part.put("text", "Summarize the following text in a concise manner (max 200 words):\n\n" + text);
+        parts.add(part);
+
+        content.put("parts", parts);
+        request.put("contents", Collections.singletonList(content));
+
+        // Add generation config
+        Map<String, Object> generationConfig = new HashMap<>();
+        generationConfig.put("maxOutputTokens", summaryMaxTokens);
+        generationConfig.put("temperature", summaryTemperature);
+        request.put("generationConfig", generationConfig);
+
+        // Parse response
+        return postJson(endpoint, request, root -> {
+            String summary = root.at("/candidates/0/content/parts/0/text").asText("");
+            // A response without text (blocked, truncated) is an error, not a summary
+            if (summary.isBlank()) {
+                throw new GPTApiException("Gemini API error: response contains no summary");
+            }
+            return summary;
+        });
+    }
+
+    private CompletableFuture<String> requestEmbedding(String text) {
+        // Build endpoint from configuration
+        String endpoint = embeddingApiUrl + "/models/" + embeddingModel + ":embedContent?key=" + apiKey;
+
+        // Build request according to Gemini API spec
+        Map<String, Object> request = new HashMap<>();
+        Map<String, Object> content = new HashMap<>();
+        List<Map<String, String>> parts = new ArrayList<>();
+
+        Map<String, String> part = new HashMap<>();
+        part.put("text", text);
+        parts.add(part);
+
+        content.put("parts", parts);
+        request.put("content", content);
+
+        // Parse response and extract embedding values
+        return postJson(endpoint, request, root -> {
             JsonNode valuesNode = root.at("/embedding/values");
 
+            // Without values every similarity would be zero; fail instead of storing that
+            if (!valuesNode.isArray() || valuesNode.isEmpty()) {
+                throw new GPTApiException("Gemini API error: response contains no embedding values");
+            }
+
             List<Float> embedding = new ArrayList<>();
-            if (valuesNode.isArray()) {
-                for (JsonNode node : valuesNode) {
-                    embedding.add((float) node.asDouble());
-                }
+            for (JsonNode node : valuesNode) {
+                embedding.add((float) node.asDouble());
             }
 
             // Convert to JSON string
-            return objectMapper.writeValueAsString(embedding);
+            try {
+                return objectMapper.writeValueAsString(embedding);
+            } catch (JsonProcessingException e) {
+                throw new GPTApiException("Failed to serialize embedding", e);
+            }
+        });
+    }
+
+    /**
+     * POST a JSON body without blocking and map the parsed response
+     */
+    private CompletableFuture<String> postJson(String endpoint, Object body, Function<JsonNode, String> parser) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(endpoint))
+                    .timeout(Duration.ofSeconds(requestTimeoutSeconds))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(new GPTApiException("Failed to build Gemini request", e));
+        }
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        throw new GPTApiException("Gemini API error: HTTP " + response.statusCode());
+                    }
+                    try {
+                        return parser.apply(objectMapper.readTree(response.body()));
+                    } catch (JsonProcessingException e) {
+                        throw new GPTApiException("Gemini API error: invalid response", e);
+                    }
+                })
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof GPTApiException gptApiException) {
+                        throw gptApiException;
+                    }
+                    throw new GPTApiException("Gemini API error: " + cause.getMessage(), cause);
+                });
+    }
+
+    /**
+     * Serve from cache if present, otherwise run (or join) a single upstream call for the key
+     */
+    private CompletableFuture<String> coalesce(String cacheName, String key,
+                                               Supplier<CompletableFuture<String>> upstreamCall) {
+        Cache cache = cacheResults ? cacheManager.getCache(cacheName) : null;
+        if (cache == null) {
+            return callUpstream(null, key, upstreamCall);
+        }
+
+        // The cache lookup is a blocking Redis call: keep it off the caller's (servlet) thread
+        CompletableFuture<String> cached;
+        try {
+            cached = CompletableFuture.supplyAsync(() -> readCache(cache, key), aiExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(
+                    new RateLimitExceededException("AI service is busy. Please try again in a moment."));
+        }
+        return cached.thenCompose(value -> value != null
+                ? CompletableFuture.completedFuture(value)
+                : callUpstream(cache, key, upstreamCall));
+    }
 
+    private CompletableFuture<String> callUpstream(Cache cache, String key,
+                                                   Supplier<CompletableFuture<String>> upstreamCall) {
+        return inFlightRequests.execute(key, () -> upstreamCall.get()
+                .thenApply(result -> {
+                    writeCache(cache, key, result);
+                    return result;
+                }));
+    }
+
+    private String await(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new GPTApiException("Gemini API error: " + e.getMessage(), e);
+        }
+    }
+
+    private String readCache(Cache cache, String key) {
+        if (cache == null) {
+            return null;
+        }
+        try {
+            return cache.get(key, String.class);
         } catch (Exception e) {
-            throw new RuntimeException("Gemini API error: " + e.getMessage(), e);
+            log.warn("Failed to read Gemini result cache: {}", e.getMessage());
+            return null;
         }
     }
 
+    private void writeCache(Cache cache, String key, String value) {
+        // Empty results are rejected by the parsers; never let one be served for a day
+        if (cache == null || value == null || value.isBlank() || value.equals("[]")) {
+            return;
+        }
+        try {
+            cache.put(key, value);
+        } catch (Exception e) {
+            log.warn("Failed to write Gemini result cache: {}", e.getMessage());
+        }
+    }
+
+
     @Override
     public double calculateCosineSimilarity(String embedding1Json, String embedding2Json) {
         float[] vec1 = parseEmbedding(embedding1Json);
@@ -8,6 +8,7 @@ import com.company.knowledge_sharing_backend.entity.Group;
 import com.company.knowledge_sharing_backend.entity.User;
 import com.company.knowledge_sharing_backend.repository.GroupRepository;
 import com.company.knowledge_sharing_backend.repository.UserRepository;
+import com.company.knowledge_sharing_backend.service.ContentVersionService;
 import com.company.knowledge_sharing_backend.service.GroupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -28,6 +29,9 @@ public class GroupServiceImpl implements GroupService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ContentVersionService contentVersionService;
+
     @Override
     public GroupResponse createGroup(GroupRequest request) {
         // Check if group name already exists
@@ -158,6 +162,7 @@ public class GroupServiceImpl implements GroupService {
 
         group.addUser(user);
         groupRepository.save(group);
+        membershipChanged(group);
     }
 
     @Override
@@ -175,10 +180,18 @@ public class GroupServiceImpl implements GroupService {
 
         group.removeUser(user);
         groupRepository.save(group);
+        membershipChanged(group);
     }
 
     // ==================== HELPER METHODS ====================
 
+    // Membership decides who sees GROUP documents, in lists and single reads; the join table
+    // change fires no entity callbacks
+    private void membershipChanged(Group group) {
+        group.getDocuments().forEach(document -> contentVersionService.documentChanged(document.getId()));
+        contentVersionService.documentsChanged();
+    }
+
     private GroupResponse mapToResponse(Group group) {
         return GroupResponse.builder()
                 .id(group.getId())
@@ -0,0 +1,223 @@
+package com.company.knowledge_sharing_backend.service.impl;
+
+import com.company.knowledge_sharing_backend.config.FileStorageProperties;
+import com.company.knowledge_sharing_backend.service.BlobStore;
+import com.company.knowledge_sharing_backend.util.HashUtil;
+import com.company.knowledge_sharing_backend.util.LimitedInputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Blob store on the local upload directory.
+ * <p>
+ * Files live under a two-level fan-out, {@code ab/cd/<name>}, so no directory grows past a
+ * few hundred entries. Files from before the fan-out may still sit flat in the upload
+ * directory until {@link #migrateFlatFiles(int)} has moved them.
+ */
+@Service
+@ConditionalOnProperty(prefix = "blob-store", name = "type", havingValue = "local", matchIfMissing = true)
+public class LocalBlobStore implements BlobStore {
+
+    // Names that already start with 4 hex digits (content hashes, UUIDs) are sharded by them
+    private static final Pattern HEX_PREFIX = Pattern.compile("^[0-9a-f]{4}");
+
+    private static final Pattern SHARD_DIRECTORY = Pattern.compile("[0-9a-f]{2}");
+
+    private final Path storageLocation;
+
+    @Autowired
+    public LocalBlobStore(FileStorageProperties fileStorageProperties) {
+        this.storageLocation = Paths.get(fileStorageProperties.getUploadDir())
+                .toAbsolutePath().normalize();
+
+        try {
+            Files.createDirectories(this.storageLocation);
+        } catch (IOException ex) {
+            throw new RuntimeException("Could not create the directory where the uploaded files will be stored.", ex);
+        }
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size, String contentType) throws IOException {
+        Path tempFile = Files.createTempFile(this.storageLocation, ".put-", ".tmp");
+        try {
+            Files.copy(content, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            put(key, tempFile, contentType);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Moves the file into place with one rename, so readers never see a partial file
+     */
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        Path target = shardedPath(key);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Same bytes stored concurrently by another upload
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public Optional<BlobStat> stat(String key) throws IOException {
+        Path path = resolve(key);
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return Optional.of(new BlobStat(attributes.size(), attributes.lastModifiedTime().toInstant()));
+    }
+
+    @Override
+    public InputStream openRange(String key, long start, long end) throws IOException {
+        FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ);
+        channel.position(start);
+        return new LimitedInputStream(Channels.newInputStream(channel), end - start + 1);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        // Flat copy first: a concurrent migration either finds no source or has already
+        // moved it to the sharded path, which is deleted next
+        Files.deleteIfExists(legacyPath(key));
+        Files.deleteIfExists(shardedPath(key));
+    }
+
+    /**
+     * Flat legacy files and the two shard levels; other directories and temp files are skipped
+     */
+    @Override
+    public void list(Consumer<BlobEntry> visitor) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.storageLocation)) {
+            for (Path entry : entries) {
+                if (isShardDirectory(entry)) {
+                    try (DirectoryStream<Path> shards = Files.newDirectoryStream(entry, this::isShardDirectory)) {
+                        for (Path shard : shards) {
+                            try (DirectoryStream<Path> files = Files.newDirectoryStream(shard)) {
+                                for (Path file : files) {
+                                    visitIfBlob(file, visitor);
+                                }
+                            }
+                        }
+                    }
+                } else {
+                    visitIfBlob(entry, visitor);
+                }
+            }
+        }
+    }
+
+    private boolean isShardDirectory(Path path) {
+        return SHARD_DIRECTORY.matcher(path.getFileName().toString()).matches() && Files.isDirectory(path);
+    }
+
+    private void visitIfBlob(Path path, Consumer<BlobEntry> visitor) throws IOException {
+        String name = path.getFileName().toString();
+        if (name.startsWith(".") || !Files.isRegularFile(path)) {
+            return;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            visitor.accept(new BlobEntry(name, attributes.size(), attributes.lastModifiedTime().toInstant()));
+        } catch (NoSuchFileException e) {
+            // Deleted or migrated while listing
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+
+    /**
+     * Move up to {@code limit} files from the flat upload directory into the fan-out layout.
+     * Each move is an atomic rename, so readers see the file at one path or the other and
+     * open handles keep working. Returns the number of files moved; 0 means none are left.
+     */
+    public int migrateFlatFiles(int limit) throws IOException {
+        int moved = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.storageLocation,
+                entry -> Files.isRegularFile(entry) && !entry.getFileName().toString().startsWith("."))) {
+            for (Path legacy : entries) {
+                if (moved >= limit) {
+                    break;
+                }
+                String fileName = legacy.getFileName().toString();
+                Path sharded = shardedPath(fileName);
+                Files.createDirectories(sharded.getParent());
+                try {
+                    Files.move(legacy, sharded, StandardCopyOption.ATOMIC_MOVE);
+                    moved++;
+                } catch (FileAlreadyExistsException e) {
+                    // Stored again under the new layout meanwhile: same name, same bytes
+                    Files.deleteIfExists(legacy);
+                    moved++;
+                } catch (NoSuchFileException e) {
+                    // Deleted or moved by another instance meanwhile
+                }
+            }
+        }
+        return moved;
+    }
+
+    private Path resolve(String key) {
+        Path sharded = shardedPath(key);
+        if (Files.exists(sharded)) {
+            return sharded;
+        }
+        Path legacy = legacyPath(key);
+        if (Files.exists(legacy)) {
+            return legacy;
+        }
+        // Moved by the migration between the two checks, or not stored at all
+        return sharded;
+    }
+
+    private Path shardedPath(String key) {
+        String shardKey = HEX_PREFIX.matcher(key).find() ? key : HashUtil.sha256Hex(key);
+        return checkInside(this.storageLocation
+                .resolve(shardKey.substring(0, 2))
+                .resolve(shardKey.substring(2, 4))
+                .resolve(key).normalize(), key);
+    }
+
+    private Path legacyPath(String key) {
+        return checkInside(this.storageLocation.resolve(key).normalize(), key);
+    }
+
+    private Path checkInside(Path path, String key) {
+        // Keys are plain file names: anything with separators or dot segments is rejected
+        if (!path.startsWith(this.storageLocation) || path.getFileName() == null
+                || !path.getFileName().toString().equals(key)) {
+            throw new IllegalArgumentException("Invalid file name " + key);
+        }
+        return path;
+    }
+}
@@ -12,9 +12,12 @@ import com.company.knowledge_sharing_backend.repository.DocumentRepository;
 import com.company.knowledge_sharing_backend.repository.RatingRepository;
 import com.company.knowledge_sharing_backend.repository.UserRepository;
 import com.company.knowledge_sharing_backend.service.RatingService;
+import com.company.knowledge_sharing_backend.service.ContentVersionService;
 import com.company.knowledge_sharing_backend.service.NotificationService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,6 +26,7 @@ import java.util.stream.Collectors;
 
 @Service
 @Transactional
+@Slf4j
 public class RatingServiceImpl implements RatingService {
 
     @Autowired
@@ -38,6 +42,9 @@ public class RatingServiceImpl implements RatingService {
     @Lazy
     private NotificationService notificationService;
 
+    @Autowired
+    private ContentVersionService contentVersionService;
+
     @Override
     public RatingResponse rateDocument(Long documentId, RatingRequest request, Long userId) {
         // Get document
@@ -61,6 +68,7 @@ public class RatingServiceImpl implements RatingService {
                 .build();
 
         rating = ratingRepository.save(rating);
+        documentRepository.adjustRatingAggregates(documentId, request.getRatingValue(), 1);
 
         // Trigger notification for document owner
         try {
@@ -75,25 +83,42 @@ public class RatingServiceImpl implements RatingService {
     @Override
     public RatingResponse updateRating(Long documentId, RatingRequest request, Long userId) {
         // Get existing rating
-        Rating rating = ratingRepository.findByDocumentIdAndUserId(documentId, userId)
+        Rating rating = ratingRepository.lockByDocumentIdAndUserId(documentId, userId)
                 .orElseThrow(() -> new ResourceNotFoundException(
                         "Rating not found for this document and user"));
 
         // Update rating value
+        int delta = request.getRatingValue() - rating.getRatingValue();
         rating.setRatingValue(request.getRatingValue());
         rating = ratingRepository.save(rating);
+        if (delta != 0) {
+            documentRepository.adjustRatingAggregates(documentId, delta, 0);
+        }
 
         return mapToResponse(rating);
     }
 
     @Override
     public void deleteRating(Long documentId, Long userId) {
-        // Check if rating exists
-        if (!ratingRepository.existsByDocumentIdAndUserId(documentId, userId)) {
-            throw new ResourceNotFoundException("Rating not found for this document and user");
-        }
+        Rating rating = ratingRepository.lockByDocumentIdAndUserId(documentId, userId)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Rating not found for this document and user"));
 
-        ratingRepository.deleteByDocumentIdAndUserId(documentId, userId);
+        ratingRepository.delete(rating);
+        documentRepository.adjustRatingAggregates(documentId, -rating.getRatingValue(), -1);
+    }
+
+    /**
+     * Recompute document rating aggregates that drifted from the ratings table. On the first run
+     * this backfills documents rated before the aggregate columns existed.
+     */
+    @Scheduled(initialDelay = 30000, fixedDelay = 86400000) // Run at startup, then daily
+    public void reconcileRatingAggregates() {
+        int updated = documentRepository.reconcileRatingAggregates();
+        if (updated > 0) {
+            log.info("Reconciled rating aggregates of {} documents", updated);
+            contentVersionService.documentsChanged();
+        }
     }
 
     @Override
@@ -0,0 +1,263 @@
+package com.company.knowledge_sharing_backend.service.impl;
+
+import com.company.knowledge_sharing_backend.config.BlobStoreProperties;
+import com.company.knowledge_sharing_backend.service.BlobStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Blob store on S3-compatible object storage, so every node serves every file without a
+ * shared filesystem.
+ * <p>
+ * Large objects are sent as a multipart upload: the source is read sequentially into
+ * part-sized buffers and up to {@code uploadConcurrency} parts are in flight at once, which
+ * also bounds the memory held per upload. Downloads use ranged GETs.
+ */
+@Service
+@ConditionalOnProperty(prefix = "blob-store", name = "type", havingValue = "s3")
+@Slf4j
+public class S3BlobStore implements BlobStore {
+
+    private final BlobStoreProperties properties;
+
+    private final S3Client s3Client;
+
+    private final ThreadPoolTaskExecutor partUploadExecutor;
+
+    @Autowired
+    public S3BlobStore(BlobStoreProperties properties) {
+        if (!StringUtils.hasText(properties.getS3Bucket())) {
+            throw new IllegalStateException("blob-store.s3-bucket is required when blob-store.type=s3");
+        }
+        this.properties = properties;
+
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(properties.getS3Region()))
+                .credentialsProvider(credentialsProvider(properties))
+                .serviceConfiguration(S3Configuration.builder()
+                        .pathStyleAccessEnabled(properties.isS3PathStyleAccess())
+                        .build());
+        if (StringUtils.hasText(properties.getS3Endpoint())) {
+            builder.endpointOverride(URI.create(properties.getS3Endpoint()));
+        }
+        this.s3Client = builder.build();
+
+        // Callers block on their own parts, so a full queue means "wait", not "reject"
+        this.partUploadExecutor = new ThreadPoolTaskExecutor();
+        this.partUploadExecutor.setCorePoolSize(properties.getUploadConcurrency());
+        this.partUploadExecutor.setMaxPoolSize(properties.getUploadConcurrency());
+        this.partUploadExecutor.setThreadNamePrefix("s3-part-");
+        this.partUploadExecutor.initialize();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        partUploadExecutor.shutdown();
+        s3Client.close();
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size, String contentType) throws IOException {
+        try {
+            if (size >= 0 && size <= properties.getMultipartThresholdBytes()) {
+                s3Client.putObject(request -> request
+                                .bucket(properties.getS3Bucket())
+                                .key(key)
+                                .contentType(contentType)
+                                .contentLength(size),
+                        RequestBody.fromInputStream(content, size));
+                return;
+            }
+            putMultipart(key, content, contentType);
+        } catch (SdkException e) {
+            throw new IOException("Could not store " + key + " in object storage", e);
+        }
+    }
+
+    private void putMultipart(String key, InputStream content, String contentType) throws IOException {
+        String uploadId = s3Client.createMultipartUpload(request -> request
+                .bucket(properties.getS3Bucket())
+                .key(key)
+                .contentType(contentType)).uploadId();
+
+        Semaphore inFlight = new Semaphore(properties.getUploadConcurrency());
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+        try {
+            int partNumber = 1;
+            byte[] buffer;
+            while ((buffer = content.readNBytes(properties.getPartSizeBytes())).length > 0 || partNumber == 1) {
+                inFlight.acquire();
+                if (parts.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                    break; // Stop reading; the failure is rethrown below
+                }
+                byte[] partBytes = buffer;
+                int number = partNumber++;
+                parts.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        String eTag = s3Client.uploadPart(request -> request
+                                        .bucket(properties.getS3Bucket())
+                                        .key(key)
+                                        .uploadId(uploadId)
+                                        .partNumber(number)
+                                        .contentLength((long) partBytes.length),
+                                RequestBody.fromBytes(partBytes)).eTag();
+                        return CompletedPart.builder().partNumber(number).eTag(eTag).build();
+                    } finally {
+                        inFlight.release();
+                    }
+                }, partUploadExecutor));
+
+                if (partBytes.length < properties.getPartSizeBytes()) {
+                    break; // Last (short) part
+                }
+            }
+
+            List<CompletedPart> completedParts = new ArrayList<>();
+            for (CompletableFuture<CompletedPart> part : parts) {
+                completedParts.add(part.join());
+            }
+            completedParts.sort(Comparator.comparing(CompletedPart::partNumber));
+
+            s3Client.completeMultipartUpload(request -> request
+                    .bucket(properties.getS3Bucket())
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortQuietly(key, uploadId);
+            throw new IOException("Interrupted while uploading " + key, e);
+        } catch (IOException | RuntimeException e) {
+            abortQuietly(key, uploadId);
+            if (e instanceof CompletionException && e.getCause() instanceof SdkException sdkException) {
+                throw sdkException;
+            }
+            throw e;
+        }
+    }
+
+    private void abortQuietly(String key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(request -> request
+                    .bucket(properties.getS3Bucket())
+                    .key(key)
+                    .uploadId(uploadId));
+        } catch (SdkException e) {
+            // Left to the bucket's lifecycle rule for incomplete uploads
+            log.warn("Failed to abort multipart upload of {}: {}", key, e.getMessage());
+        }
+    }
+
+    @Override
+    public Optional<BlobStat> stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = s3Client.headObject(request -> request
+                    .bucket(properties.getS3Bucket())
+                    .key(key));
+            return Optional.of(new BlobStat(head.contentLength(), head.lastModified()));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new IOException("Could not read " + key + " from object storage", e);
+        } catch (SdkException e) {
+            throw new IOException("Could not read " + key + " from object storage", e);
+        }
+    }
+
+    @Override
+    public InputStream openRange(String key, long start, long end) throws IOException {
+        try {
+            return s3Client.getObject(request -> request
+                    .bucket(properties.getS3Bucket())
+                    .key(key)
+                    .range("bytes=" + start + "-" + end));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new NoSuchFileException(key);
+            }
+            throw new IOException("Could not read " + key + " from object storage", e);
+        } catch (SdkException e) {
+            throw new IOException("Could not read " + key + " from object storage", e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return s3Client.getObject(request -> request
+                    .bucket(properties.getS3Bucket())
+                    .key(key));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new NoSuchFileException(key);
+            }
+            throw new IOException("Could not read " + key + " from object storage", e);
+        } catch (SdkException e) {
+            throw new IOException("Could not read " + key + " from object storage", e);
+        }
+    }
+
+    @Override
+    public void list(Consumer<BlobEntry> visitor) throws IOException {
+        try {
+            // The paginator fetches the next page of up to 1000 keys only when needed
+            s3Client.listObjectsV2Paginator(request -> request.bucket(properties.getS3Bucket()))
+                    .contents()
+                    .forEach(object -> visitor.accept(new BlobEntry(object.key(), object.size(), object.lastModified())));
+        } catch (SdkException e) {
+            throw new IOException("Could not list object storage", e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3Client.deleteObject(request -> request
+                    .bucket(properties.getS3Bucket())
+                    .key(key));
+        } catch (SdkException e) {
+            throw new IOException("Could not delete " + key + " from object storage", e);
+        }
+    }
+
+    private static AwsCredentialsProvider credentialsProvider(BlobStoreProperties properties) {
+        if (StringUtils.hasText(properties.getS3AccessKey())) {
+            return StaticCredentialsProvider.create(
+                    AwsBasicCredentials.create(properties.getS3AccessKey(), properties.getS3SecretKey()));
+        }
+        return DefaultCredentialsProvider.create();
+    }
+}
@@ -6,8 +6,9 @@ import com.company.knowledge_sharing_backend.dto.response.SearchResultResponse;
 import com.company.knowledge_sharing_backend.entity.Document;
 import com.company.knowledge_sharing_backend.entity.FileType;
 import com.company.knowledge_sharing_backend.entity.SharingLevel;
-import com.company.knowledge_sharing_backend.entity.Tag;
 import com.company.knowledge_sharing_backend.repository.DocumentRepository;
+import com.company.knowledge_sharing_backend.service.DocumentResponseAssembler;
+import com.company.knowledge_sharing_backend.service.DocumentTextService;
 import com.company.knowledge_sharing_backend.service.SearchService;
 import com.company.knowledge_sharing_backend.specification.DocumentSpecification;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,7 +21,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
@@ -29,12 +29,19 @@ public class SearchServiceImpl implements SearchService {
     @Autowired
     private DocumentRepository documentRepository;
 
+    @Autowired
+    private DocumentResponseAssembler responseAssembler;
+
+    @Autowired
+    private DocumentTextService documentTextService;
+
     @Override
     public SearchResultResponse advancedSearch(DocumentSearchRequest request, Long currentUserId) {
         long startTime = System.currentTimeMillis();
 
-        // Build specification
-        Specification<Document> spec = DocumentSpecification.buildSpecification(request, currentUserId);
+        // Build specification (keywords also match the text of attached files)
+        List<Long> textMatchIds = documentTextService.findDocumentIdsMatching(request.getQuery());
+        Specification<Document> spec = DocumentSpecification.buildSpecification(request, currentUserId, textMatchIds);
 
         // Build pageable with sorting
         Pageable pageable = buildPageable(request);
@@ -43,23 +50,7 @@ public class SearchServiceImpl implements SearchService {
         Page<Document> page = documentRepository.findAll(spec, pageable);
 
         // Convert to response
-        List<DocumentResponse> documents = page.getContent().stream()
-                .map(this::mapToDocumentResponse)
-                .collect(Collectors.toList());
-
-        // Post-process sorting for rating-based sorts (since averageRating is transient)
-        String sortBy = request.getSortBy() != null ? request.getSortBy().toLowerCase() : "recent";
-        if ("rating".equals(sortBy) || "popular".equals(sortBy)) {
-            boolean ascending = request.getSortOrder() != null &&
-                              request.getSortOrder().equalsIgnoreCase("asc");
-            documents = documents.stream()
-                    .sorted((d1, d2) -> {
-                        Double rating1 = d1.getAverageRating() != null ? d1.getAverageRating() : 0.0;
-                        Double rating2 = d2.getAverageRating() != null ? d2.getAverageRating() : 0.0;
-                        return ascending ? rating1.compareTo(rating2) : rating2.compareTo(rating1);
-                    })
-                    .collect(Collectors.toList());
-        }
+        List<DocumentResponse> documents = responseAssembler.toResponses(page.getContent(), false);
 
         long searchTime = System.currentTimeMillis() - startTime;
 
@@ -101,11 +92,10 @@ public class SearchServiceImpl implements SearchService {
                 break;
             case "rating":
             case "popular":
-                // Cannot sort by transient field in database
-                // Will sort in memory after fetching results
-                direction = Sort.Direction.DESC;
-                property = "createdAt";
-                break;
+                // Indexed aggregate columns; id keeps pages stable among equal ratings
+                direction = sortOrder != null && sortOrder.equalsIgnoreCase("asc")
+                    ? Sort.Direction.ASC : Sort.Direction.DESC;
+                return Sort.by(direction, "ratingAverage", "ratingCount", "id");
             case "relevance":
                 // For relevance, we'd typically use full-text search scores
                 // For now, use recent as fallback
@@ -121,27 +111,5 @@ public class SearchServiceImpl implements SearchService {
 
         return Sort.by(direction, property);
     }
-
-
-    private DocumentResponse mapToDocumentResponse(Document document) {
-        return DocumentResponse.builder()
-                .id(document.getId())
-                .title(document.getTitle())
-                .summary(document.getSummary())
-                .ownerUsername(document.getOwner().getUsername())
-                .ownerId(document.getOwner().getId())
-                .tags(document.getTags().stream()
-                        .map(Tag::getName)
-                        .collect(Collectors.toList()))
-                .fileType(document.getFileType().name())
-                .fileSize(document.getFileSize())
-                .sharingLevel(document.getSharingLevel().name())
-                .versionNumber(document.getVersionNumber())
-                .averageRating(document.getAverageRating())
-                .isArchived(document.getIsArchived())
-                .createdAt(document.getCreatedAt())
-                .updatedAt(document.getUpdatedAt())
-                .build();
-    }
 }
 
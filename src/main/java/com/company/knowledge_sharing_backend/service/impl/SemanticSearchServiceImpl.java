@@ -2,47 +2,102 @@ package com.company.knowledge_sharing_backend.service.impl;
 
 import com.company.knowledge_sharing_backend.dto.response.DocumentResponse;
 import com.company.knowledge_sharing_backend.entity.Document;
-import com.company.knowledge_sharing_backend.entity.Group;
-import com.company.knowledge_sharing_backend.entity.SharingLevel;
-import com.company.knowledge_sharing_backend.entity.Tag;
-import com.company.knowledge_sharing_backend.entity.User;
+import com.company.knowledge_sharing_backend.exception.RateLimitExceededException;
 import com.company.knowledge_sharing_backend.exception.ResourceNotFoundException;
 import com.company.knowledge_sharing_backend.repository.DocumentRepository;
-import com.company.knowledge_sharing_backend.repository.UserRepository;
+import com.company.knowledge_sharing_backend.service.DocumentResponseAssembler;
+import com.company.knowledge_sharing_backend.service.DocumentTextService;
 import com.company.knowledge_sharing_backend.service.GeminiService;
+import com.company.knowledge_sharing_backend.service.RateLimiterService;
 import com.company.knowledge_sharing_backend.service.SemanticSearchService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class SemanticSearchServiceImpl implements SemanticSearchService {
 
+    // Words of extracted file text included in the embedding input (model input is limited)
+    private static final int EMBEDDING_FILE_TEXT_WORDS = 1000;
+
+    // Documents read per query by the missing-embeddings job
+    private static final int MISSING_EMBEDDING_BATCH_SIZE = 100;
+
     @Autowired
     private DocumentRepository documentRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private GeminiService geminiService;
+
+    @Autowired
+    private RateLimiterService rateLimiterService;
 
     @Autowired
-    private GeminiService geminiService;
+    private DocumentTextService documentTextService;
+
+    @Autowired
+    private DocumentResponseAssembler responseAssembler;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("aiExecutor")
+    private Executor aiExecutor;
 
     @Override
     @Transactional(readOnly = true)
     public List<DocumentResponse> semanticSearch(String query, Long userId, int limit) {
+        rateLimiterService.acquire(RateLimiterService.Scope.SEMANTIC_SEARCH, userId);
+
         // Generate embedding for user query
         log.info("Generating embedding for query: {}", query);
         String queryEmbedding = geminiService.generateEmbedding(query);
 
-        // Get all accessible documents
+        return rankDocuments(queryEmbedding, userId, limit);
+    }
+
+    @Override
+    public CompletableFuture<List<DocumentResponse>> semanticSearchAsync(String query, Long userId, int limit) {
+        rateLimiterService.acquire(RateLimiterService.Scope.SEMANTIC_SEARCH, userId);
+
+        log.info("Generating embedding for query: {}", query);
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+
+        // Ranking runs on the AI pool once Gemini answers; the request thread is already released
+        return geminiService.generateEmbeddingAsync(query)
+                .thenApplyAsync(queryEmbedding -> readOnlyTransaction.execute(
+                        status -> rankDocuments(queryEmbedding, userId, limit)), this::executeRanking);
+    }
+
+    // A full AI pool means the service is overloaded: answer 429, not 500
+    private void executeRanking(Runnable task) {
+        try {
+            aiExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            throw new RateLimitExceededException("AI service is busy. Please try again in a moment.");
+        }
+    }
+
+    private List<DocumentResponse> rankDocuments(String queryEmbedding, Long userId, int limit) {
         List<Document> allDocuments = documentRepository.findAll();
 
         // Calculate similarity scores
@@ -54,11 +109,6 @@ public class SemanticSearchServiceImpl implements SemanticSearchService {
                 continue;
             }
 
-            // Check access permission
-            if (!canAccessDocument(doc, userId)) {
-                continue;
-            }
-
             // Skip if no embedding
             if (doc.getContentEmbedding() == null || doc.getContentEmbedding().isEmpty()) {
                 continue;
@@ -77,12 +127,23 @@ public class SemanticSearchServiceImpl implements SemanticSearchService {
             }
         }
 
-        // Sort by similarity score (descending) and limit
-        return scoredDocuments.stream()
+        // Sort by similarity score (descending), then keep the best accessible ones; group
+        // membership is checked in one batch instead of loading groups per document
+        List<DocumentWithScore> ranked = scoredDocuments.stream()
                 .sorted(Comparator.comparingDouble(DocumentWithScore::getScore).reversed())
-                .limit(limit)
-                .map(ds -> mapToResponse(ds.getDocument(), ds.getScore()))
                 .collect(Collectors.toList());
+        Map<Long, Double> scores = new HashMap<>();
+        ranked.forEach(scored -> scores.put(scored.getDocument().getId(), scored.getScore()));
+
+        List<DocumentResponse> responses = responseAssembler.toAccessibleResponses(
+                ranked.stream().map(DocumentWithScore::getDocument).collect(Collectors.toList()), userId, limit, true);
+        for (DocumentResponse response : responses) {
+            // Don't expose file path (the thumbnail URL contains it)
+            response.setFilePath(null);
+            response.setThumbnailUrl(null);
+            response.setSemanticScore(scores.get(response.getId()));
+        }
+        return responses;
     }
 
     @Override
@@ -104,6 +165,11 @@ public class SemanticSearchServiceImpl implements SemanticSearchService {
                 textBuilder.append(" ").append(document.getContent());
             }
 
+            // Text extracted from the uploaded file, if already available
+            documentTextService.getLatestExcerpt(documentId, EMBEDDING_FILE_TEXT_WORDS)
+                    .filter(excerpt -> !excerpt.isEmpty())
+                    .ifPresent(excerpt -> textBuilder.append(" ").append(excerpt));
+
             String text = textBuilder.toString();
 
             // Generate embedding
@@ -122,80 +188,38 @@ public class SemanticSearchServiceImpl implements SemanticSearchService {
     }
 
     @Override
-    @Transactional
     @Scheduled(fixedDelay = 3600000) // Run every 1 hour
     public void generateMissingEmbeddings() {
         log.info("Starting background job to generate missing embeddings");
 
-        List<Document> documentsWithoutEmbedding = documentRepository.findAll().stream()
-                .filter(doc -> !doc.getIsArchived())
-                .filter(doc -> doc.getContentEmbedding() == null || doc.getContentEmbedding().isEmpty())
-                .collect(Collectors.toList());
-
-        log.info("Found {} documents without embeddings", documentsWithoutEmbedding.size());
-
-        for (Document doc : documentsWithoutEmbedding) {
-            try {
-                generateDocumentEmbedding(doc.getId());
-            } catch (Exception e) {
-                log.error("Failed to generate embedding for document {}: {}", doc.getId(), e.getMessage());
-                // Continue with next document
+        // Each call draws from the global Gemini quota; what is left over waits for the next run.
+        // No surrounding transaction: each embedding is saved on its own, outside the Gemini call.
+        int generated = 0;
+        long afterId = 0;
+        List<Long> documentIds;
+        do {
+            documentIds = documentRepository.findIdsWithoutEmbedding(afterId, PageRequest.of(0, MISSING_EMBEDDING_BATCH_SIZE));
+            for (Long documentId : documentIds) {
+                if (!rateLimiterService.tryAcquireUpstream()) {
+                    log.info("Gemini quota exhausted after {} embeddings; the rest waits for the next run", generated);
+                    return;
+                }
+                try {
+                    generateDocumentEmbedding(documentId);
+                    generated++;
+                } catch (Exception e) {
+                    log.error("Failed to generate embedding for document {}: {}", documentId, e.getMessage());
+                    // Continue with next document
+                }
+                afterId = documentId;
             }
-        }
+        } while (documentIds.size() == MISSING_EMBEDDING_BATCH_SIZE);
 
-        log.info("Finished generating missing embeddings");
+        log.info("Finished generating missing embeddings ({} generated)", generated);
     }
 
     // Helper methods
 
-    private boolean canAccessDocument(Document document, Long userId) {
-        // Owner can always access
-        if (document.getOwner().getId().equals(userId)) {
-            return true;
-        }
-
-        // Public documents
-        if (document.getSharingLevel() == SharingLevel.PUBLIC) {
-            return true;
-        }
-
-        // Group documents - check if user is in any of the groups
-        if (document.getSharingLevel() == SharingLevel.GROUP) {
-            User user = userRepository.findById(userId).orElse(null);
-            if (user != null) {
-                return document.getGroups().stream()
-                        .anyMatch(group -> group.getUsers().contains(user));
-            }
-        }
-
-        // Private documents - only owner
-        return false;
-    }
-
-    private DocumentResponse mapToResponse(Document document, double semanticScore) {
-        return DocumentResponse.builder()
-                .id(document.getId())
-                .title(document.getTitle())
-                .summary(document.getSummary())
-                .content(document.getContent())
-                .filePath(null) // Don't expose file path
-                .fileType(document.getFileType().name())
-                .fileSize(document.getFileSize())
-                .sharingLevel(document.getSharingLevel().name())
-                .versionNumber(document.getVersionNumber())
-                .isArchived(document.getIsArchived())
-                .ownerId(document.getOwner().getId())
-                .ownerUsername(document.getOwner().getUsername())
-                .averageRating(document.getAverageRating())
-                .ratingCount(document.getRatingCount())
-                .createdAt(document.getCreatedAt())
-                .updatedAt(document.getUpdatedAt())
-                .tags(document.getTags().stream().map(Tag::getName).collect(Collectors.toList()))
-                .groupIds(document.getGroups().stream().map(Group::getId).collect(Collectors.toList()))
-                .semanticScore(semanticScore) // Add semantic similarity score
-                .build();
-    }
-
     // Inner class for holding document with score
     private static class DocumentWithScore {
         private final Document document;
@@ -6,11 +6,20 @@ import jakarta.persistence.criteria.*;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class DocumentSpecification {
 
     public static Specification<Document> buildSpecification(DocumentSearchRequest request, Long currentUserId) {
+        return buildSpecification(request, currentUserId, List.of());
+    }
+
+    /**
+     * @param textMatchIds documents whose attached file text matches the keyword (from the FULLTEXT index)
+     */
+    public static Specification<Document> buildSpecification(DocumentSearchRequest request, Long currentUserId,
+                                                             Collection<Long> textMatchIds) {
         return (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
 
@@ -19,7 +28,7 @@ public class DocumentSpecification {
                 predicates.add(criteriaBuilder.isFalse(root.get("isArchived")));
             }
 
-            // Keyword search (title, summary, content)
+            // Keyword search (title, summary, content, text of the attached file)
             if (request.getQuery() != null && !request.getQuery().trim().isEmpty()) {
                 String keyword = "%" + request.getQuery() + "%";
 
@@ -30,7 +39,12 @@ public class DocumentSpecification {
                 Predicate contentMatch = criteriaBuilder.like(
                     root.get("content"), keyword);
 
-                predicates.add(criteriaBuilder.or(titleMatch, summaryMatch, contentMatch));
+                if (textMatchIds.isEmpty()) {
+                    predicates.add(criteriaBuilder.or(titleMatch, summaryMatch, contentMatch));
+                } else {
+                    Predicate fileTextMatch = root.get("id").in(textMatchIds);
+                    predicates.add(criteriaBuilder.or(titleMatch, summaryMatch, contentMatch, fileTextMatch));
+                }
             }
 
             // Filter by sharing level
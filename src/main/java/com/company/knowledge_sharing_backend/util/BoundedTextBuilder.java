@@ -0,0 +1,109 @@
+package com.company.knowledge_sharing_backend.util;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Text sink with a word (and optional character) budget. Words are counted while
+ * appending (no regex split), and once the budget is used up further appends throw
+ * {@link LimitReachedException} so that extractors can stop parsing immediately.
+ *
+ * Appends also check the thread's interrupt flag, which gives parsers that never
+ * look at it themselves a cancellation point.
+ */
+public class BoundedTextBuilder implements Appendable {
+
+    private final StringBuilder text = new StringBuilder();
+    private final int maxWords;
+    private final int maxChars;
+    private int words;
+    private boolean inWord;
+    private boolean full;
+
+    public BoundedTextBuilder(int maxWords) {
+        this(maxWords, Integer.MAX_VALUE);
+    }
+
+    public BoundedTextBuilder(int maxWords, int maxChars) {
+        this.maxWords = maxWords;
+        this.maxChars = maxChars;
+    }
+
+    public static BoundedTextBuilder unbounded() {
+        return new BoundedTextBuilder(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public BoundedTextBuilder append(CharSequence sequence) {
+        if (sequence == null) {
+            return this;
+        }
+        return append(sequence, 0, sequence.length());
+    }
+
+    @Override
+    public BoundedTextBuilder append(CharSequence sequence, int start, int end) {
+        for (int i = start; i < end; i++) {
+            append(sequence.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public BoundedTextBuilder append(char c) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Text extraction cancelled");
+        }
+        if (full || text.length() >= maxChars) {
+            full = true;
+            throw new LimitReachedException();
+        }
+
+        if (Character.isWhitespace(c)) {
+            inWord = false;
+        } else if (!inWord) {
+            if (words == maxWords) {
+                full = true;
+                throw new LimitReachedException();
+            }
+            words++;
+            inWord = true;
+        }
+
+        text.append(c);
+        return this;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public int getWordCount() {
+        return words;
+    }
+
+    @Override
+    public String toString() {
+        return full ? text.toString().trim() : text.toString();
+    }
+
+    /**
+     * Thrown when the word budget is exhausted. Carries no stack trace: it is control flow, not an error.
+     */
+    public static class LimitReachedException extends RuntimeException {
+        public LimitReachedException() {
+            super("Text budget reached", null, false, false);
+        }
+
+        /**
+         * Parsers (SAX, POI) may wrap exceptions thrown from callbacks
+         */
+        public static boolean isCause(Throwable error) {
+            for (Throwable t = error; t != null; t = t.getCause()) {
+                if (t instanceof LimitReachedException) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.company.knowledge_sharing_backend.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Splits a stream into content-defined chunks with a gear rolling hash (as in FastCDC).
+ * A boundary is cut where the hash of the last ~64 bytes has its top bits clear, so an edit
+ * only changes the chunks around it: the boundaries after it re-synchronise and the
+ * following chunks come out identical to before.
+ * <p>
+ * The gear table is derived from a fixed seed and must never change, or stored data would
+ * stop deduplicating against new uploads.
+ */
+public class ContentDefinedChunker {
+
+    private static final long[] GEAR = new long[256];
+
+    static {
+        long seed = 0x6b6e6f776c656467L;
+        for (int i = 0; i < GEAR.length; i++) {
+            // SplitMix64
+            seed += 0x9E3779B97F4A7C15L;
+            long z = seed;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Receives each chunk; the buffer is reused, so copy what must outlive the call
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(byte[] buffer, int length) throws IOException;
+    }
+
+    private final int minSize;
+    private final int maxSize;
+    private final long mask;
+
+    /**
+     * @param averageSize expected chunk size, a power of two
+     */
+    public ContentDefinedChunker(int minSize, int averageSize, int maxSize) {
+        if (Integer.bitCount(averageSize) != 1 || minSize <= 0 || minSize > averageSize || averageSize > maxSize) {
+            throw new IllegalArgumentException("Need 0 < min <= average <= max, with average a power of two");
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        // Top bits: with the shifting gear hash they depend on the most recent bytes
+        int bits = Integer.numberOfTrailingZeros(averageSize);
+        this.mask = -1L << (64 - bits);
+    }
+
+    /**
+     * Split the stream, passing each chunk in order. Returns the total length.
+     */
+    public long split(InputStream in, ChunkConsumer consumer) throws IOException {
+        byte[] chunk = new byte[maxSize];
+        byte[] block = new byte[READ_BUFFER_SIZE];
+        int length = 0;
+        long hash = 0;
+        long total = 0;
+
+        int read;
+        while ((read = in.read(block)) != -1) {
+            for (int i = 0; i < read; i++) {
+                chunk[length++] = block[i];
+                hash = (hash << 1) + GEAR[block[i] & 0xff];
+                if ((length >= minSize && (hash & mask) == 0) || length == maxSize) {
+                    consumer.accept(chunk, length);
+                    total += length;
+                    length = 0;
+                    hash = 0;
+                }
+            }
+        }
+        if (length > 0) {
+            consumer.accept(chunk, length);
+            total += length;
+        }
+        return total;
+    }
+}
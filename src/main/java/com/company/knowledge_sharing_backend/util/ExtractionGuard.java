@@ -0,0 +1,76 @@
+package com.company.knowledge_sharing_backend.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cancellation points for parser work. {@link #call} runs a task with a CPU-time budget for
+ * the current thread; extractors call {@link #checkpoint()} between pages, rows and paragraphs,
+ * which stops the task once it is interrupted (wall-clock timeout) or has used up its CPU time.
+ *
+ * A single library call (e.g. PDFBox parsing an xref table, POI opening a package) cannot be
+ * preempted: the task stops at the first checkpoint after it returns.
+ */
+public final class ExtractionGuard {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    // Reading thread CPU time costs about a microsecond: at most once per this much wall time
+    private static final long CPU_CHECK_INTERVAL_NANOS = 10_000_000;
+
+    private static final ThreadLocal<ExtractionGuard> CURRENT = new ThreadLocal<>();
+
+    private final long cpuDeadlineNanos;
+    private long lastCpuCheck = System.nanoTime();
+
+    private ExtractionGuard(long cpuDeadlineNanos) {
+        this.cpuDeadlineNanos = cpuDeadlineNanos;
+    }
+
+    /**
+     * Run work on this thread with at most cpuLimitNanos of CPU time (0 = no CPU limit)
+     */
+    public static <T> T call(long cpuLimitNanos, Callable<T> work) throws Exception {
+        long deadline = cpuLimitNanos > 0 && cpuTimeSupported()
+                ? THREADS.getCurrentThreadCpuTime() + cpuLimitNanos
+                : Long.MAX_VALUE;
+        ExtractionGuard previous = CURRENT.get();
+        CURRENT.set(new ExtractionGuard(deadline));
+        try {
+            return work.call();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Throw {@link CancellationException} if the thread was interrupted or the CPU budget is spent
+     */
+    public static void checkpoint() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Text extraction cancelled");
+        }
+        ExtractionGuard guard = CURRENT.get();
+        if (guard == null || guard.cpuDeadlineNanos == Long.MAX_VALUE) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - guard.lastCpuCheck < CPU_CHECK_INTERVAL_NANOS) {
+            return;
+        }
+        guard.lastCpuCheck = now;
+        if (THREADS.getCurrentThreadCpuTime() > guard.cpuDeadlineNanos) {
+            throw new CancellationException("Text extraction exceeded its CPU time limit");
+        }
+    }
+
+    private static boolean cpuTimeSupported() {
+        return THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    }
+}
@@ -0,0 +1,86 @@
+package com.company.knowledge_sharing_backend.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller runs the work,
+ * everyone arriving while it is in flight shares the same future.
+ * The key is released as soon as the work completes, so later calls run again.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Start (or join) asynchronous work for the key
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> work) {
+        CompletableFuture<V> placeholder = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, placeholder);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<V> result;
+        try {
+            result = work.get();
+        } catch (Throwable e) {
+            // Errors too: an incomplete placeholder would block every later caller for the key
+            result = CompletableFuture.failedFuture(e);
+        }
+        if (result == null) {
+            result = CompletableFuture.failedFuture(new IllegalStateException("Work returned no future"));
+        }
+
+        result.whenComplete((value, error) -> {
+            try {
+                inFlight.remove(key, placeholder);
+            } finally {
+                if (error != null) {
+                    placeholder.completeExceptionally(unwrap(error));
+                } else {
+                    placeholder.complete(value);
+                }
+            }
+        });
+        return placeholder;
+    }
+
+    /**
+     * Run (or join) blocking work for the key on the caller's thread
+     */
+    public V call(K key, Supplier<V> work) {
+        CompletableFuture<V> future = execute(key, () -> {
+            try {
+                return CompletableFuture.completedFuture(work.get());
+            } catch (Throwable e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,69 @@
+package com.company.knowledge_sharing_backend.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket. Tokens refill continuously at a fixed rate up to the capacity,
+ * so there is no window boundary where a client can burst twice its quota.
+ */
+public final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+
+    public TokenBucket(int capacity, int tokensPerMinute) {
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.state = new AtomicReference<>(new State(capacity, System.nanoTime()));
+    }
+
+    /**
+     * Take one token if available
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            State current = state.get();
+            long now = System.nanoTime();
+            double tokens = refill(current, now);
+            if (tokens < 1) {
+                return false;
+            }
+            if (state.compareAndSet(current, new State(tokens - 1, now))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back a token taken by {@link #tryAcquire()} for a request that was not served
+     */
+    public void refund() {
+        while (true) {
+            State current = state.get();
+            long now = System.nanoTime();
+            double tokens = Math.min(capacity, refill(current, now) + 1);
+            if (state.compareAndSet(current, new State(tokens, now))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A bucket is idle when it has been refilled to capacity and untouched for the given time.
+     * Dropping an idle bucket is indistinguishable from keeping it.
+     */
+    public boolean isIdle(long idleNanos) {
+        State current = state.get();
+        long now = System.nanoTime();
+        return now - current.timestamp() > idleNanos && refill(current, now) >= capacity;
+    }
+
+    private double refill(State current, long now) {
+        return Math.min(capacity, current.tokens() + (now - current.timestamp()) * tokensPerNano);
+    }
+
+    private record State(double tokens, long timestamp) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.company.knowledge_sharing_backend.gemini;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Upstream behaviour simulated by {@link GeminiStubServer}.
+ *
+ * Latency follows a log-normal distribution fitted to the given median and p99,
+ * which matches the long tail seen on real LLM APIs far better than a fixed delay.
+ *
+ * @param name             label used in reports
+ * @param medianMillis     median response latency (0 = respond immediately)
+ * @param p99Millis        99th percentile response latency
+ * @param errorRate        fraction of requests answered with HTTP 500
+ * @param rateLimitRate    fraction of requests answered with HTTP 429
+ * @param dripChunkBytes   when > 0, the body is written in chunks of this size...
+ * @param dripDelayMillis  ...with this pause between chunks (slow-drip response)
+ */
+public record FaultProfile(
+        String name,
+        long medianMillis,
+        long p99Millis,
+        double errorRate,
+        double rateLimitRate,
+        int dripChunkBytes,
+        long dripDelayMillis) {
+
+    private static final double Z_99 = 2.326;
+
+    public static final FaultProfile NONE = new FaultProfile("none", 0, 0, 0, 0, 0, 0);
+    public static final FaultProfile TYPICAL = new FaultProfile("typical", 300, 1500, 0, 0, 0, 0);
+    public static final FaultProfile SLOW = new FaultProfile("slow", 2000, 8000, 0, 0, 0, 0);
+    public static final FaultProfile FLAKY = new FaultProfile("flaky", 300, 1500, 0.10, 0, 0, 0);
+    public static final FaultProfile THROTTLED = new FaultProfile("throttled", 200, 800, 0, 0.30, 0, 0);
+    public static final FaultProfile SLOW_DRIP = new FaultProfile("slow-drip", 100, 300, 0, 0, 256, 25);
+
+    public static List<FaultProfile> standardProfiles() {
+        return List.of(NONE, TYPICAL, SLOW, FLAKY, THROTTLED, SLOW_DRIP);
+    }
+
+    public long sampleLatencyMillis(Random random) {
+        if (medianMillis <= 0) {
+            return 0;
+        }
+        double sigma = p99Millis > medianMillis ? Math.log((double) p99Millis / medianMillis) / Z_99 : 0;
+        return Math.round(Math.exp(Math.log(medianMillis) + sigma * random.nextGaussian()));
+    }
+}
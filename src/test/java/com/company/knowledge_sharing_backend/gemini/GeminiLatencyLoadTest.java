@@ -0,0 +1,206 @@
+package com.company.knowledge_sharing_backend.gemini;
+
+import com.company.knowledge_sharing_backend.config.RateLimitProperties;
+import com.company.knowledge_sharing_backend.entity.Document;
+import com.company.knowledge_sharing_backend.entity.FileType;
+import com.company.knowledge_sharing_backend.entity.SharingLevel;
+import com.company.knowledge_sharing_backend.entity.User;
+import com.company.knowledge_sharing_backend.repository.DocumentRepository;
+import com.company.knowledge_sharing_backend.repository.GroupRepository;
+import com.company.knowledge_sharing_backend.repository.UserRepository;
+import com.company.knowledge_sharing_backend.service.DocumentResponseAssembler;
+import com.company.knowledge_sharing_backend.service.DocumentSummaryService;
+import com.company.knowledge_sharing_backend.service.DocumentTextService;
+import com.company.knowledge_sharing_backend.service.RateLimiterService;
+import com.company.knowledge_sharing_backend.service.TextExtractionService;
+import com.company.knowledge_sharing_backend.service.impl.GeminiServiceImpl;
+import com.company.knowledge_sharing_backend.service.impl.SemanticSearchServiceImpl;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reports p50/p99 latency of the Gemini-backed service methods under each {@link FaultProfile}:
+ * <ul>
+ *   <li>embed: {@link SemanticSearchServiceImpl#generateDocumentEmbedding}, the Gemini step of an
+ *       upload (document creation itself only queues it for the pipeline)</li>
+ *   <li>search: {@link SemanticSearchServiceImpl#semanticSearch}, i.e. rate limiter, query embedding
+ *       and ranking of {@value #CORPUS_SIZE} stored embeddings</li>
+ *   <li>summary: {@link DocumentSummaryService#generateSummary}, i.e. rate limiter, text extraction
+ *       and the summary call</li>
+ * </ul>
+ * Repositories are mocks; Gemini is the stub server. Quotas are raised so the limiter runs
+ * without rejecting, and the no-fault profile must serve every request.
+ *
+ * A normal build runs a short smoke pass (no-fault profile, a few requests) so the wiring
+ * keeps up with the services. The full run is slow by design, so it only runs on request:
+ *   mvn test -Dtest=GeminiLatencyLoadTest -Dgemini.loadtest=true
+ */
+class GeminiLatencyLoadTest {
+
+    private static final boolean FULL_RUN = Boolean.getBoolean("gemini.loadtest");
+
+    private static final int REQUESTS_PER_SCENARIO = Integer.getInteger("gemini.loadtest.requests", FULL_RUN ? 200 : 10);
+    private static final int CONCURRENCY = Integer.getInteger("gemini.loadtest.concurrency", FULL_RUN ? 16 : 4);
+    private static final int CORPUS_SIZE = FULL_RUN ? 500 : 50;
+    private static final long USER_ID = 1L;
+
+    private static final Logger log = LoggerFactory.getLogger(GeminiLatencyLoadTest.class);
+
+    private static GeminiStubServer stub;
+    private static ExecutorService aiExecutor;
+    private static SemanticSearchServiceImpl semanticSearchService;
+    private static DocumentSummaryService summaryService;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @BeforeAll
+    static void startStub() throws Exception {
+        stub = new GeminiStubServer().start();
+        aiExecutor = Executors.newFixedThreadPool(8);
+        GeminiServiceImpl gemini = stub.newClient(aiExecutor);
+
+        RateLimitProperties quotas = new RateLimitProperties();
+        RateLimitProperties.Quota unlimited = new RateLimitProperties.Quota(1_000_000, 1_000_000);
+        quotas.setSemanticSearch(unlimited);
+        quotas.setSummary(unlimited);
+        quotas.setGemini(unlimited);
+        RateLimiterService rateLimiterService = new RateLimiterService();
+        ReflectionTestUtils.setField(rateLimiterService, "properties", quotas);
+
+        // Stored documents with real (stub) embeddings for ranking
+        User owner = User.builder().id(USER_ID).username("loadtest").build();
+        List<Document> corpus = new ArrayList<>();
+        for (long id = 1; id <= CORPUS_SIZE; id++) {
+            corpus.add(Document.builder()
+                    .id(id)
+                    .title("Document " + id)
+                    .fileType(FileType.PDF)
+                    .sharingLevel(SharingLevel.PUBLIC)
+                    .owner(owner)
+                    .contentEmbedding(gemini.generateEmbedding("Document " + id))
+                    .build());
+        }
+        DocumentRepository documentRepository = mock(DocumentRepository.class);
+        when(documentRepository.findAll()).thenReturn(corpus);
+        when(documentRepository.findById(anyLong())).thenAnswer(invocation ->
+                Optional.of(corpus.get((int) ((invocation.<Long>getArgument(0) - 1) % CORPUS_SIZE))));
+        DocumentTextService documentTextService = mock(DocumentTextService.class);
+        when(documentTextService.getLatestExcerpt(anyLong(), anyInt())).thenReturn(Optional.empty());
+
+        DocumentResponseAssembler assembler = new DocumentResponseAssembler();
+        ReflectionTestUtils.setField(assembler, "documentRepository", documentRepository);
+        ReflectionTestUtils.setField(assembler, "userRepository", mock(UserRepository.class));
+        ReflectionTestUtils.setField(assembler, "groupRepository", mock(GroupRepository.class));
+
+        semanticSearchService = new SemanticSearchServiceImpl();
+        ReflectionTestUtils.setField(semanticSearchService, "documentRepository", documentRepository);
+        ReflectionTestUtils.setField(semanticSearchService, "geminiService", gemini);
+        ReflectionTestUtils.setField(semanticSearchService, "rateLimiterService", rateLimiterService);
+        ReflectionTestUtils.setField(semanticSearchService, "documentTextService", documentTextService);
+        ReflectionTestUtils.setField(semanticSearchService, "responseAssembler", assembler);
+        ReflectionTestUtils.setField(semanticSearchService, "aiExecutor", aiExecutor);
+
+        summaryService = new DocumentSummaryService();
+        ReflectionTestUtils.setField(summaryService, "textExtractionService", new TextExtractionService());
+        ReflectionTestUtils.setField(summaryService, "geminiService", gemini);
+        ReflectionTestUtils.setField(summaryService, "rateLimiterService", rateLimiterService);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+        aiExecutor.shutdownNow();
+    }
+
+    @Test
+    void reportLatencyPerFaultProfile() throws Exception {
+        log.info(String.format("%-10s %-8s %8s %8s %8s %8s", "profile", "path", "ok", "failed", "p50(ms)", "p99(ms)"));
+
+        for (FaultProfile profile : FULL_RUN ? FaultProfile.standardProfiles() : List.of(FaultProfile.NONE)) {
+            stub.setProfile(profile);
+
+            // Unique inputs per request so single-flight coalescing does not hide upstream latency
+            int embedFailures = report(profile, "embed",
+                    () -> semanticSearchService.generateDocumentEmbedding((long) sequence.incrementAndGet()));
+            int searchFailures = report(profile, "search",
+                    () -> semanticSearchService.semanticSearch("query " + sequence.incrementAndGet(), USER_ID, 10));
+            int summaryFailures = report(profile, "summary", () -> {
+                byte[] bytes = ("Quarterly report " + sequence.incrementAndGet() + " ").repeat(500)
+                        .getBytes(StandardCharsets.UTF_8);
+                MockMultipartFile file = new MockMultipartFile("file", "report.txt", "text/plain", bytes);
+                String summary = summaryService.generateSummary(file, USER_ID).getSummary();
+                if (summary == null || summary.isBlank()) {
+                    throw new IllegalStateException("Empty summary");
+                }
+            });
+
+            if (profile == FaultProfile.NONE) {
+                assertThat(embedFailures + searchFailures + summaryFailures).isZero();
+            }
+        }
+    }
+
+    /**
+     * Run the call concurrently and log its latency percentiles; returns the number of failed calls
+     */
+    private int report(FaultProfile profile, String path, Runnable call) throws Exception {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger failures = new AtomicInteger();
+
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < REQUESTS_PER_SCENARIO; i++) {
+                futures.add(clients.submit(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        call.run();
+                        latencies.add((System.nanoTime() - start) / 1_000_000);
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        log.info(String.format("%-10s %-8s %8d %8d %8d %8d", profile.name(), path,
+                sorted.size(), failures.get(), percentile(sorted, 50), percentile(sorted, 99)));
+        return failures.get();
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+}
@@ -0,0 +1,116 @@
+package com.company.knowledge_sharing_backend.gemini;
+
+import com.company.knowledge_sharing_backend.exception.GPTApiException;
+import com.company.knowledge_sharing_backend.exception.RateLimitExceededException;
+import com.company.knowledge_sharing_backend.service.impl.GeminiServiceImpl;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GeminiServiceImplStubTest {
+
+    private static GeminiStubServer stub;
+    private static ExecutorService aiExecutor;
+    private static GeminiServiceImpl gemini;
+
+    @BeforeAll
+    static void startStub() throws Exception {
+        stub = new GeminiStubServer().start();
+        aiExecutor = Executors.newFixedThreadPool(4);
+        gemini = stub.newClient(aiExecutor);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+        aiExecutor.shutdownNow();
+    }
+
+    @BeforeEach
+    void resetStub() {
+        stub.setProfile(FaultProfile.NONE);
+        stub.setEmptyResults(false);
+        stub.resetRequestCount();
+    }
+
+    @Test
+    void parsesSummaryAndEmbeddingResponses() {
+        assertThat(gemini.generateSummary("some document text")).startsWith("Stub summary");
+        assertThat(gemini.parseEmbedding(gemini.generateEmbedding("query")))
+                .hasSize(GeminiStubServer.EMBEDDING_DIMENSION);
+    }
+
+    @Test
+    void surfacesRateLimitAsApiException() {
+        stub.setProfile(new FaultProfile("always-429", 0, 0, 0, 1.0, 0, 0));
+
+        assertThatThrownBy(() -> gemini.generateEmbedding("query"))
+                .isInstanceOf(GPTApiException.class)
+                .hasMessageContaining("429");
+    }
+
+    @Test
+    void rejectsAndDoesNotCacheEmptyResults() {
+        GeminiServiceImpl cached = stub.newClient(aiExecutor);
+        ReflectionTestUtils.setField(cached, "cacheResults", true);
+        ReflectionTestUtils.setField(cached, "cacheManager", new ConcurrentMapCacheManager());
+        stub.setEmptyResults(true);
+
+        assertThatThrownBy(() -> cached.generateEmbedding("query"))
+                .isInstanceOf(GPTApiException.class)
+                .hasMessageContaining("no embedding");
+        assertThatThrownBy(() -> cached.generateSummary("some document text"))
+                .isInstanceOf(GPTApiException.class)
+                .hasMessageContaining("no summary");
+
+        // Nothing was cached: once upstream recovers, the real results are fetched
+        stub.setEmptyResults(false);
+        assertThat(cached.parseEmbedding(cached.generateEmbedding("query")))
+                .hasSize(GeminiStubServer.EMBEDDING_DIMENSION);
+        assertThat(cached.generateSummary("some document text")).startsWith("Stub summary");
+        assertThat(stub.getRequestCount()).isEqualTo(4);
+    }
+
+    @Test
+    void saturatedPoolIsReportedAsRateLimit() {
+        GeminiServiceImpl cached = stub.newClient(aiExecutor);
+        ReflectionTestUtils.setField(cached, "cacheResults", true);
+        ReflectionTestUtils.setField(cached, "cacheManager", new ConcurrentMapCacheManager());
+        // The cache lookup is handed to the AI pool, which refuses it
+        ReflectionTestUtils.setField(cached, "aiExecutor", (Executor) task -> {
+            throw new RejectedExecutionException("pool full");
+        });
+
+        assertThatThrownBy(() -> cached.generateEmbedding("query"))
+                .isInstanceOf(RateLimitExceededException.class);
+        assertThat(stub.getRequestCount()).isZero();
+    }
+
+    @Test
+    void coalescesConcurrentIdenticalRequests() {
+        stub.setProfile(new FaultProfile("fixed-200ms", 200, 200, 0, 0, 0, 0));
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(gemini.generateEmbeddingAsync("same popular query"));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        assertThat(stub.getRequestCount()).isEqualTo(1);
+        assertThat(futures).allSatisfy(f -> assertThat(f.join()).isEqualTo(futures.get(0).join()));
+    }
+}
@@ -0,0 +1,283 @@
+package com.company.knowledge_sharing_backend.gemini;
+
+import com.company.knowledge_sharing_backend.service.impl.GeminiServiceImpl;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.cache.support.NoOpCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded stand-in for the Gemini REST API (v1beta) used to reproduce upstream latency
+ * and failures locally. Implements generateContent, streamGenerateContent, embedContent
+ * and batchEmbedContents for any model name.
+ *
+ * Can also be run on its own (port as first argument) and targeted by a running
+ * application through gemini.summary.api.url / gemini.embedding.api.url.
+ */
+public class GeminiStubServer implements AutoCloseable {
+
+    public static final int EMBEDDING_DIMENSION = 768;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    private volatile FaultProfile profile = FaultProfile.NONE;
+
+    // Answer with well-formed responses that carry no summary text or embedding values
+    private volatile boolean emptyResults;
+
+    public GeminiStubServer() throws IOException {
+        this(0);
+    }
+
+    public GeminiStubServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        GeminiStubServer stub = new GeminiStubServer(port).start();
+        if (args.length > 1) {
+            stub.setProfile(FaultProfile.standardProfiles().stream()
+                    .filter(p -> p.name().equals(args[1]))
+                    .findFirst()
+                    .orElse(FaultProfile.NONE));
+        }
+        System.out.println("Gemini stub listening on " + stub.baseUrl() + " (profile: " + stub.profile.name() + ")");
+    }
+
+    public GeminiStubServer start() {
+        server.start();
+        return this;
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1beta";
+    }
+
+    public void setProfile(FaultProfile profile) {
+        this.profile = profile;
+    }
+
+    public void setEmptyResults(boolean emptyResults) {
+        this.emptyResults = emptyResults;
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    public void resetRequestCount() {
+        requestCount.set(0);
+    }
+
+    /**
+     * Build a GeminiServiceImpl wired to this stub, without a Spring context or result cache
+     */
+    public GeminiServiceImpl newClient(Executor aiExecutor) {
+        GeminiServiceImpl client = new GeminiServiceImpl();
+        ReflectionTestUtils.setField(client, "apiKey", "stub-key");
+        ReflectionTestUtils.setField(client, "summaryApiUrl", baseUrl());
+        ReflectionTestUtils.setField(client, "summaryModel", "gemini-stub");
+        ReflectionTestUtils.setField(client, "summaryMaxTokens", 500);
+        ReflectionTestUtils.setField(client, "summaryTemperature", 0.7);
+        ReflectionTestUtils.setField(client, "embeddingApiUrl", baseUrl());
+        ReflectionTestUtils.setField(client, "embeddingModel", "embedding-stub");
+        ReflectionTestUtils.setField(client, "connectTimeoutSeconds", 5);
+        ReflectionTestUtils.setField(client, "requestTimeoutSeconds", 30);
+        ReflectionTestUtils.setField(client, "cacheResults", false);
+        ReflectionTestUtils.setField(client, "cacheManager", new NoOpCacheManager());
+        ReflectionTestUtils.setField(client, "aiExecutor", aiExecutor);
+        ReflectionTestUtils.invokeMethod(client, "initHttpClient");
+        return client;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // ==================== REQUEST HANDLING ====================
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requestCount.incrementAndGet();
+
+            String path = exchange.getRequestURI().getPath();
+            int colon = path.lastIndexOf(':');
+            if (!"POST".equals(exchange.getRequestMethod()) || colon < 0) {
+                send(exchange, 404, error(404, "NOT_FOUND", "Unknown endpoint " + path));
+                return;
+            }
+
+            String operation = path.substring(colon + 1);
+            JsonNode body = objectMapper.readTree(exchange.getRequestBody());
+            FaultProfile current = profile;
+            Random random = ThreadLocalRandom.current();
+
+            sleep(current.sampleLatencyMillis(random));
+
+            double roll = random.nextDouble();
+            if (roll < current.rateLimitRate()) {
+                send(exchange, 429, error(429, "RESOURCE_EXHAUSTED", "Quota exceeded (stub)"));
+                return;
+            }
+            if (roll < current.rateLimitRate() + current.errorRate()) {
+                send(exchange, 500, error(500, "INTERNAL", "Internal error (stub)"));
+                return;
+            }
+
+            byte[] response = switch (operation) {
+                case "generateContent" -> generateContent(body);
+                case "streamGenerateContent" -> streamGenerateContent(body);
+                case "embedContent" -> embedContent(body);
+                case "batchEmbedContents" -> batchEmbedContents(body);
+                default -> null;
+            };
+
+            if (response == null) {
+                send(exchange, 404, error(404, "NOT_FOUND", "Unknown operation " + operation));
+            } else if (current.dripChunkBytes() > 0) {
+                drip(exchange, response, current);
+            } else {
+                send(exchange, 200, response);
+            }
+        } catch (Exception e) {
+            send(exchange, 500, error(500, "INTERNAL", String.valueOf(e.getMessage())));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private byte[] generateContent(JsonNode body) throws IOException {
+        if (emptyResults) {
+            ObjectNode response = objectMapper.createObjectNode();
+            response.putArray("candidates");
+            return objectMapper.writeValueAsBytes(response);
+        }
+        String prompt = body.at("/contents/0/parts/0/text").asText("");
+        return objectMapper.writeValueAsBytes(candidate("Stub summary of " + prompt.length() + " characters."));
+    }
+
+    private byte[] streamGenerateContent(JsonNode body) throws IOException {
+        // Non-SSE streaming returns a JSON array of partial candidates
+        String prompt = body.at("/contents/0/parts/0/text").asText("");
+        ArrayNode chunks = objectMapper.createArrayNode();
+        chunks.add(candidate("Stub summary "));
+        chunks.add(candidate("of " + prompt.length() + " "));
+        chunks.add(candidate("characters."));
+        return objectMapper.writeValueAsBytes(chunks);
+    }
+
+    private byte[] embedContent(JsonNode body) throws IOException {
+        ObjectNode response = objectMapper.createObjectNode();
+        if (emptyResults) {
+            response.putObject("embedding");
+            return objectMapper.writeValueAsBytes(response);
+        }
+        response.set("embedding", embedding(body.at("/content/parts/0/text").asText("")));
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private byte[] batchEmbedContents(JsonNode body) throws IOException {
+        ArrayNode embeddings = objectMapper.createArrayNode();
+        for (JsonNode request : body.path("requests")) {
+            embeddings.add(embedding(request.at("/content/parts/0/text").asText("")));
+        }
+        ObjectNode response = objectMapper.createObjectNode();
+        response.set("embeddings", embeddings);
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private ObjectNode candidate(String text) {
+        ObjectNode part = objectMapper.createObjectNode().put("text", text);
+        ObjectNode content = objectMapper.createObjectNode().put("role", "model");
+        content.putArray("parts").add(part);
+        ObjectNode candidate = objectMapper.createObjectNode().put("finishReason", "STOP");
+        candidate.set("content", content);
+        ObjectNode response = objectMapper.createObjectNode();
+        response.putArray("candidates").add(candidate);
+        return response;
+    }
+
+    /**
+     * Deterministic unit-length vector derived from the text, so identical inputs compare equal
+     */
+    private ObjectNode embedding(String text) {
+        Random random = new Random(text.hashCode());
+        double[] values = new double[EMBEDDING_DIMENSION];
+        double norm = 0;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian();
+            norm += values[i] * values[i];
+        }
+        norm = Math.sqrt(norm);
+
+        ObjectNode node = objectMapper.createObjectNode();
+        ArrayNode array = node.putArray("values");
+        for (double value : values) {
+            array.add((float) (value / norm));
+        }
+        return node;
+    }
+
+    private byte[] error(int code, String status, String message) throws IOException {
+        ObjectNode error = objectMapper.createObjectNode()
+                .put("code", code)
+                .put("message", message)
+                .put("status", status);
+        ObjectNode response = objectMapper.createObjectNode();
+        response.set("error", error);
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    private void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void drip(HttpExchange exchange, byte[] body, FaultProfile current) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0); // chunked
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int offset = 0; offset < body.length; offset += current.dripChunkBytes()) {
+                out.write(body, offset, Math.min(current.dripChunkBytes(), body.length - offset));
+                out.flush();
+                sleep(current.dripDelayMillis());
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.company.knowledge_sharing_backend.service;
+
+import com.company.knowledge_sharing_backend.dto.response.DocumentResponse;
+import com.company.knowledge_sharing_backend.entity.Document;
+import com.company.knowledge_sharing_backend.entity.FileType;
+import com.company.knowledge_sharing_backend.entity.SharingLevel;
+import com.company.knowledge_sharing_backend.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the SQL statements Hibernate prepares for the assembler against an in-memory H2
+ * database (DocumentResponseAssemblerTest counts repository calls against mocks). The schema
+ * holds only the tables the assembler reads; the documents themselves are built in memory.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.sql.init.schema-locations=classpath:document-access-schema.sql",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(DocumentResponseAssembler.class)
+class DocumentResponseAssemblerQueryCountTest {
+
+    private static final int DOCUMENT_COUNT = 200;
+    private static final long OWNER_ID = 10L;
+    // Member of every document's group (document n is shared with group 100 + n)
+    private static final long VIEWER_ID = 99L;
+
+    @Autowired
+    private DocumentResponseAssembler assembler;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void insertRows() {
+        jdbcTemplate.update("INSERT INTO users (id, username) VALUES (?, ?)", OWNER_ID, "owner");
+        jdbcTemplate.update("INSERT INTO users (id, username) VALUES (?, ?)", VIEWER_ID, "viewer");
+        jdbcTemplate.update("INSERT INTO tags (id, name) VALUES (1, 'java')");
+
+        List<Object[]> documentRows = new ArrayList<>();
+        List<Object[]> groupRows = new ArrayList<>();
+        List<Object[]> memberRows = new ArrayList<>();
+        List<Object[]> documentGroupRows = new ArrayList<>();
+        List<Object[]> documentTagRows = new ArrayList<>();
+        for (long id = 1; id <= DOCUMENT_COUNT; id++) {
+            documentRows.add(new Object[]{id});
+            groupRows.add(new Object[]{100 + id, "group " + id});
+            memberRows.add(new Object[]{100 + id, VIEWER_ID});
+            documentGroupRows.add(new Object[]{id, 100 + id});
+            documentTagRows.add(new Object[]{id, 1L});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO documents (id) VALUES (?)", documentRows);
+        jdbcTemplate.batchUpdate("INSERT INTO app_groups (id, name) VALUES (?, ?)", groupRows);
+        jdbcTemplate.batchUpdate("INSERT INTO user_groups (group_id, user_id) VALUES (?, ?)", memberRows);
+        jdbcTemplate.batchUpdate("INSERT INTO document_groups (document_id, group_id) VALUES (?, ?)", documentGroupRows);
+        jdbcTemplate.batchUpdate("INSERT INTO document_tags (document_id, tag_id) VALUES (?, ?)", documentTagRows);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithPageSize() {
+        assertThat(statementsFor(1)).isEqualTo(3);
+        assertThat(statementsFor(20)).isEqualTo(3);
+        assertThat(statementsFor(DOCUMENT_COUNT)).isEqualTo(3);
+    }
+
+    @Test
+    void groupRowsAreReadOnlyUntilTheLimitIsReached() {
+        statistics.clear();
+        List<DocumentResponse> responses = assembler.toAccessibleResponses(
+                documents(DOCUMENT_COUNT, SharingLevel.GROUP), VIEWER_ID, 10, false);
+
+        assertThat(responses).hasSize(10);
+        assertThat(responses.get(0).getGroupIds()).containsExactly(101L);
+        assertThat(responses.get(0).getOwnerUsername()).isEqualTo("owner");
+        assertThat(responses.get(0).getTags()).containsExactly("java");
+        // Viewer's groups, group rows of the first ten, usernames, tags
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+    }
+
+    @Test
+    void publicDocumentsNeedNoMembershipQuery() {
+        statistics.clear();
+        List<DocumentResponse> responses = assembler.toAccessibleResponses(
+                documents(DOCUMENT_COUNT, SharingLevel.PUBLIC), VIEWER_ID, 10, false);
+
+        assertThat(responses).hasSize(10);
+        assertThat(responses.get(9).getGroupIds()).containsExactly(110L);
+        // Group rows of the ten in the response, usernames, tags
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    private long statementsFor(int pageSize) {
+        statistics.clear();
+        List<DocumentResponse> responses = assembler.toResponses(documents(pageSize, SharingLevel.PUBLIC), false);
+        assertThat(responses).hasSize(pageSize);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private static List<Document> documents(int count, SharingLevel sharingLevel) {
+        List<Document> documents = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            documents.add(Document.builder()
+                    .id(id)
+                    .title("Document " + id)
+                    .filePath("file" + id + ".pdf")
+                    .fileType(FileType.PDF)
+                    .fileSize(1024L)
+                    .sharingLevel(sharingLevel)
+                    .owner(User.builder().id(OWNER_ID).build())
+                    .tags(null)
+                    .groups(null)
+                    .ratings(null)
+                    .build());
+        }
+        return documents;
+    }
+}
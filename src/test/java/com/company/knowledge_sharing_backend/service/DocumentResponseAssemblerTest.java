@@ -0,0 +1,210 @@
+package com.company.knowledge_sharing_backend.service;
+
+import com.company.knowledge_sharing_backend.dto.response.DocumentResponse;
+import com.company.knowledge_sharing_backend.entity.Document;
+import com.company.knowledge_sharing_backend.entity.FileType;
+import com.company.knowledge_sharing_backend.entity.SharingLevel;
+import com.company.knowledge_sharing_backend.entity.User;
+import com.company.knowledge_sharing_backend.repository.DocumentRepository;
+import com.company.knowledge_sharing_backend.repository.GroupRepository;
+import com.company.knowledge_sharing_backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counts repository calls against mocked repositories: shows the lookups are batched per page,
+ * not the SQL statements Hibernate issues (there is no test database in this build).
+ */
+class DocumentResponseAssemblerTest {
+
+    // The viewer in the access tests; member of group 102 only
+    private static final long VIEWER_ID = 99L;
+
+    private DocumentRepository documentRepository;
+    private UserRepository userRepository;
+    private GroupRepository groupRepository;
+    private DocumentResponseAssembler assembler;
+
+    @BeforeEach
+    void createAssembler() {
+        documentRepository = mock(DocumentRepository.class);
+        userRepository = mock(UserRepository.class);
+        groupRepository = mock(GroupRepository.class);
+        assembler = new DocumentResponseAssembler();
+        ReflectionTestUtils.setField(assembler, "documentRepository", documentRepository);
+        ReflectionTestUtils.setField(assembler, "userRepository", userRepository);
+        ReflectionTestUtils.setField(assembler, "groupRepository", groupRepository);
+
+        // Answer the batched lookups for whatever ids are asked for
+        when(userRepository.findUsernamesByIds(anyCollection())).thenAnswer(invocation -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (Long id : invocation.<Collection<Long>>getArgument(0)) {
+                rows.add(new Object[]{id, "user" + id});
+            }
+            return rows;
+        });
+        when(documentRepository.findTagNamesByDocumentIds(anyCollection())).thenAnswer(invocation -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (Long id : invocation.<Collection<Long>>getArgument(0)) {
+                rows.add(new Object[]{id, "java"});
+                rows.add(new Object[]{id, "tag" + id});
+            }
+            return rows;
+        });
+        when(documentRepository.findGroupIdsByDocumentIds(anyCollection())).thenAnswer(invocation -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (Long id : invocation.<Collection<Long>>getArgument(0)) {
+                // Native query rows: numeric types depend on the driver
+                rows.add(new Object[]{id.intValue(), 100L + id});
+            }
+            return rows;
+        });
+        when(groupRepository.findIdsByUserId(anyLong())).thenReturn(List.of(102L));
+    }
+
+    @Test
+    void lookupCountDoesNotGrowWithPageSize() {
+        assertThat(lookupsFor(1)).isEqualTo(3);
+        assertThat(lookupsFor(20)).isEqualTo(3);
+        assertThat(lookupsFor(200)).isEqualTo(3);
+    }
+
+    @Test
+    void accessCheckLookupCountDoesNotGrowWithPageSize() {
+        assertThat(accessLookupsFor(1)).isEqualTo(4);
+        assertThat(accessLookupsFor(20)).isEqualTo(4);
+        assertThat(accessLookupsFor(200)).isEqualTo(4);
+    }
+
+    @Test
+    void keepsOwnPublicAndSharedGroupDocuments() {
+        List<Document> documents = documents(4, SharingLevel.GROUP);
+        documents.get(0).setSharingLevel(SharingLevel.PUBLIC);
+        documents.get(2).setSharingLevel(SharingLevel.PRIVATE);
+        documents.get(3).setOwner(User.builder().id(VIEWER_ID).build());
+
+        List<DocumentResponse> responses = assembler.toAccessibleResponses(documents, VIEWER_ID, true);
+
+        // 1: public, 2: shared with group 102, 3: private, 4: own
+        assertThat(responses).extracting(DocumentResponse::getId).containsExactly(1L, 2L, 4L);
+        assertThat(responses.get(1).getGroupIds()).containsExactly(102L);
+    }
+
+    @Test
+    void stopsAtLimitAndSkipsGroupLookupWithoutGroupDocuments() {
+        List<DocumentResponse> responses = assembler.toAccessibleResponses(documents(5), VIEWER_ID, 2, false);
+
+        assertThat(responses).extracting(DocumentResponse::getId).containsExactly(1L, 2L);
+        assertThat(Mockito.mockingDetails(groupRepository).getInvocations()).isEmpty();
+    }
+
+    @Test
+    void readsGroupRowsOnlyUntilLimitIsReached() {
+        when(groupRepository.findIdsByUserId(anyLong())).thenReturn(List.of(101L, 102L, 103L, 104L, 105L, 106L));
+
+        List<DocumentResponse> responses = assembler.toAccessibleResponses(documents(6, SharingLevel.GROUP),
+                VIEWER_ID, 2, false);
+
+        assertThat(responses).extracting(DocumentResponse::getId).containsExactly(1L, 2L);
+        verify(documentRepository).findGroupIdsByDocumentIds(Set.of(1L, 2L));
+        verify(documentRepository, times(1)).findGroupIdsByDocumentIds(anyCollection());
+    }
+
+    @Test
+    void assemblesAssociationsFromBatchedRows() {
+        List<Document> documents = documents(3);
+
+        List<DocumentResponse> responses = assembler.toResponses(documents, false);
+
+        assertThat(responses).extracting(DocumentResponse::getId).containsExactly(1L, 2L, 3L);
+        DocumentResponse second = responses.get(1);
+        assertThat(second.getOwnerId()).isEqualTo(12L);
+        assertThat(second.getOwnerUsername()).isEqualTo("user12");
+        assertThat(second.getTags()).containsExactly("java", "tag2");
+        assertThat(second.getGroupIds()).containsExactly(102L);
+        assertThat(second.getAverageRating()).isEqualTo(3.5);
+        assertThat(second.getRatingCount()).isEqualTo(2);
+        assertThat(second.getContent()).isNull();
+    }
+
+    @Test
+    void emptyPageRunsNoQueries() {
+        assertThat(assembler.toResponses(List.of(), true)).isEmpty();
+        assertThat(assembler.toAccessibleResponses(List.of(), VIEWER_ID, true)).isEmpty();
+        assertThat(invocations()).isZero();
+    }
+
+    private int lookupsFor(int pageSize) {
+        Mockito.clearInvocations(documentRepository, userRepository, groupRepository);
+        List<DocumentResponse> responses = assembler.toResponses(documents(pageSize), true);
+        assertThat(responses).hasSize(pageSize);
+        return invocations();
+    }
+
+    private int accessLookupsFor(int pageSize) {
+        // The viewer is in every document's group, so each page entry needs the membership check
+        List<Long> viewerGroups = new ArrayList<>();
+        for (long id = 1; id <= pageSize; id++) {
+            viewerGroups.add(100L + id);
+        }
+        when(groupRepository.findIdsByUserId(anyLong())).thenReturn(viewerGroups);
+
+        Mockito.clearInvocations(documentRepository, userRepository, groupRepository);
+        List<DocumentResponse> responses = assembler.toAccessibleResponses(documents(pageSize, SharingLevel.GROUP),
+                VIEWER_ID, true);
+        assertThat(responses).hasSize(pageSize);
+        return invocations();
+    }
+
+    private int invocations() {
+        return Mockito.mockingDetails(documentRepository).getInvocations().size()
+                + Mockito.mockingDetails(userRepository).getInvocations().size()
+                + Mockito.mockingDetails(groupRepository).getInvocations().size();
+    }
+
+    private static List<Document> documents(int count) {
+        return documents(count, SharingLevel.PUBLIC);
+    }
+
+    /**
+     * Documents whose owner carries only an id and whose collections are unset: mapping must
+     * not read them, as on a page of entities with lazy associations.
+     */
+    private static List<Document> documents(int count, SharingLevel sharingLevel) {
+        List<Document> documents = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            Document document = Document.builder()
+                    .id(id)
+                    .title("Document " + id)
+                    .content("content " + id)
+                    .filePath("file" + id + ".pdf")
+                    .fileType(FileType.PDF)
+                    .fileSize(1024L)
+                    .sharingLevel(sharingLevel)
+                    .owner(User.builder().id(10 + id).build())
+                    .ratingSum(7L)
+                    .ratingCount(2)
+                    .tags(null)
+                    .groups(null)
+                    .ratings(null)
+                    .build();
+            documents.add(document);
+        }
+        return documents;
+    }
+}
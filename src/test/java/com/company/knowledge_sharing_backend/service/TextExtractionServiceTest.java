@@ -0,0 +1,207 @@
+package com.company.knowledge_sharing_backend.service;
+
+import com.company.knowledge_sharing_backend.config.FileStorageProperties;
+import com.company.knowledge_sharing_backend.exception.TextExtractionException;
+import com.company.knowledge_sharing_backend.util.ExtractionGuard;
+import com.company.knowledge_sharing_backend.util.HashUtil;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TextExtractionServiceTest {
+
+    private final TextExtractionService textExtractionService = new TextExtractionService();
+
+    @Test
+    void extractsXlsxRowsAndCells() throws IOException {
+        MockMultipartFile file = xlsx(3, 2);
+
+        String text = textExtractionService.extractText(file);
+
+        assertThat(text).contains("Item 0 Value 0");
+        assertThat(text).contains("Item 2 Value 2");
+        assertThat(text.lines().count()).isEqualTo(3);
+    }
+
+    @Test
+    void stopsXlsxExtractionAtWordBudget() throws IOException {
+        MockMultipartFile file = xlsx(1000, 4);
+
+        String text = textExtractionService.extractText(file, 50);
+
+        assertThat(text.split("\\s+")).hasSize(50);
+    }
+
+    @Test
+    void truncatesToWordBudgetWithoutSplitting() {
+        assertThat(textExtractionService.truncateText("one  two\nthree four", 3)).isEqualTo("one  two\nthree");
+        assertThat(textExtractionService.truncateText("  one two ", 5)).isEqualTo("  one two ");
+        assertThat(textExtractionService.truncateText("", 5)).isEmpty();
+    }
+
+    @Test
+    void stopsTxtExtractionAtWordBudget() {
+        byte[] bytes = "word ".repeat(100_000).getBytes(StandardCharsets.UTF_8);
+        MockMultipartFile file = new MockMultipartFile("file", "notes.txt", "text/plain", bytes);
+
+        String text = textExtractionService.extractText(file, 3000);
+
+        assertThat(text.split("\\s+")).hasSize(3000);
+    }
+
+    /**
+     * Memory regression: a large sheet with a summary-sized budget must not build the workbook DOM.
+     * The XSSFWorkbook path allocated several hundred MB for this input.
+     */
+    @Test
+    void largeXlsxExtractionAllocatesBoundedMemory() throws IOException {
+        MockMultipartFile file = xlsx(200_000, 10);
+
+        long allocated = allocatedBytes(() -> textExtractionService.extractText(file, 3000));
+
+        assertThat(allocated).isLessThan(64L * 1024 * 1024);
+    }
+
+    @Test
+    void stopsAtCharacterBudgetWithoutWordBreaks() {
+        byte[] bytes = "x".repeat(100_000).getBytes(StandardCharsets.UTF_8);
+        MockMultipartFile file = new MockMultipartFile("file", "blob.txt", "text/plain", bytes);
+
+        String text = textExtractionService.extractText(file, 3000, 1000);
+
+        assertThat(text).hasSize(1000);
+    }
+
+    @Test
+    void stripsSplitPdfRangesInPageOrder() throws IOException {
+        TextExtractionService parallel = new TextExtractionService();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        ReflectionTestUtils.setField(parallel, "pdfPageExecutor", pool);
+        try {
+            String text = parallel.extractText(pdf(30), Integer.MAX_VALUE);
+
+            List<String> pages = text.lines().filter(line -> line.startsWith("Page")).toList();
+            assertThat(pages).hasSize(30);
+            assertThat(pages.get(0)).isEqualTo("Page 1");
+            assertThat(pages.get(29)).isEqualTo("Page 30");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void servesRepeatedPreviewsOfIdenticalUploadsFromCache(@TempDir Path cacheDir) {
+        FileStorageProperties properties = new FileStorageProperties();
+        properties.setExtractionCacheDir(cacheDir.toString());
+        ExtractionCacheService cache = new ExtractionCacheService(properties);
+        TextExtractionService cached = new TextExtractionService();
+        ReflectionTestUtils.setField(cached, "extractionCacheService", cache);
+
+        byte[] bytes = "first preview text".getBytes(StandardCharsets.UTF_8);
+        String text = cached.extractText(new MockMultipartFile("file", "notes.txt", "text/plain", bytes), 3000, 30_000);
+
+        // Keyed on the hash of the uploaded bytes, although no hash was passed in
+        String key = HashUtil.sha256Hex(bytes) + "-v" + TextExtractionService.EXTRACTOR_VERSION + "-3000c30000";
+        assertThat(cache.get(key)).contains(text);
+
+        // A second upload of the same bytes under another name is answered from the cache
+        cache.put(key, "from cache");
+        assertThat(cached.extractText(new MockMultipartFile("file", "copy.txt", "text/plain", bytes), 3000, 30_000))
+                .isEqualTo("from cache");
+    }
+
+    @Test
+    void stopsAtCheckpointOnceCpuTimeIsSpent() {
+        assertThatThrownBy(() -> ExtractionGuard.call(TimeUnit.MILLISECONDS.toNanos(50), () -> {
+            long sink = 0;
+            while (true) {
+                ExtractionGuard.checkpoint();
+                sink += System.nanoTime() % 7;
+                if (sink == -1) {
+                    return sink;
+                }
+            }
+        })).isInstanceOf(CancellationException.class).hasMessageContaining("CPU");
+    }
+
+    @Test
+    void interruptedExtractionFailsInsteadOfRunningOn() {
+        byte[] bytes = "word ".repeat(1000).getBytes(StandardCharsets.UTF_8);
+        MockMultipartFile file = new MockMultipartFile("file", "notes.txt", "text/plain", bytes);
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThatThrownBy(() -> textExtractionService.extractText(file, 3000))
+                    .isInstanceOf(TextExtractionException.class)
+                    .hasMessageContaining("timed out");
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    private static MockMultipartFile pdf(int pages) throws IOException {
+        try (PDDocument document = new PDDocument();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int i = 1; i <= pages; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 12);
+                    content.newLineAtOffset(72, 700);
+                    content.showText("Page " + i);
+                    content.endText();
+                }
+            }
+            document.save(out);
+            return new MockMultipartFile("file", "pages.pdf", "application/pdf", out.toByteArray());
+        }
+    }
+
+    private static MockMultipartFile xlsx(int rows, int columns) throws IOException {
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(null, 100, true, true);
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Data");
+            for (int r = 0; r < rows; r++) {
+                Row row = sheet.createRow(r);
+                for (int c = 0; c < columns; c++) {
+                    row.createCell(c).setCellValue((c % 2 == 0 ? "Item " : "Value ") + (r % 100));
+                }
+            }
+            workbook.write(out);
+            workbook.dispose();
+            return new MockMultipartFile("file", "data.xlsx",
+                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", out.toByteArray());
+        }
+    }
+
+    private static long allocatedBytes(Runnable work) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        work.run();
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+}
@@ -0,0 +1,142 @@
+package com.company.knowledge_sharing_backend.storage;
+
+import com.company.knowledge_sharing_backend.config.BlobStoreProperties;
+import com.company.knowledge_sharing_backend.config.FileStorageProperties;
+import com.company.knowledge_sharing_backend.service.BlobStore;
+import com.company.knowledge_sharing_backend.service.impl.ChunkedBlobStore;
+import com.company.knowledge_sharing_backend.service.impl.LocalBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChunkedBlobStoreTest {
+
+    private static final String VERSION_1 = "aaaa000000000001.pdf";
+    private static final String VERSION_2 = "bbbb000000000002.pdf";
+
+    @TempDir
+    Path uploadDir;
+
+    private ChunkedBlobStore blobStore;
+
+    @BeforeEach
+    void createStore() {
+        FileStorageProperties fileStorageProperties = new FileStorageProperties();
+        fileStorageProperties.setUploadDir(uploadDir.toString());
+        BlobStoreProperties properties = new BlobStoreProperties();
+        properties.setChunkMinBytes(2 * 1024);
+        properties.setChunkAverageBytes(8 * 1024);
+        properties.setChunkMaxBytes(32 * 1024);
+        properties.setChunkGcGraceHours(1);
+        blobStore = new ChunkedBlobStore(new LocalBlobStore(fileStorageProperties), properties, fileStorageProperties);
+    }
+
+    @Test
+    void readsFilesAndRangesBackFromChunks() throws IOException {
+        byte[] bytes = randomBytes(1, 300_000);
+        put(VERSION_1, bytes);
+
+        assertThat(read(VERSION_1, 0, Long.MAX_VALUE - 1)).isEqualTo(bytes);
+        assertThat(read(VERSION_1, 12_345, 200_000)).isEqualTo(Arrays.copyOfRange(bytes, 12_345, 200_001));
+        assertThat(blobStore.stat(VERSION_1)).hasValueSatisfying(stat -> assertThat(stat.size()).isEqualTo(bytes.length));
+        assertThat(blobStore.localPath(VERSION_1)).isEmpty();
+
+        List<String> listed = new ArrayList<>();
+        blobStore.list(entry -> listed.add(entry.key()));
+        assertThat(listed).containsExactly(VERSION_1);
+    }
+
+    @Test
+    void editedVersionOnlyAddsChunksAroundTheEdit() throws IOException {
+        byte[] original = randomBytes(2, 1_000_000);
+        put(VERSION_1, original);
+        Set<Path> chunksBefore = chunkFiles();
+
+        // Insert 100 bytes in the middle: shifts everything after it
+        byte[] edited = new byte[original.length + 100];
+        System.arraycopy(original, 0, edited, 0, 500_000);
+        System.arraycopy(original, 500_000, edited, 500_100, 500_000);
+        put(VERSION_2, edited);
+
+        Set<Path> added = chunkFiles();
+        added.removeAll(chunksBefore);
+        assertThat(chunksBefore).hasSizeGreaterThan(50);
+        assertThat(added).hasSizeLessThanOrEqualTo(3);
+        assertThat(read(VERSION_2, 0, Long.MAX_VALUE - 1)).isEqualTo(edited);
+    }
+
+    @Test
+    void sweepDeletesOnlyChunksNoManifestLists() throws IOException {
+        byte[] original = randomBytes(3, 200_000);
+        byte[] edited = original.clone();
+        Arrays.fill(edited, 100_000, 100_050, (byte) 7);
+        put(VERSION_1, original);
+        put(VERSION_2, edited);
+        int chunksWithBoth = chunkFiles().size();
+
+        blobStore.delete(VERSION_1);
+        for (Path chunk : chunkFiles()) {
+            Files.setLastModifiedTime(chunk, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        }
+
+        int deleted = blobStore.sweepUnreferencedChunks();
+
+        assertThat(deleted).isPositive();
+        assertThat(chunkFiles()).hasSize(chunksWithBoth - deleted);
+        assertThat(blobStore.exists(VERSION_1)).isFalse();
+        assertThat(read(VERSION_2, 0, Long.MAX_VALUE - 1)).isEqualTo(edited);
+    }
+
+    @Test
+    void readsFilesStoredBeforeChunking() throws IOException {
+        FileStorageProperties fileStorageProperties = new FileStorageProperties();
+        fileStorageProperties.setUploadDir(uploadDir.toString());
+        BlobStore plain = new LocalBlobStore(fileStorageProperties);
+        byte[] bytes = randomBytes(4, 5_000);
+        plain.put(VERSION_1, new ByteArrayInputStream(bytes), bytes.length, "application/pdf");
+
+        assertThat(blobStore.exists(VERSION_1)).isTrue();
+        assertThat(blobStore.localPath(VERSION_1)).isPresent();
+        assertThat(read(VERSION_1, 10, 19)).isEqualTo(Arrays.copyOfRange(bytes, 10, 20));
+    }
+
+    private void put(String key, byte[] bytes) throws IOException {
+        blobStore.put(key, new ByteArrayInputStream(bytes), bytes.length, "application/pdf");
+    }
+
+    private byte[] read(String key, long start, long end) throws IOException {
+        try (InputStream in = blobStore.openRange(key, start, end)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private Set<Path> chunkFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            return new HashSet<>(files.filter(path -> path.getFileName().toString().endsWith(".chunk")).toList());
+        }
+    }
+
+    private static byte[] randomBytes(long seed, int length) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,91 @@
+package com.company.knowledge_sharing_backend.storage;
+
+import com.company.knowledge_sharing_backend.config.FileStorageProperties;
+import com.company.knowledge_sharing_backend.service.impl.LocalBlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LocalBlobStoreTest {
+
+    private static final String HASH_NAME = "abcdef0123456789.pdf";
+
+    @TempDir
+    Path uploadDir;
+
+    private LocalBlobStore blobStore;
+
+    @BeforeEach
+    void createStore() {
+        FileStorageProperties properties = new FileStorageProperties();
+        properties.setUploadDir(uploadDir.toString());
+        blobStore = new LocalBlobStore(properties);
+    }
+
+    @Test
+    void storesFilesInFanOutDirectories() throws IOException {
+        byte[] bytes = "content".getBytes(StandardCharsets.UTF_8);
+
+        blobStore.put(HASH_NAME, new ByteArrayInputStream(bytes), bytes.length, "application/pdf");
+
+        Path expected = uploadDir.resolve("ab").resolve("cd").resolve(HASH_NAME);
+        assertThat(expected).hasBinaryContent(bytes);
+        assertThat(blobStore.localPath(HASH_NAME)).contains(expected);
+        assertThat(blobStore.stat(HASH_NAME)).hasValueSatisfying(stat -> assertThat(stat.size()).isEqualTo(bytes.length));
+    }
+
+    @Test
+    void resolvesAndMigratesLegacyFlatFiles() throws IOException {
+        Files.writeString(uploadDir.resolve(HASH_NAME), "legacy");
+        Files.writeString(uploadDir.resolve("report_final.pdf"), "named");
+
+        assertThat(blobStore.exists(HASH_NAME)).isTrue();
+        assertThat(blobStore.localPath(HASH_NAME)).contains(uploadDir.resolve(HASH_NAME));
+
+        assertThat(blobStore.migrateFlatFiles(1)).isEqualTo(1);
+        assertThat(blobStore.migrateFlatFiles(10)).isEqualTo(1);
+        assertThat(blobStore.migrateFlatFiles(10)).isZero();
+
+        assertThat(blobStore.localPath(HASH_NAME)).contains(uploadDir.resolve("ab").resolve("cd").resolve(HASH_NAME));
+        try (InputStream in = blobStore.open("report_final.pdf")) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("named");
+        }
+        assertThat(blobStore.localPath("report_final.pdf").orElseThrow().getParent().getParent().getParent())
+                .isEqualTo(uploadDir);
+    }
+
+    @Test
+    void readsByteRanges() throws IOException {
+        byte[] bytes = "0123456789".getBytes(StandardCharsets.UTF_8);
+        blobStore.put(HASH_NAME, new ByteArrayInputStream(bytes), bytes.length, "application/pdf");
+
+        try (InputStream in = blobStore.openRange(HASH_NAME, 2, 5)) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("2345");
+        }
+    }
+
+    @Test
+    void deletesFlatAndShardedCopies() throws IOException {
+        Files.writeString(uploadDir.resolve(HASH_NAME), "legacy");
+
+        blobStore.delete(HASH_NAME);
+
+        assertThat(blobStore.exists(HASH_NAME)).isFalse();
+    }
+
+    @Test
+    void rejectsNamesOutsideTheUploadDirectory() {
+        assertThatThrownBy(() -> blobStore.localPath("../secret.pdf"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
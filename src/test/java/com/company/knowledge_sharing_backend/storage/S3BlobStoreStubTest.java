@@ -0,0 +1,112 @@
+package com.company.knowledge_sharing_backend.storage;
+
+import com.company.knowledge_sharing_backend.service.BlobStore;
+import com.company.knowledge_sharing_backend.service.impl.S3BlobStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class S3BlobStoreStubTest {
+
+    private static final int PART_SIZE = 64 * 1024;
+
+    private static S3StubServer stub;
+    private static S3BlobStore blobStore;
+
+    @BeforeAll
+    static void startStub() throws Exception {
+        stub = new S3StubServer().start();
+        // Anything above two parts goes multipart, up to three parts in flight
+        blobStore = stub.newBlobStore(2L * PART_SIZE, PART_SIZE, 3);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @BeforeEach
+    void resetStub() {
+        stub.setFailingPart(0);
+    }
+
+    @Test
+    void storesSmallObjectWithSinglePut() throws IOException {
+        byte[] bytes = randomBytes(1000);
+
+        blobStore.put("small.pdf", new ByteArrayInputStream(bytes), bytes.length, "application/pdf");
+
+        BlobStore.BlobStat stat = blobStore.stat("small.pdf").orElseThrow();
+        assertThat(stat.size()).isEqualTo(bytes.length);
+        try (InputStream in = blobStore.open("small.pdf")) {
+            assertThat(in.readAllBytes()).isEqualTo(bytes);
+        }
+    }
+
+    @Test
+    void uploadsLargeObjectInParallelParts() throws IOException {
+        byte[] bytes = randomBytes(10 * PART_SIZE + 123);
+        int partsBefore = stub.getPartRequests();
+
+        // Unknown length: streamed, never buffered whole
+        blobStore.put("large.pdf", new ByteArrayInputStream(bytes), -1, "application/pdf");
+
+        assertThat(stub.getPartRequests() - partsBefore).isEqualTo(11);
+        assertThat(stub.getMaxConcurrentParts()).isGreaterThan(1).isLessThanOrEqualTo(3);
+        try (InputStream in = blobStore.open("large.pdf")) {
+            assertThat(in.readAllBytes()).isEqualTo(bytes);
+        }
+    }
+
+    @Test
+    void readsByteRanges() throws IOException {
+        byte[] bytes = randomBytes(5000);
+        blobStore.put("range.pdf", new ByteArrayInputStream(bytes), bytes.length, "application/pdf");
+
+        try (InputStream in = blobStore.openRange("range.pdf", 100, 199)) {
+            assertThat(in.readAllBytes()).isEqualTo(Arrays.copyOfRange(bytes, 100, 200));
+        }
+    }
+
+    @Test
+    void abortsMultipartUploadWhenPartFails() {
+        stub.setFailingPart(2);
+        int abortedBefore = stub.getAbortedUploads();
+        byte[] bytes = randomBytes(4 * PART_SIZE);
+
+        assertThatThrownBy(() -> blobStore.put("broken.pdf", new ByteArrayInputStream(bytes), bytes.length, "application/pdf"))
+                .isInstanceOf(IOException.class);
+
+        assertThat(stub.getAbortedUploads()).isEqualTo(abortedBefore + 1);
+        assertThat(stub.getOpenUploads()).isZero();
+        assertThat(stub.hasObject("broken.pdf")).isFalse();
+    }
+
+    @Test
+    void reportsMissingObjects() throws IOException {
+        assertThat(blobStore.stat("missing.pdf")).isEmpty();
+        assertThat(blobStore.exists("missing.pdf")).isFalse();
+        assertThatThrownBy(() -> blobStore.openRange("missing.pdf", 0, 10))
+                .isInstanceOf(NoSuchFileException.class);
+
+        // Deleting a missing object is not an error
+        blobStore.delete("missing.pdf");
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,370 @@
+package com.company.knowledge_sharing_backend.storage;
+
+import com.company.knowledge_sharing_backend.config.BlobStoreProperties;
+import com.company.knowledge_sharing_backend.service.impl.S3BlobStore;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded in-memory stand-in for an S3-compatible object store (path-style, single bucket).
+ * Implements PUT/HEAD/GET (with Range)/DELETE on objects and the multipart upload calls,
+ * which is what S3BlobStore uses. Signatures are not checked.
+ */
+public class S3StubServer implements AutoCloseable {
+
+    public static final String BUCKET = "uploads";
+
+    private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+    private final AtomicInteger partRequests = new AtomicInteger();
+    private final AtomicInteger abortedUploads = new AtomicInteger();
+    private final AtomicInteger concurrentParts = new AtomicInteger();
+    private final AtomicInteger maxConcurrentParts = new AtomicInteger();
+
+    // Part number that always fails with 500 (0 = none)
+    private volatile int failingPart;
+
+    private record StoredObject(byte[] bytes, String etag, ZonedDateTime lastModified) {
+    }
+
+    public S3StubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public S3StubServer start() {
+        server.start();
+        return this;
+    }
+
+    public String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Build an S3BlobStore wired to this stub
+     */
+    public S3BlobStore newBlobStore(long multipartThresholdBytes, int partSizeBytes, int uploadConcurrency) {
+        BlobStoreProperties properties = new BlobStoreProperties();
+        properties.setType("s3");
+        properties.setS3Endpoint(endpoint());
+        properties.setS3Bucket(BUCKET);
+        properties.setS3AccessKey("stub");
+        properties.setS3SecretKey("stub-secret");
+        properties.setS3PathStyleAccess(true);
+        properties.setMultipartThresholdBytes(multipartThresholdBytes);
+        properties.setPartSizeBytes(partSizeBytes);
+        properties.setUploadConcurrency(uploadConcurrency);
+        return new S3BlobStore(properties);
+    }
+
+    public void setFailingPart(int failingPart) {
+        this.failingPart = failingPart;
+    }
+
+    public boolean hasObject(String key) {
+        return objects.containsKey(key);
+    }
+
+    public int getPartRequests() {
+        return partRequests.get();
+    }
+
+    public int getAbortedUploads() {
+        return abortedUploads.get();
+    }
+
+    public int getOpenUploads() {
+        return uploads.size();
+    }
+
+    public int getMaxConcurrentParts() {
+        return maxConcurrentParts.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // ==================== REQUEST HANDLING ====================
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String prefix = "/" + BUCKET + "/";
+            if (!path.startsWith(prefix)) {
+                sendError(exchange, 404, "NoSuchBucket");
+                return;
+            }
+            String key = path.substring(prefix.length());
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String method = exchange.getRequestMethod();
+
+            if ("POST".equals(method) && query.containsKey("uploads")) {
+                createMultipartUpload(exchange, key);
+            } else if ("PUT".equals(method) && query.containsKey("uploadId")) {
+                uploadPart(exchange, query.get("uploadId"), Integer.parseInt(query.get("partNumber")));
+            } else if ("POST".equals(method) && query.containsKey("uploadId")) {
+                completeMultipartUpload(exchange, key, query.get("uploadId"));
+            } else if ("DELETE".equals(method) && query.containsKey("uploadId")) {
+                uploads.remove(query.get("uploadId"));
+                abortedUploads.incrementAndGet();
+                send(exchange, 204, null);
+            } else if ("PUT".equals(method)) {
+                objects.put(key, newObject(readBody(exchange)));
+                exchange.getResponseHeaders().set("ETag", objects.get(key).etag());
+                send(exchange, 200, new byte[0]);
+            } else if ("HEAD".equals(method)) {
+                headObject(exchange, key);
+            } else if ("GET".equals(method)) {
+                getObject(exchange, key);
+            } else if ("DELETE".equals(method)) {
+                objects.remove(key);
+                send(exchange, 204, null);
+            } else {
+                sendError(exchange, 405, "MethodNotAllowed");
+            }
+        } catch (Exception e) {
+            sendError(exchange, 500, "InternalError");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void createMultipartUpload(HttpExchange exchange, String key) throws IOException {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new ConcurrentHashMap<>());
+        sendXml(exchange, 200, "<InitiateMultipartUploadResult>"
+                + "<Bucket>" + BUCKET + "</Bucket><Key>" + key + "</Key>"
+                + "<UploadId>" + uploadId + "</UploadId>"
+                + "</InitiateMultipartUploadResult>");
+    }
+
+    private void uploadPart(HttpExchange exchange, String uploadId, int partNumber) throws IOException {
+        partRequests.incrementAndGet();
+        maxConcurrentParts.accumulateAndGet(concurrentParts.incrementAndGet(), Math::max);
+        try {
+            byte[] bytes = readBody(exchange);
+            sleep(50); // Long enough for parallel parts to overlap
+            Map<Integer, byte[]> parts = uploads.get(uploadId);
+            if (parts == null) {
+                sendError(exchange, 404, "NoSuchUpload");
+                return;
+            }
+            if (partNumber == failingPart) {
+                sendError(exchange, 500, "InternalError");
+                return;
+            }
+            parts.put(partNumber, bytes);
+            exchange.getResponseHeaders().set("ETag", etag(bytes));
+            send(exchange, 200, new byte[0]);
+        } finally {
+            concurrentParts.decrementAndGet();
+        }
+    }
+
+    private void completeMultipartUpload(HttpExchange exchange, String key, String uploadId) throws IOException {
+        Map<Integer, byte[]> parts = uploads.remove(uploadId);
+        if (parts == null) {
+            sendError(exchange, 404, "NoSuchUpload");
+            return;
+        }
+
+        // Assemble in the order listed by the client
+        Map<Integer, byte[]> listed = new TreeMap<>();
+        Matcher matcher = PART_NUMBER.matcher(new String(readBody(exchange), StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            int number = Integer.parseInt(matcher.group(1));
+            if (!parts.containsKey(number)) {
+                sendError(exchange, 400, "InvalidPart");
+                return;
+            }
+            listed.put(number, parts.get(number));
+        }
+        ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+        for (byte[] part : listed.values()) {
+            assembled.write(part);
+        }
+
+        StoredObject object = new StoredObject(assembled.toByteArray(),
+                "\"" + UUID.randomUUID().toString().replace("-", "") + "-" + listed.size() + "\"",
+                ZonedDateTime.now(ZoneOffset.UTC));
+        objects.put(key, object);
+        sendXml(exchange, 200, "<CompleteMultipartUploadResult>"
+                + "<Bucket>" + BUCKET + "</Bucket><Key>" + key + "</Key>"
+                + "<ETag>" + object.etag().replace("\"", "&quot;") + "</ETag>"
+                + "</CompleteMultipartUploadResult>");
+    }
+
+    private void headObject(HttpExchange exchange, String key) throws IOException {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+            send(exchange, 404, null);
+            return;
+        }
+        setObjectHeaders(exchange, object);
+        exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.bytes().length));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void getObject(HttpExchange exchange, String key) throws IOException {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+            sendError(exchange, 404, "NoSuchKey");
+            return;
+        }
+        setObjectHeaders(exchange, object);
+
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range == null) {
+            send(exchange, 200, object.bytes());
+            return;
+        }
+        Matcher matcher = RANGE.matcher(range);
+        if (!matcher.matches()) {
+            sendError(exchange, 416, "InvalidRange");
+            return;
+        }
+        int length = object.bytes().length;
+        long start = Long.parseLong(matcher.group(1));
+        long end = matcher.group(2).isEmpty() ? length - 1 : Math.min(Long.parseLong(matcher.group(2)), length - 1);
+        if (start >= length) {
+            sendError(exchange, 416, "InvalidRange");
+            return;
+        }
+        byte[] slice = new byte[(int) (end - start + 1)];
+        System.arraycopy(object.bytes(), (int) start, slice, 0, slice.length);
+        exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + length);
+        send(exchange, 206, slice);
+    }
+
+    // ==================== HELPERS ====================
+
+    /**
+     * Request body, decoding aws-chunked framing ({@code <hex-size>;chunk-signature=...\r\n<data>\r\n})
+     */
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        byte[] raw = exchange.getRequestBody().readAllBytes();
+        if (exchange.getRequestHeaders().getFirst("x-amz-decoded-content-length") == null) {
+            return raw;
+        }
+
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        int position = 0;
+        while (position < raw.length) {
+            int lineEnd = indexOfCrlf(raw, position);
+            String header = new String(raw, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int size = Integer.parseInt(header.split(";")[0].trim(), 16);
+            position = lineEnd + 2;
+            if (size == 0) {
+                break; // Trailers, if any, follow
+            }
+            decoded.write(raw, position, size);
+            position += size + 2;
+        }
+        return decoded.toByteArray();
+    }
+
+    private static int indexOfCrlf(byte[] bytes, int from) {
+        for (int i = from; i + 1 < bytes.length; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return bytes.length;
+    }
+
+    private StoredObject newObject(byte[] bytes) {
+        return new StoredObject(bytes, etag(bytes), ZonedDateTime.now(ZoneOffset.UTC));
+    }
+
+    /**
+     * Single-part ETags are the MD5 of the content, which the SDK verifies
+     */
+    private static String etag(byte[] bytes) {
+        try {
+            return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(bytes)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void setObjectHeaders(HttpExchange exchange, StoredObject object) {
+        exchange.getResponseHeaders().set("ETag", object.etag());
+        exchange.getResponseHeaders().set("Last-Modified",
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(object.lastModified()));
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            query.put(equals < 0 ? pair : pair.substring(0, equals), equals < 0 ? "" : pair.substring(equals + 1));
+        }
+        return query;
+    }
+
+    private void sendXml(HttpExchange exchange, int status, String xml) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        send(exchange, status, ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void sendError(HttpExchange exchange, int status, String code) throws IOException {
+        sendXml(exchange, status, "<Error><Code>" + code + "</Code><Message>" + code + " (stub)</Message></Error>");
+    }
+
+    private void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        if (body == null || body.length == 0) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.company.knowledge_sharing_backend.storage;
+
+import com.company.knowledge_sharing_backend.config.StreamingUploadReader;
+import com.company.knowledge_sharing_backend.exception.BadRequestException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamingUploadReaderTest {
+
+    private static final String BOUNDARY = "----upload-boundary";
+    private static final String DATA = "{\"title\":\"Report\",\"sharingLevel\":\"PUBLIC\"}";
+
+    private StreamingUploadReader reader;
+
+    @BeforeEach
+    void createReader() {
+        reader = new StreamingUploadReader();
+        ReflectionTestUtils.setField(reader, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(reader, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    @Test
+    void handsDataAndFileStreamToHandler() {
+        MockHttpServletRequest request = uploadRequest(
+                part("data", null, "application/json", DATA),
+                part("file", "report.txt", "text/plain", "file body"));
+
+        String result = reader.read(request, (data, file) -> {
+            try {
+                assertThat(data.getTitle()).isEqualTo("Report");
+                assertThat(file.getOriginalFilename()).isEqualTo("report.txt");
+                assertThat(file.getSize()).isEqualTo(-1);
+                return new String(file.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        assertThat(result).isEqualTo("file body");
+    }
+
+    @Test
+    void passesNoFileWhenOnlyDataIsSent() {
+        MockHttpServletRequest request = uploadRequest(part("data", null, "application/json", DATA));
+
+        assertThat(reader.read(request, (data, file) -> file == null)).isTrue();
+    }
+
+    @Test
+    void rejectsFileBeforeDataAndInvalidData() {
+        MockHttpServletRequest fileFirst = uploadRequest(
+                part("file", "report.txt", "text/plain", "file body"),
+                part("data", null, "application/json", DATA));
+        assertThatThrownBy(() -> reader.read(fileFirst, (data, file) -> true))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("before part 'file'");
+
+        MockHttpServletRequest noTitle = uploadRequest(part("data", null, "application/json", "{\"sharingLevel\":\"PUBLIC\"}"));
+        assertThatThrownBy(() -> reader.read(noTitle, (data, file) -> true))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Title is required");
+    }
+
+    @Test
+    void onlyDocumentUploadsBypassTheMultipartResolver() {
+        assertThat(StreamingUploadReader.isStreamedUpload(new MockHttpServletRequest("POST", "/api/documents"))).isTrue();
+        assertThat(StreamingUploadReader.isStreamedUpload(new MockHttpServletRequest("PUT", "/api/documents/42"))).isTrue();
+        assertThat(StreamingUploadReader.isStreamedUpload(new MockHttpServletRequest("POST", "/api/summary/generate"))).isFalse();
+        assertThat(StreamingUploadReader.isStreamedUpload(new MockHttpServletRequest("PUT", "/api/uploads/abc/chunks/0"))).isFalse();
+    }
+
+    private static MockHttpServletRequest uploadRequest(String... parts) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (String part : parts) {
+            body.writeBytes(part.getBytes(StandardCharsets.UTF_8));
+        }
+        body.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/documents");
+        request.setContentType("multipart/form-data; boundary=" + BOUNDARY);
+        request.setContent(body.toByteArray());
+        return request;
+    }
+
+    private static String part(String name, String fileName, String contentType, String content) {
+        String disposition = "form-data; name=\"" + name + "\"" + (fileName != null ? "; filename=\"" + fileName + "\"" : "");
+        return "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: " + disposition + "\r\n"
+                + "Content-Type: " + contentType + "\r\n\r\n"
+                + content + "\r\n";
+    }
+}
@@ -0,0 +1,9 @@
+-- Tables read by DocumentResponseAssembler, in H2 syntax: the entity mappings carry MySQL-only
+-- column definitions (character sets, generated columns), so the schema is not generated from them
+CREATE TABLE users (id BIGINT PRIMARY KEY, username VARCHAR(50) NOT NULL);
+CREATE TABLE app_groups (id BIGINT PRIMARY KEY, name VARCHAR(100) NOT NULL);
+CREATE TABLE user_groups (group_id BIGINT NOT NULL, user_id BIGINT NOT NULL);
+CREATE TABLE documents (id BIGINT PRIMARY KEY);
+CREATE TABLE tags (id BIGINT PRIMARY KEY, name VARCHAR(50) NOT NULL);
+CREATE TABLE document_tags (document_id BIGINT NOT NULL, tag_id BIGINT NOT NULL);
+CREATE TABLE document_groups (document_id BIGINT NOT NULL, group_id BIGINT NOT NULL);